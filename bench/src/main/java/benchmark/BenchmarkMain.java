@@ -0,0 +1,60 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package benchmark;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+
+/**
+ * Runs the benchmarks with the arguments of JMH, adding the GC profiler so that the allocation rate
+ * of each benchmark is reported with its throughput and percentiles.
+ * Listing or describing the benchmarks is left to JMH.
+ */
+public class BenchmarkMain {
+	
+	/* Main Method */
+	
+	/**
+	 * The <code>main</code> method for <code>BenchmarkMain</code>.
+	 * @see BenchmarkMain
+	 * @param args the arguments of JMH
+	 * @throws Exception if the benchmarks cannot be run
+	 */
+	public static void main (String [] args) throws Exception {
+		CommandLineOptions options;
+		try {
+			options = new CommandLineOptions(args);
+		} catch (CommandLineOptionException e) {
+			System.err.println(e.getMessage());
+			return;
+		}
+		if (options.shouldHelp() || options.shouldList() || options.shouldListWithParams() || options.shouldListProfilers() || options.shouldListResultFormats()) {
+			Main.main(args);
+			return;
+		}
+		
+		try {
+			new Runner(new OptionsBuilder().parent(options).addProfiler(GCProfiler.class).build()).run();
+		} catch (RunnerException e) {
+			System.err.println(e.getMessage());
+		}
+	}
+	
+	/* END Main Method */
+	
+}
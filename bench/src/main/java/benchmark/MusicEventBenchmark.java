@@ -0,0 +1,59 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package benchmark;
+
+import midi.MusicEvent;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures the parsing of one token of a song file with <code>MusicEvent(String)</code>,
+ * for a short note, a long note, a rest, a note with an accidental and a chord.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MusicEventBenchmark {
+	
+	/* Fields */
+	
+	@Param({ "g3", "c4-", "r", "r-", "g4#", "c4+e4+g4" })
+	public String token;
+	
+	/* END Fields */
+	
+	
+	/* Methods */
+	
+	@Benchmark
+	public MusicEvent constructFromString () {
+		return new MusicEvent(token);
+	}
+	
+	/* END Methods */
+	
+}
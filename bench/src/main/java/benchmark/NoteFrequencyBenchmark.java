@@ -0,0 +1,59 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package benchmark;
+
+import midi.Note;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures the construction of a <code>Note</code> from a frequency with <code>Note(double)</code>,
+ * for exact, rounded and extreme frequencies.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NoteFrequencyBenchmark {
+	
+	/* Fields */
+	
+	@Param({ "440.0", "261.63", "8.18", "12543.85", "1046.5" })
+	public double frequency;
+	
+	/* END Fields */
+	
+	
+	/* Methods */
+	
+	@Benchmark
+	public Note constructFromFrequency () {
+		return new Note(frequency);
+	}
+	
+	/* END Methods */
+	
+}
@@ -0,0 +1,89 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package benchmark;
+
+import midi.Note;
+import midi.NoteScanner;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures the construction of a <code>Note</code> from a note string, with <code>Note.parseNoteString(String)</code>
+ * and <code>Note(String)</code>, for note strings of the forms found in song files.
+ * <code>NoteScanner</code>, which both of them parse with, is also measured on its own, and over strings which it rejects.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NoteStringBenchmark {
+	
+	/* Static Constants */
+	
+	/**
+	 * Note strings which are not notes, each rejected by a different rule.
+	 */
+	private static final String [] REJECTED = { "H", "x4", "#", "", "g10", "a1-", "B9", "c-2" };
+	
+	/* END Static Constants */
+	
+	
+	/* Fields */
+	
+	@Param({ "g3", "C2", "b4b", "d4#", "F5#", "D#", "c-1" })
+	public String note;
+	
+	/* END Fields */
+	
+	
+	/* Methods */
+	
+	@Benchmark
+	public Note parseNoteString () {
+		return Note.parseNoteString(note);
+	}
+	
+	@Benchmark
+	public Note constructFromString () {
+		return new Note(note);
+	}
+	
+	@Benchmark
+	public int parseNoteName () {
+		return NoteScanner.parseNoteName(note, 0, note.length());
+	}
+	
+	@Benchmark
+	public int rejectNoteNames () {
+		int sum = 0;
+		for (int i = 0; i < REJECTED.length; i++)
+			sum += NoteScanner.parseNoteName(REJECTED[i], 0, REJECTED[i].length());
+		return sum;
+	}
+	
+	/* END Methods */
+	
+}
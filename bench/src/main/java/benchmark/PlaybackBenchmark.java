@@ -0,0 +1,97 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package benchmark;
+
+import midi.EventBuffer;
+import midi.Instrument;
+import midi.Note;
+import midi.NullOutput;
+import midi.PackedEvent;
+import midi.VirtualClock;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures the cost of dispatching notes through <code>Instrument</code>, without the synthesizer or waiting:
+ * the instrument plays into a <code>NullOutput</code> and keeps time with a <code>VirtualClock</code>, so what is measured
+ * is the work done for each note by <code>playNote</code> and by <code>play(EventBuffer)</code>.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlaybackBenchmark {
+	
+	/* Static Constants */
+	
+	private static final int EVENTS = 256;
+	
+	/* END Static Constants */
+	
+	
+	/* Fields */
+	
+	private Instrument instrument;
+	private Note note;
+	private EventBuffer events;
+	
+	/* END Fields */
+	
+	
+	/* Methods */
+	
+	@Setup
+	public void setUp () {
+		instrument = new Instrument(1, new NullOutput(), new VirtualClock());
+		note = Note.parseNoteString("g3");
+		
+		EventBuffer.Builder b = new EventBuffer.Builder(EVENTS);
+		for (int i = 0; i < EVENTS; i++) {
+			if (i % 8 == 7)
+				b.add(PackedEvent.TYPE_REST, 0, 200);
+			else if (i % 8 == 3)
+				b.add(PackedEvent.TYPE_CHORD, 60, 200);
+			else
+				b.add(PackedEvent.TYPE_NOTE, 55 + i % 12, (i % 3 == 0) ? 400 : 200);
+		}
+		events = b.build();
+	}
+	
+	@Benchmark
+	public void playNote () {
+		instrument.playNote(note, 200);
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(EVENTS)
+	public void playEvents () {
+		instrument.play(events);
+	}
+	
+	/* END Methods */
+	
+}
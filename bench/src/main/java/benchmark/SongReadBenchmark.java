@@ -0,0 +1,150 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package benchmark;
+
+import midi.EventBuffer;
+import midi.MusicEvent;
+import midi.ParseDiagnostics;
+
+import song.ParallelSongParser;
+import song.SongReader;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures reading a whole song file, as <code>Song</code> does: streamed by <code>SongReader</code>,
+ * and parsed on all processors by <code>ParallelSongParser</code>.
+ * The song is either <code>res/song1.txt</code>, or a synthetic song of a number of tokens, which are drawn
+ * at random from the tokens of <code>res/song1.txt</code> together with chords and unparseable tokens.
+ * The file is found relative to the working directory, which is the project directory or <code>bench</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SongReadBenchmark {
+	
+	/* Static Constants */
+	
+	private static final String SONG = "song1";
+	private static final String [] EXTRA_TOKENS = { "c4+e4+g4", "a3+c4+e4-", "C2", "440.0", "h4", "c10" };
+	private static final int TOKENS_PER_LINE = 24;
+	
+	/* END Static Constants */
+	
+	
+	/* Fields */
+	
+	@Param({ SONG, "100000", "1000000" })
+	public String song;
+	
+	private File file;
+	private ParallelSongParser parser;
+	
+	/* END Fields */
+	
+	
+	/* Methods */
+	
+	@Setup(Level.Trial)
+	public void setUp () throws IOException {
+		File source = findSong();
+		file = File.createTempFile("bench", ".txt");
+		file.deleteOnExit();
+		if (song.equals(SONG))
+			Files.copy(source.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		else
+			writeSynthetic(source, Integer.parseInt(song), file);
+		parser = new ParallelSongParser();
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown () {
+		file.delete();
+	}
+	
+	@Benchmark
+	public long readStreaming () throws IOException {
+		SongReader reader = new SongReader(file);
+		try {
+			long total = 0;
+			for (MusicEvent e = reader.read(); e != null; e = reader.read())
+				total += e.getDuration();
+			return total;
+		} finally {
+			reader.close();
+		}
+	}
+	
+	@Benchmark
+	public EventBuffer readParallel () throws IOException {
+		return parser.parse(file, new ParseDiagnostics());
+	}
+	
+	/* END Methods */
+	
+	
+	/* Local Methods */
+	
+	private static File findSong () throws IOException {
+		String [] paths = { "res/song1.txt", "../res/song1.txt" };
+		for (int i = 0; i < paths.length; i++)
+			if (new File(paths[i]).isFile())
+				return new File(paths[i]);
+		throw new IOException("Cannot find res/song1.txt from " + new File("").getAbsolutePath());
+	}
+	
+	private static void writeSynthetic (File source, int count, File file) throws IOException {
+		String [] tokens = new String(Files.readAllBytes(source.toPath()), "UTF-8").trim().split("[,\\s]+");
+		Random random = new Random(311);
+		BufferedWriter out = new BufferedWriter(new FileWriter(file));
+		try {
+			for (int i = 0; i < count; i++) {
+				//one token in fifty is a chord or a token which is reported and ignored
+				if (random.nextInt(50) == 0)
+					out.write(EXTRA_TOKENS[random.nextInt(EXTRA_TOKENS.length)]);
+				else
+					out.write(tokens[random.nextInt(tokens.length)]);
+				out.write((i % TOKENS_PER_LINE == TOKENS_PER_LINE - 1) ? "\n" : ",");
+			}
+		} finally {
+			out.close();
+		}
+	}
+	
+	/* END Local Methods */
+	
+}
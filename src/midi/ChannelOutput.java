@@ -0,0 +1,122 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package midi;
+
+import javax.sound.midi.MidiChannel;
+import javax.sound.midi.MidiUnavailableException;
+
+
+/**
+ * A <code>MidiOutput</code> which plays notes on a channel leased from the shared <code>SynthesizerPool</code>.
+ * The channel is returned to the pool when the output is closed, only once however many times it is closed,
+ * so that closing an output again cannot release a channel which has since been leased to another output.
+ */
+public class ChannelOutput implements MidiOutput {
+	
+	/* Fields */
+	
+	private final SynthesizerPool pool;
+	private final int channelNumber;
+	private final MidiChannel channel;
+	private volatile boolean closed;
+	
+	/* END Fields */
+	
+	
+	/* Constructors */
+	
+	/**
+	 * Constructs a <code>ChannelOutput</code> by leasing a channel of {@link SynthesizerPool#getDefault()}
+	 * and setting it to play a patch.
+	 * @param patch the patch to play
+	 * @throws IllegalArgumentException if patch is outside of the range of available patches
+	 * @throws MidiUnavailableException if MIDI playback is unavailable, or every channel is in use
+	 */
+	public ChannelOutput (int patch) throws IllegalArgumentException, MidiUnavailableException {
+		this.pool = SynthesizerPool.getDefault();
+		this.channelNumber = pool.lease(patch);
+		this.channel = pool.getChannel(channelNumber);
+	}
+	
+	/* END Constructors */
+	
+	
+	/* Accessors */
+	
+	/**
+	 * Returns the pool the channel is leased from.
+	 * @return the <code>SynthesizerPool</code>
+	 */
+	public SynthesizerPool getPool () {
+		return pool;
+	}
+	
+	/**
+	 * Returns the index of the leased channel.
+	 * @return the channel number (0 through 15)
+	 */
+	public int getChannelNumber () {
+		return channelNumber;
+	}
+	
+	/* END Accessors */
+	
+	
+	/* (MidiOutput) Methods */
+	
+	/**
+	 * Starts a note on the channel.
+	 * @throws IllegalStateException if the output has been closed
+	 * @see midi.MidiOutput#noteOn(int, int)
+	 */
+	public void noteOn (int midi, int velocity) throws IllegalStateException {
+		checkOpen();
+		channel.noteOn(midi, velocity);
+	}
+	
+	/**
+	 * Stops a note on the channel.
+	 * @throws IllegalStateException if the output has been closed
+	 * @see midi.MidiOutput#noteOff(int)
+	 */
+	public void noteOff (int midi) throws IllegalStateException {
+		checkOpen();
+		channel.noteOff(midi);
+	}
+	
+	/**
+	 * Stops any notes on the channel and returns it to the pool.
+	 * Closing an output which is already closed has no effect.
+	 * @see midi.MidiOutput#close()
+	 */
+	public void close () {
+		synchronized (this) {
+			if (closed)
+				return;
+			closed = true;
+		}
+		pool.release(channelNumber);
+	}
+	
+	/* END (MidiOutput) Methods */
+	
+	
+	/* Local Methods */
+	
+	private void checkOpen () throws IllegalStateException {
+		if (closed)
+			throw new IllegalStateException("The channel has been returned to the pool.");
+	}
+	
+	/* END Local Methods */
+
+}
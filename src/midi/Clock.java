@@ -0,0 +1,40 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package midi;
+
+
+/**
+ * A source of time for playback, and a way of waiting for it to pass.
+ * <code>Clock.SYSTEM</code> keeps real time, while a <code>VirtualClock</code> moves straight to each time
+ * which is waited for, so that a song can be played through in as long as it takes to send its notes.
+ */
+public interface Clock {
+	
+	/**
+	 * The clock which keeps real time.
+	 */
+	public static final Clock SYSTEM = new SystemClock();
+	
+	/**
+	 * Returns the current time.  Only the difference between two times is meaningful.
+	 * @return the current time (in nanoseconds)
+	 */
+	public long nanoTime ();
+	
+	/**
+	 * Waits until the current time is at least a deadline.
+	 * The wait ends early if the thread is interrupted, and the interrupt status is left set.
+	 * @param deadline the time to wait until, as returned by <code>nanoTime()</code> (in nanoseconds)
+	 */
+	public void waitUntil (long deadline);
+
+}
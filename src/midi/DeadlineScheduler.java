@@ -0,0 +1,173 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package midi;
+
+import timing.TempoMap;
+
+
+/**
+ * Keeps time for playback by waiting until absolute deadlines, measured from the start of a song,
+ * rather than sleeping for each duration in turn.
+ * A wake-up which is late, or a slow <code>noteOn</code>, therefore shortens the following wait instead of
+ * pushing the rest of the song later.  Time is kept by a <code>Clock</code>, normally <code>Clock.SYSTEM</code>,
+ * and how late each deadline was met is recorded in a <code>LatenessHistogram</code>, and in <code>PlaybackMetrics</code>.
+ * Durations are ticks of a <code>TempoMap</code>, which are milliseconds with <code>TempoMap.DEFAULT</code>,
+ * and each deadline is the exact time of the tick reached, so a change of tempo does not change how durations are given.
+ * A <code>DeadlineScheduler</code> is used by one thread at a time.
+ */
+public class DeadlineScheduler {
+	
+	/* Fields */
+	
+	private final LatenessHistogram lateness;
+	private final Clock clock;
+	private final TempoMap tempo;
+	private boolean started;
+	private long origin;
+	private long position;
+	private long deadline;
+	
+	/* END Fields */
+	
+	
+	/* Constructors */
+	
+	/**
+	 * Constructs a <code>DeadlineScheduler</code> with its own <code>LatenessHistogram</code>.
+	 */
+	public DeadlineScheduler () {
+		this(new LatenessHistogram());
+	}
+	
+	/**
+	 * Constructs a <code>DeadlineScheduler</code> which records into a <code>LatenessHistogram</code>.
+	 * @param lateness the histogram to record lateness into
+	 */
+	public DeadlineScheduler (LatenessHistogram lateness) {
+		this(lateness, Clock.SYSTEM);
+	}
+	
+	/**
+	 * Constructs a <code>DeadlineScheduler</code> which keeps time with a <code>Clock</code> and records into a <code>LatenessHistogram</code>.
+	 * @param lateness the histogram to record lateness into
+	 * @param clock the clock to keep time with
+	 */
+	public DeadlineScheduler (LatenessHistogram lateness, Clock clock) {
+		this(lateness, clock, TempoMap.DEFAULT);
+	}
+	
+	/**
+	 * Constructs a <code>DeadlineScheduler</code> which keeps time with a <code>Clock</code>, measures durations in ticks
+	 * of a <code>TempoMap</code>, and records into a <code>LatenessHistogram</code>.
+	 * @param lateness the histogram to record lateness into
+	 * @param clock the clock to keep time with
+	 * @param tempo the tempo map which converts ticks into time
+	 */
+	public DeadlineScheduler (LatenessHistogram lateness, Clock clock, TempoMap tempo) {
+		this.lateness = lateness;
+		this.clock = clock;
+		this.tempo = tempo;
+	}
+	
+	/* END Constructors */
+	
+	
+	/* Accessors */
+	
+	/**
+	 * Returns the histogram that lateness is recorded into.
+	 * @return the <code>LatenessHistogram</code>
+	 */
+	public LatenessHistogram getLateness () {
+		return lateness;
+	}
+	
+	/**
+	 * Returns the clock this scheduler keeps time with.
+	 * @return the <code>Clock</code>
+	 */
+	public Clock getClock () {
+		return clock;
+	}
+	
+	/**
+	 * Returns the tempo map which converts ticks into time.
+	 * @return the <code>TempoMap</code>
+	 */
+	public TempoMap getTempoMap () {
+		return tempo;
+	}
+	
+	/**
+	 * Returns the tick of the latest deadline, from the start.
+	 * @return the sum of the durations advanced by since the start (in ticks, which are milliseconds with <code>TempoMap.DEFAULT</code>)
+	 */
+	public long getPosition () {
+		return position;
+	}
+	
+	/**
+	 * Returns the time of the latest deadline, which is when the events after it are due.
+	 * @return the time by the clock (in nanoseconds), which is the time of the start until the schedule has advanced,
+	 * or now if it has not been started
+	 */
+	public long getDeadline () {
+		return started ? deadline : clock.nanoTime();
+	}
+	
+	/* END Accessors */
+	
+	
+	/* Methods */
+	
+	/**
+	 * Starts (or restarts) the schedule from now.
+	 */
+	public void start () {
+		start(0);
+	}
+	
+	/**
+	 * Starts (or restarts) the schedule from now, as if a number of ticks had already passed.
+	 * This is used to play a song from the middle, so that the tempo map is followed from that tick onward.
+	 * @param tick the tick to start from
+	 */
+	public void start (long tick) {
+		deadline = clock.nanoTime();
+		origin = deadline - tempo.toNanos(tick);
+		position = tick;
+		started = true;
+	}
+	
+	/**
+	 * Moves the schedule on by a duration and waits until the new deadline.
+	 * If the schedule has not been started then it is started first.
+	 * The wait ends early if the thread is interrupted, and the interrupt status is left set.
+	 * @param duration the duration (in ticks)
+	 */
+	public void advance (long duration) {
+		if (!started)
+			start();
+		position += duration;
+		
+		deadline = origin + tempo.toNanos(position);
+		clock.waitUntil(deadline);
+		if (Thread.currentThread().isInterrupted())
+			return;
+		long late = clock.nanoTime() - deadline;
+		lateness.record(late);
+		PlaybackMetrics.getDefault().recordLateness(late);
+	}
+	
+	/* END Methods */
+
+}
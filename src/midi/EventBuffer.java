@@ -0,0 +1,510 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package midi;
+
+import noteGeneration.NoteADT;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+
+/**
+ * A sequence of musical events, each packed by {@link PackedEvent} into a single <code>int</code>.
+ * An event takes four bytes and no objects are created per event, so even the longest songs can be held in memory.
+ * A buffer is built with an <code>EventBuffer.Builder</code>, or wraps events which are already packed, such as
+ * those of a compiled song file.  It is read by index or with a <code>Cursor</code>, and played with
+ * {@link Instrument#play(EventBuffer)}.
+ * The events of an <code>EventBuffer</code> are never modified, so it can be shared between threads.
+ */
+public final class EventBuffer {
+	
+	/* Fields */
+	
+	private final IntBuffer events;
+	
+	private boolean summarised;
+	private long totalDuration;
+	private int lowestNote;
+	private int highestNote;
+	
+	/* END Fields */
+	
+	
+	/* Constructors */
+	
+	private EventBuffer (IntBuffer events) {
+		this.events = events;
+	}
+	
+	private EventBuffer (IntBuffer events, long totalDuration, int lowestNote, int highestNote) {
+		this.events = events;
+		this.summarised = true;
+		this.totalDuration = totalDuration;
+		this.lowestNote = lowestNote;
+		this.highestNote = highestNote;
+	}
+	
+	/* END Constructors */
+	
+	
+	/* Accessors */
+	
+	/**
+	 * Returns the number of events in this buffer.
+	 * @return the number of events
+	 */
+	public int size () {
+		return events.limit();
+	}
+	
+	/**
+	 * Returns an event of this buffer, packed by <code>PackedEvent</code>.
+	 * @param index the index of the event
+	 * @return the packed event
+	 * @throws IndexOutOfBoundsException if index is not less than <code>size()</code>
+	 */
+	public int get (int index) throws IndexOutOfBoundsException {
+		return events.get(index);
+	}
+	
+	/**
+	 * Returns the total duration of the events in this buffer.
+	 * @return the total duration (in milliseconds)
+	 */
+	public long getTotalDuration () {
+		summarise();
+		return totalDuration;
+	}
+	
+	/**
+	 * Returns the lowest MIDI number played in this buffer.
+	 * @return the lowest MIDI number, or -1 if there are no notes
+	 */
+	public int getLowestNote () {
+		summarise();
+		return lowestNote;
+	}
+	
+	/**
+	 * Returns the highest MIDI number played in this buffer.
+	 * @return the highest MIDI number, or -1 if there are no notes
+	 */
+	public int getHighestNote () {
+		summarise();
+		return highestNote;
+	}
+	
+	/* END Accessors */
+	
+	
+	/* Methods */
+	
+	/**
+	 * Returns a <code>Cursor</code> positioned before the first event of this buffer.
+	 * @return a new <code>Cursor</code>
+	 */
+	public Cursor cursor () {
+		return new Cursor();
+	}
+	
+	/**
+	 * Returns the events of this buffer as a read-only <code>IntBuffer</code>, from position 0 to <code>size()</code>.
+	 * @return a read-only view of the packed events
+	 */
+	public IntBuffer asIntBuffer () {
+		return events.asReadOnlyBuffer();
+	}
+	
+	/**
+	 * Transposes every note of this buffer by a number of semitones into a new buffer.
+	 * The range is checked once, from the lowest and highest notes of the buffer, and if every note stays within the
+	 * MIDI range the interval is added to each packed event in a single loop, with no checks or objects per note.
+	 * Otherwise the notes which would leave the range are handled by the policy: clamped to the range, folded back
+	 * into it by octaves, or, with <code>Policy.REJECT</code>, the buffer is returned unchanged.
+	 * No exception is thrown; the status of the result tells which happened.
+	 * @param semitones the number of semitones to move by, which is negative to move down
+	 * @param policy what to do with notes which would leave the MIDI range
+	 * @return the <code>Transposition</code>
+	 */
+	public Transposition transpose (int semitones, Transposition.Policy policy) {
+		summarise();
+		if (semitones == 0 || lowestNote < 0)
+			return new Transposition(this, Transposition.Status.EXACT, 0);
+		
+		boolean inRange = lowestNote + (long)semitones >= NoteADT.LOW_MIDI_ABSOLUTE_NUMBER
+				&& highestNote + (long)semitones <= NoteADT.HIGH_MIDI_ABSOLUTE_NUMBER;
+		if (!inRange && policy == Transposition.Policy.REJECT)
+			return new Transposition(this, Transposition.Status.REJECTED, 0);
+		
+		int n = events.limit();
+		int [] moved = new int[n];
+		IntBuffer source = events.duplicate();
+		source.position(0);
+		source.get(moved);
+		
+		if (inRange) {
+			//the MIDI number cannot overflow into the type, so the interval can be added to the packed event
+			int delta = semitones << PackedEvent.MIDI_SHIFT;
+			for (int i = 0; i < n; i++) {
+				int e = moved[i];
+				moved[i] = e + (((e >>> PackedEvent.TYPE_SHIFT) == PackedEvent.TYPE_REST) ? 0 : delta);
+			}
+			return new Transposition(new EventBuffer(IntBuffer.wrap(moved), totalDuration, lowestNote + semitones, highestNote + semitones),
+					Transposition.Status.EXACT, 0);
+		}
+		
+		int adjusted = 0;
+		for (int i = 0; i < n; i++) {
+			int e = moved[i];
+			if (PackedEvent.getType(e) == PackedEvent.TYPE_REST)
+				continue;
+			
+			long midi = PackedEvent.getMIDI(e) + (long)semitones;
+			if (midi < NoteADT.LOW_MIDI_ABSOLUTE_NUMBER || midi > NoteADT.HIGH_MIDI_ABSOLUTE_NUMBER) {
+				midi = (policy == Transposition.Policy.CLAMP) ? clamp(midi) : fold(midi);
+				adjusted++;
+			}
+			moved[i] = (e & ~(PackedEvent.MIDI_MASK << PackedEvent.MIDI_SHIFT)) | ((int)midi << PackedEvent.MIDI_SHIFT);
+		}
+		return new Transposition(new EventBuffer(IntBuffer.wrap(moved)), Transposition.Status.ADJUSTED, adjusted);
+	}
+	
+	/* END Methods */
+	
+	
+	/* Local Methods */
+	
+	/**
+	 * Finds the total duration and range of a wrapped buffer the first time they are needed.
+	 */
+	private synchronized void summarise () {
+		if (summarised)
+			return;
+		
+		Builder b = new Builder(0);
+		int n = events.limit();
+		for (int i = 0; i < n; i++)
+			b.count(events.get(i));
+		totalDuration = b.totalDuration;
+		lowestNote = b.lowestNote;
+		highestNote = b.highestNote;
+		summarised = true;
+	}
+	
+	/**
+	 * Moves a MIDI number which is out of range to the nearest end of the range.
+	 */
+	private static long clamp (long midi) {
+		return Math.max(NoteADT.LOW_MIDI_ABSOLUTE_NUMBER, Math.min(NoteADT.HIGH_MIDI_ABSOLUTE_NUMBER, midi));
+	}
+	
+	/**
+	 * Moves a MIDI number which is out of range by the fewest octaves which bring it back into range.
+	 */
+	private static long fold (long midi) {
+		if (midi < NoteADT.LOW_MIDI_ABSOLUTE_NUMBER)
+			return midi + 12 * ((NoteADT.LOW_MIDI_ABSOLUTE_NUMBER - midi + 11) / 12);
+		return midi - 12 * ((midi - NoteADT.HIGH_MIDI_ABSOLUTE_NUMBER + 11) / 12);
+	}
+	
+	/* END Local Methods */
+	
+	
+	/* Static Methods */
+	
+	/**
+	 * Constructs an <code>EventBuffer</code> over events which are already packed, without copying them.
+	 * The buffer holds the events from the position to the limit of <code>events</code>, which must not be modified afterwards.
+	 * @param events the packed events
+	 * @return the <code>EventBuffer</code>
+	 */
+	public static EventBuffer wrap (IntBuffer events) {
+		return new EventBuffer(events.slice());
+	}
+	
+	/**
+	 * Constructs an <code>EventBuffer</code> over part of an array of packed events, without copying them.
+	 * The events must not be modified afterwards.
+	 * @param events the packed events
+	 * @param offset the index of the first event
+	 * @param length the number of events
+	 * @return the <code>EventBuffer</code>
+	 * @throws IndexOutOfBoundsException if the range is not within the array
+	 */
+	public static EventBuffer wrap (int [] events, int offset, int length) throws IndexOutOfBoundsException {
+		return new EventBuffer(IntBuffer.wrap(events, offset, length).slice());
+	}
+	
+	/* END Static Methods */
+	
+	
+	/* Inner Classes */
+	
+	/**
+	 * Reads the events of an <code>EventBuffer</code> in order, unpacking the current event.
+	 * A <code>Cursor</code> is used by one thread at a time:
+	 * <pre>
+	 * EventBuffer.Cursor c = buffer.cursor();
+	 * while (c.next())
+	 *     if (c.isNote())
+	 *         ... c.getMIDI() ... c.getDuration() ...
+	 * </pre>
+	 * The notes of a chord are separate events; every note but the last is <code>isChord()</code>.
+	 */
+	public final class Cursor {
+		
+		private int index = -1;
+		private int event;
+		
+		private Cursor () {
+		}
+		
+		/**
+		 * Moves to the next event.
+		 * @return <code>true</code> if there was another event, or <code>false</code> if the cursor is past the last event
+		 */
+		public boolean next () {
+			if (index + 1 >= events.limit()) {
+				index = events.limit();
+				return false;
+			}
+			event = events.get(++index);
+			return true;
+		}
+		
+		/**
+		 * Moves back to before the first event.
+		 */
+		public void reset () {
+			index = -1;
+		}
+		
+		/**
+		 * Returns the index of the current event.
+		 * @return the index, which is -1 before the first call to <code>next()</code>
+		 */
+		public int getIndex () {
+			return index;
+		}
+		
+		/**
+		 * Returns the current event, packed by <code>PackedEvent</code>.
+		 * @return the packed event
+		 */
+		public int getEvent () {
+			return event;
+		}
+		
+		/**
+		 * Returns the type of the current event.
+		 * @return <code>PackedEvent.TYPE_NOTE</code>, <code>PackedEvent.TYPE_REST</code> or <code>PackedEvent.TYPE_CHORD</code>
+		 */
+		public int getType () {
+			return PackedEvent.getType(event);
+		}
+		
+		/**
+		 * Returns <code>true</code> if the current event plays a note, including a note of a chord.
+		 * @return <code>true</code> if the current event is a note, or <code>false</code> if it is a rest
+		 */
+		public boolean isNote () {
+			return PackedEvent.getType(event) != PackedEvent.TYPE_REST;
+		}
+		
+		/**
+		 * Returns <code>true</code> if the current event is a note of a chord which sounds together with the next event.
+		 * Such an event takes no time of its own.
+		 * @return <code>true</code> if the current event is a <code>PackedEvent.TYPE_CHORD</code> event
+		 */
+		public boolean isChord () {
+			return PackedEvent.getType(event) == PackedEvent.TYPE_CHORD;
+		}
+		
+		/**
+		 * Returns the MIDI number of the current event.
+		 * @return the MIDI number (0 for a rest)
+		 */
+		public int getMIDI () {
+			return PackedEvent.getMIDI(event);
+		}
+		
+		/**
+		 * Returns the <code>Pitch</code> of the current event.
+		 * @return the <code>Pitch</code>, or <code>null</code> if the current event is a rest
+		 */
+		public Pitch getPitch () {
+			return isNote() ? Pitch.of(PackedEvent.getMIDI(event)) : null;
+		}
+		
+		/**
+		 * Returns the duration of the current event.
+		 * @return the duration (in milliseconds)
+		 */
+		public int getDuration () {
+			return PackedEvent.getDuration(event);
+		}
+	
+	}
+	
+	/**
+	 * Builds an <code>EventBuffer</code> by appending events to a growable array.
+	 * The total duration and range of the events are kept as they are appended.
+	 * A <code>Builder</code> is used by one thread at a time.
+	 */
+	public static final class Builder {
+		
+		private static final int DEFAULT_CAPACITY = 64;
+		
+		private int [] events;
+		private int size;
+		private long totalDuration;
+		private int lowestNote = -1;
+		private int highestNote = -1;
+		
+		/**
+		 * Constructs an empty <code>Builder</code>.
+		 */
+		public Builder () {
+			this(DEFAULT_CAPACITY);
+		}
+		
+		/**
+		 * Constructs an empty <code>Builder</code> with room for a number of events before it has to grow.
+		 * @param capacity the number of events to make room for
+		 * @throws IllegalArgumentException if capacity is negative
+		 */
+		public Builder (int capacity) throws IllegalArgumentException {
+			if (capacity < 0)
+				throw new IllegalArgumentException("The capacity cannot be negative.");
+			events = new int[capacity];
+		}
+		
+		/**
+		 * Returns the number of events appended so far.
+		 * @return the number of events
+		 */
+		public int size () {
+			return size;
+		}
+		
+		/**
+		 * Appends an event.
+		 * @param type the type of event (<code>PackedEvent.TYPE_NOTE</code>, <code>PackedEvent.TYPE_REST</code> or <code>PackedEvent.TYPE_CHORD</code>)
+		 * @param midi the MIDI number of the note (ignored for a rest)
+		 * @param duration the duration (in milliseconds)
+		 * @return this <code>Builder</code>
+		 * @throws IllegalArgumentException if any of the values are out of range
+		 */
+		public Builder add (int type, int midi, int duration) throws IllegalArgumentException {
+			return addPacked(PackedEvent.pack(type, midi, duration));
+		}
+		
+		/**
+		 * Appends a <code>MusicEvent</code>, as one event for each of its notes if it is a chord.
+		 * @param e the <code>MusicEvent</code> to append
+		 * @return this <code>Builder</code>
+		 * @throws IllegalArgumentException if the duration of the event is out of range
+		 */
+		public Builder add (MusicEvent e) throws IllegalArgumentException {
+			if (e.getType() != MusicEvent.EventType.CHORD)
+				return addPacked(PackedEvent.pack(e));
+			
+			int n = PackedEvent.size(e);
+			if (size + n > events.length)
+				grow(size + n);
+			PackedEvent.pack(e, events, size);
+			for (int i = 0; i < n; i++)
+				count(events[size++]);
+			return this;
+		}
+		
+		/**
+		 * Appends an event which is already packed by <code>PackedEvent</code>.
+		 * @param event the packed event
+		 * @return this <code>Builder</code>
+		 */
+		public Builder addPacked (int event) {
+			if (size == events.length)
+				grow(size + 1);
+			events[size++] = event;
+			count(event);
+			return this;
+		}
+		
+		/**
+		 * Appends every event of an <code>EventBuffer</code>.
+		 * @param buffer the events to append
+		 * @return this <code>Builder</code>
+		 */
+		public Builder addAll (EventBuffer buffer) {
+			int n = buffer.size();
+			if (size + n > events.length)
+				grow(size + n);
+			buffer.events.duplicate().get(events, size, n);
+			size += n;
+			
+			if (buffer.getLowestNote() != -1) {
+				if (lowestNote == -1 || buffer.getLowestNote() < lowestNote)
+					lowestNote = buffer.getLowestNote();
+				if (buffer.getHighestNote() > highestNote)
+					highestNote = buffer.getHighestNote();
+			}
+			totalDuration += buffer.getTotalDuration();
+			return this;
+		}
+		
+		/**
+		 * Removes every event appended so far, keeping the array for reuse.
+		 * @return this <code>Builder</code>
+		 */
+		public Builder clear () {
+			size = 0;
+			totalDuration = 0;
+			lowestNote = -1;
+			highestNote = -1;
+			return this;
+		}
+		
+		/**
+		 * Constructs an <code>EventBuffer</code> of the events appended so far.
+		 * The array is trimmed to the number of events, and the <code>Builder</code> can continue to be used afterwards.
+		 * @return the <code>EventBuffer</code>
+		 */
+		public EventBuffer build () {
+			return new EventBuffer(IntBuffer.wrap(Arrays.copyOf(events, size)), totalDuration, lowestNote, highestNote);
+		}
+		
+		private void grow (int minimum) {
+			if (minimum < 0)
+				throw new OutOfMemoryError("Too many events.");
+			int capacity = Math.max(events.length + (events.length >> 1) + 1, minimum);
+			if (capacity < 0)
+				capacity = Integer.MAX_VALUE - 8;
+			events = Arrays.copyOf(events, capacity);
+		}
+		
+		private void count (int event) {
+			if (PackedEvent.getType(event) != PackedEvent.TYPE_REST) {
+				int midi = PackedEvent.getMIDI(event);
+				if (lowestNote == -1 || midi < lowestNote)
+					lowestNote = midi;
+				if (midi > highestNote)
+					highestNote = midi;
+			}
+			totalDuration += PackedEvent.getAdvance(event);
+		}
+	
+	}
+	
+	/* END Inner Classes */
+
+}
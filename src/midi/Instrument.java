@@ -11,6 +11,10 @@
 
 package midi;
 
+import noteGeneration.NoteADT;
+import timing.TempoMap;
+
+import java.io.Closeable;
 import java.util.*;
 
 import javax.sound.midi.*;
@@ -18,8 +22,16 @@ import javax.sound.midi.*;
 
 /**
  * Represents an instrument which can play notes.
+ * An instrument sends its notes to a <code>MidiOutput</code> and keeps time with a <code>Clock</code>.
+ * By default it plays on its own channel of a synthesizer shared through <code>SynthesizerPool</code>
+ * in real time, so an instrument should be closed when it is no longer needed, to return its channel.
+ * Given a <code>RecordingOutput</code> or <code>NullOutput</code> and a <code>VirtualClock</code> instead,
+ * a whole song can be played without a synthesizer in as long as it takes to send its notes.
+ * Every note played, and how long its note on message took to send, is recorded by <code>PlaybackMetrics</code>.
+ * Each note on, note off and rest can also be recorded by Java Flight Recorder, as a <code>NoteEvent</code> or
+ * <code>RestEvent</code> with the time it was due and the time it happened; these events are disabled by default.
  */
-public class Instrument {
+public class Instrument implements Closeable {
 	
 	/* Static */
 	
@@ -41,9 +53,23 @@ public class Instrument {
 	/* END Static */
 	
 	
+	/* Static Constants */
+	
+	/**
+	 * The intended time of a message which is due as soon as it is sent.
+	 */
+	private static final long NOW = Long.MIN_VALUE;
+	
+	/* END Static Constants */
+	
+	
 	/* Fields */
 	
-	protected final MidiChannel channel;
+	protected final MidiOutput output;
+	private final Clock clock;
+	private final int patch;
+	private final LatenessHistogram lateness = new LatenessHistogram();
+	private volatile boolean closed;
 	
 	/* END Fields */
 	
@@ -52,39 +78,69 @@ public class Instrument {
 	
 	/**
 	 * Constructs an instrument from a patch number.
+	 * The instrument leases a channel of the shared synthesizer from {@link SynthesizerPool#getDefault()},
+	 * which it keeps until it is closed.
 	 * @param patch the patch to use
 	 * @throws IllegalArgumentException if patch is outside of the range of available patches
-	 * @throws MidiUnavailableException if MIDI playback is unavailable
+	 * @throws MidiUnavailableException if MIDI playback is unavailable, or every channel is in use
 	 */
 	public Instrument (int patch) throws IllegalArgumentException, MidiUnavailableException {
-		Synthesizer synthesizer = null;
-    	synthesizer = MidiSystem.getSynthesizer();
-	    synthesizer.open();
-	    javax.sound.midi.Instrument [] instruments = synthesizer.getDefaultSoundbank().getInstruments();
-	    
-	    if (instruments == null)
-	    	throw new MidiUnavailableException("MIDI unavailable. There is no default soundbank.");
-		if (patch < 0 || patch > instruments.length)
-			throw new IllegalArgumentException("The patch index must be between 0 and " + instruments.length + " inclusive.");
-		
-		synthesizer.loadInstrument(instruments[patch]);
-		MidiChannel [] channels = synthesizer.getChannels();
-	    int i;
-		for (i = 0; i < channels.length; i++)
-	    	if (channels[i] != null)
-	    		break;
-	    
-	    if (i < channels.length)
-	    	channel = channels[i];
-	    else
-	    	throw new MidiUnavailableException();
-			
-	    channel.programChange(patch);
+		this(patch, new ChannelOutput(patch), Clock.SYSTEM);
+	}
+	
+	/**
+	 * Constructs an instrument which sends its notes to a <code>MidiOutput</code> and keeps time with a <code>Clock</code>.
+	 * The instrument closes the output when it is closed.
+	 * @param patch the patch the output plays, as returned by <code>getPatch()</code>
+	 * @param output the output to send notes to
+	 * @param clock the clock to keep time with
+	 */
+	public Instrument (int patch, MidiOutput output, Clock clock) {
+		this.output = output;
+		this.clock = clock;
+		this.patch = patch;
 	}
 	
 	/* END Constructors */
 	
 	
+	/* Accessors */
+	
+	/**
+	 * Returns the patch this instrument plays.
+	 * @return the patch number
+	 */
+	public int getPatch () {
+		return patch;
+	}
+	
+	/**
+	 * Returns the output this instrument sends its notes to.
+	 * @return the <code>MidiOutput</code>
+	 */
+	public MidiOutput getOutput () {
+		return output;
+	}
+	
+	/**
+	 * Returns the clock this instrument keeps time with.
+	 * @return the <code>Clock</code>
+	 */
+	public Clock getClock () {
+		return clock;
+	}
+	
+	/**
+	 * Returns how late the events played by <code>play(EventBuffer)</code> have been.
+	 * @return the <code>LatenessHistogram</code> for every event played so far
+	 */
+	public LatenessHistogram getLateness () {
+		return lateness;
+	}
+	
+	/* END Accessors */
+	
+	
 	/* Methods */
 	
 	/**
@@ -105,12 +161,165 @@ public class Instrument {
 	 * @param velocity the velocity (volume) to play the <code>Note</code>
 	 */
 	public void playNote (Note n, int duration, int velocity) {
-		channel.noteOn(n.getMIDIAbsoluteNumber(), velocity);
-		try {
-			Thread.sleep(duration);
-		} catch (InterruptedException e) {
+		playNote(n.getMIDIAbsoluteNumber(), duration, velocity);
+	}
+	
+	/**
+	 * Make the instrument play a note by its MIDI number for the specified duration, and at a specific velocity (volume).
+	 * @param midi the MIDI number of the note to play (0 through 127)
+	 * @param duration the duration to play the note (in milliseconds)
+	 * @param velocity the velocity (volume) to play the note
+	 * @throws IllegalStateException if the instrument has been closed
+	 */
+	public void playNote (int midi, int duration, int velocity) throws IllegalStateException {
+		long start = clock.nanoTime();
+		noteOn(midi, velocity, start);
+		restUntil(start + duration * 1000000L);
+		noteOff(midi, start + duration * 1000000L);
+	}
+	
+	/**
+	 * Make the instrument play a chord: several notes which start together, sound for the specified duration,
+	 * and stop together.
+	 * @param midi the MIDI numbers of the notes to play (0 through 127)
+	 * @param duration the duration to play the notes (in milliseconds)
+	 * @param velocity the velocity (volume) to play the notes
+	 * @throws IllegalStateException if the instrument has been closed
+	 */
+	public void playChord (int [] midi, int duration, int velocity) throws IllegalStateException {
+		startNotes(midi, 0, midi.length, velocity);
+		rest(duration);
+		stopNotes(midi, 0, midi.length);
+	}
+	
+	/**
+	 * Make the instrument start playing several notes at once, without waiting.
+	 * The note on messages are sent one after another, and the notes sound until they are stopped
+	 * with {@link #stopNotes(int[], int, int)}.
+	 * @param midi the MIDI numbers of the notes (0 through 127)
+	 * @param offset the index of the first note to start
+	 * @param length the number of notes to start
+	 * @param velocity the velocity (volume) to play the notes
+	 * @throws IllegalStateException if the instrument has been closed
+	 */
+	public void startNotes (int [] midi, int offset, int length, int velocity) throws IllegalStateException {
+		for (int i = offset; i < offset + length; i++)
+			noteOn(midi[i], velocity, NOW);
+	}
+	
+	/**
+	 * Make the instrument stop playing several notes at once.
+	 * @param midi the MIDI numbers of the notes (0 through 127)
+	 * @param offset the index of the first note to stop
+	 * @param length the number of notes to stop
+	 * @throws IllegalStateException if the instrument has been closed
+	 */
+	public void stopNotes (int [] midi, int offset, int length) throws IllegalStateException {
+		stopNotes(midi, offset, length, NOW);
+	}
+	
+	/**
+	 * Make the instrument play every event of an <code>EventBuffer</code> in order, at the default (full) velocity (volume).
+	 * Each event is timed from the start of the buffer by a new <code>DeadlineScheduler</code>, so that timing errors
+	 * do not add up, and its lateness is recorded in {@link #getLateness()}.
+	 * @param events the events to play
+	 * @throws IllegalStateException if the instrument has been closed
+	 */
+	public void play (EventBuffer events) throws IllegalStateException {
+		play(events, new DeadlineScheduler(lateness, clock));
+	}
+	
+	/**
+	 * Make the instrument play every event of an <code>EventBuffer</code> in order, at the default (full) velocity (volume),
+	 * where the durations of the events are ticks of a <code>TempoMap</code>.
+	 * The same events can be played at another tempo by playing them with another map.
+	 * @param events the events to play
+	 * @param tempo the tempo map which converts ticks into time
+	 * @throws IllegalStateException if the instrument has been closed
+	 */
+	public void play (EventBuffer events, TempoMap tempo) throws IllegalStateException {
+		play(events, new DeadlineScheduler(lateness, clock, tempo));
+	}
+	
+	/**
+	 * Make the instrument play a song from a point found by a <code>SeekIndex</code>, at the default (full) velocity (volume).
+	 * The notes sounding at that point are played for the rest of their duration, followed by the events after it,
+	 * timed by the tempo map of the index from the tick of the point onward.
+	 * @param from the point to play from
+	 * @throws IllegalStateException if the instrument has been closed
+	 */
+	public void play (SeekIndex.Position from) throws IllegalStateException {
+		checkOpen();
+		DeadlineScheduler scheduler = new DeadlineScheduler(lateness, clock, from.getTempoMap());
+		scheduler.start(from.getTick());
+		play(from.getHead(), scheduler);
+		play(from.getTail(), scheduler);
+	}
+	
+	/**
+	 * Make the instrument play every event of an <code>EventBuffer</code> in order, at the default (full) velocity (volume),
+	 * continuing the schedule of a <code>DeadlineScheduler</code>.
+	 * This allows a song to be played in several parts without the parts drifting apart.
+	 * The events are unpacked as they are played, so nothing is created per event.
+	 * Playback stops if the thread is interrupted.
+	 * @param events the events to play
+	 * @param scheduler the <code>DeadlineScheduler</code> which keeps time
+	 * @throws IllegalStateException if the instrument has been closed
+	 */
+	public void play (EventBuffer events, DeadlineScheduler scheduler) throws IllegalStateException {
+		checkOpen();
+		
+		//the notes sounding: those of a chord so far, then the event which completes it
+		int [] sounding = new int[NoteADT.HIGH_MIDI_ABSOLUTE_NUMBER + 1];
+		int count = 0;
+		
+		int n = events.size();
+		for (int i = 0; i < n && !Thread.currentThread().isInterrupted(); i++) {
+			int e = events.get(i);
+			int type = PackedEvent.getType(e);
+			if (type != PackedEvent.TYPE_REST && count < sounding.length) {
+				sounding[count] = PackedEvent.getMIDI(e);
+				noteOn(sounding[count++], 127, scheduler.getDeadline());
+			}
+			if (type != PackedEvent.TYPE_CHORD) {
+				scheduler.advance(PackedEvent.getDuration(e));
+				stopNotes(sounding, 0, count, scheduler.getDeadline());
+				count = 0;
+			}
 		}
-		channel.noteOff(n.getMIDIAbsoluteNumber());
+		stopNotes(sounding, 0, count, NOW);
+	}
+	
+	/**
+	 * Make the instrument play every event of an <code>EventBuffer</code> on the system <code>Sequencer</code>.
+	 * The events are converted into a <code>Sequence</code> by <code>SongSequence</code>, and this method returns
+	 * as soon as playback has started; the returned <code>SequencedPlayback</code> can be used to wait for it to finish.
+	 * Only an instrument which plays on a <code>ChannelOutput</code> can use the sequencer, which keeps real time.
+	 * @param events the events to play
+	 * @return the <code>SequencedPlayback</code>
+	 * @throws MidiUnavailableException if there is no sequencer, it cannot be opened, or the instrument does not play on a synthesizer channel
+	 * @throws IllegalStateException if the instrument has been closed
+	 */
+	public SequencedPlayback playSequenced (EventBuffer events) throws MidiUnavailableException, IllegalStateException {
+		return playSequenced(events, TempoMap.DEFAULT);
+	}
+	
+	/**
+	 * Make the instrument play every event of an <code>EventBuffer</code>, whose durations are ticks of a <code>TempoMap</code>,
+	 * on the system <code>Sequencer</code>, as by <code>playSequenced(EventBuffer)</code>.
+	 * @param events the events to play
+	 * @param tempo the tempo map of the events
+	 * @return the <code>SequencedPlayback</code>
+	 * @throws MidiUnavailableException if there is no sequencer, it cannot be opened, or the instrument does not play on a synthesizer channel
+	 * @throws IllegalStateException if the instrument has been closed
+	 */
+	public SequencedPlayback playSequenced (EventBuffer events, TempoMap tempo) throws MidiUnavailableException, IllegalStateException {
+		checkOpen();
+		if (!(output instanceof ChannelOutput))
+			throw new MidiUnavailableException("Sequenced playback needs an instrument which plays on a synthesizer channel.");
+		
+		ChannelOutput channel = (ChannelOutput)output;
+		return SequencedPlayback.start(SongSequence.toSequence(events, channel.getChannelNumber(), patch, tempo), channel.getPool().getSynthesizer().getReceiver());
 	}
 	
 	/**
@@ -118,14 +327,98 @@ public class Instrument {
 	 * @param duration the duration to rest (in milliseconds)
 	 */
 	public void rest (int duration) {
-		try {
-			Thread.sleep(duration);
-		} catch (InterruptedException e) {}
+		restUntil(clock.nanoTime() + duration * 1000000L);
+	}
+	
+	/**
+	 * Stops any notes this instrument is playing and closes its output, which returns the channel of a
+	 * <code>ChannelOutput</code> to the <code>SynthesizerPool</code>.
+	 * The instrument cannot be played once it has been closed, and closing it again has no effect.
+	 */
+	public void close () {
+		synchronized (this) {
+			if (closed)
+				return;
+			closed = true;
+		}
+		output.close();
 	}
 	
 	/* END Methods */
 	
 	
+	/* Local Methods */
+	
+	/**
+	 * Starts a note on the output, recording how long the output took, and when the note was due if Java Flight Recorder is recording notes.
+	 */
+	private void noteOn (int midi, int velocity, long intended) throws IllegalStateException {
+		checkOpen();
+		long start = System.nanoTime();
+		output.noteOn(midi, velocity);
+		PlaybackMetrics.getDefault().recordNoteOn(System.nanoTime() - start);
+		
+		NoteEvent event = new NoteEvent();
+		if (event.isEnabled())
+			commit(event, NoteEvent.ON, midi, intended);
+	}
+	
+	/**
+	 * Stops a note on the output.
+	 */
+	private void noteOff (int midi, long intended) throws IllegalStateException {
+		checkOpen();
+		output.noteOff(midi);
+		PlaybackMetrics.getDefault().recordNoteOff();
+		
+		NoteEvent event = new NoteEvent();
+		if (event.isEnabled())
+			commit(event, NoteEvent.OFF, midi, intended);
+	}
+	
+	private void stopNotes (int [] midi, int offset, int length, long intended) {
+		for (int i = offset; i < offset + length; i++)
+			noteOff(midi[i], intended);
+	}
+	
+	/**
+	 * Waits until a time by the clock, which is recorded as a rest if Java Flight Recorder is recording rests.
+	 */
+	private void restUntil (long deadline) {
+		RestEvent event = new RestEvent();
+		event.begin();
+		clock.waitUntil(deadline);
+		if (event.shouldCommit()) {
+			event.channel = getChannelNumber();
+			event.intended = deadline;
+			event.actual = clock.nanoTime();
+			event.lateness = event.actual - deadline;
+			event.commit();
+		}
+	}
+	
+	private void commit (NoteEvent event, String action, int midi, long intended) {
+		event.action = action;
+		event.midi = midi;
+		event.channel = getChannelNumber();
+		event.actual = clock.nanoTime();
+		event.intended = (intended == NOW) ? event.actual : intended;
+		event.lateness = event.actual - event.intended;
+		event.commit();
+	}
+	
+	private void checkOpen () throws IllegalStateException {
+		if (closed)
+			throw new IllegalStateException("The instrument has been closed.");
+	}
+	
+	private int getChannelNumber () {
+		return (output instanceof ChannelOutput) ? ((ChannelOutput)output).getChannelNumber() : -1;
+	}
+	
+	/* END Local Methods */
+	
+	
 	/* Static Methods */
 	
 	/**
@@ -150,18 +443,26 @@ public class Instrument {
 	 * @throws MidiUnavailableException if MIDI playback is unavailable
 	 */
 	public static Instrument parseInstrumentString (String str) throws IllegalArgumentException, MidiUnavailableException {
-		Instrument instr;
+		return new Instrument(parsePatch(str));
+	}
+	
+	/**
+	 * Parses a <code>String</code> into a patch number, in the same way as <code>parseInstrumentString(String)</code>,
+	 * but without opening the synthesizer.
+	 * @param str a patch number or the name of an instrument
+	 * @return the patch number
+	 * @throws IllegalArgumentException if str is neither a number nor a named instrument
+	 */
+	public static int parsePatch (String str) throws IllegalArgumentException {
 		try {
-			//Construct an instrument using the (int) constructor
-			instr = new Instrument(Integer.parseInt(str));
+			return Integer.parseInt(str);
 		} catch (NumberFormatException e) {
 			str = str.toLowerCase();
 			if (namedInstruments.containsKey(str))
-				instr = new Instrument(namedInstruments.get(str));
+				return namedInstruments.get(str);
 			else
 				throw new IllegalArgumentException("Cannot find instrument " + str);
 		}
-		return instr;
 	}
 	
 	/**
@@ -0,0 +1,49 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package midi;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+
+/**
+ * A Java Flight Recorder event for loading a patch from the soundbank, which happens when an
+ * <code>Instrument</code> is constructed with a patch no other instrument has used, and lasts as long as loading took.
+ * The event is disabled by default, like <code>NoteEvent</code>.
+ */
+@Name("midi.InstrumentLoad")
+@Label("Instrument Load")
+@Category({ "MIDI", "Synthesizer" })
+@Description("A patch was loaded from the soundbank")
+@Enabled(false)
+@StackTrace(false)
+final class InstrumentLoadEvent extends Event {
+	
+	/* Fields */
+	
+	@Label("Patch")
+	int patch;
+	
+	@Label("Instrument")
+	String instrument;
+	
+	@Label("Channel")
+	int channel;
+	
+	/* END Fields */
+
+}
@@ -0,0 +1,165 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package midi;
+
+import java.util.Arrays;
+
+
+/**
+ * Counts how late events were played, so that percentiles of the lateness can be found after playback.
+ * Values are kept in microseconds in buckets which are exact below <code>64</code> microseconds,
+ * and above that are no wider than 1/32 of their value, so that a percentile is within about 3% of the
+ * true value.  The maximum is kept exactly.  Memory use is fixed however many values are recorded.
+ */
+public class LatenessHistogram {
+	
+	/* Static Constants */
+	
+	/**
+	 * The number of buckets for each power of two, which sets the precision.
+	 */
+	private static final int SUB_BUCKETS = 32;
+	private static final int SUB_BUCKET_BITS = 5;
+	
+	/**
+	 * Values below this are counted exactly.
+	 */
+	private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+	
+	private static final int BUCKETS = LINEAR_LIMIT + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+	
+	/* END Static Constants */
+	
+	
+	/* Fields */
+	
+	private final long [] counts = new long[BUCKETS];
+	private long count;
+	private long total;
+	private long max;
+	
+	/* END Fields */
+	
+	
+	/* Accessors */
+	
+	/**
+	 * Returns the number of values recorded.
+	 * @return the number of values
+	 */
+	public synchronized long getCount () {
+		return count;
+	}
+	
+	/**
+	 * Returns the greatest value recorded.
+	 * @return the maximum (in microseconds), or 0 if no values have been recorded
+	 */
+	public synchronized long getMax () {
+		return max;
+	}
+	
+	/**
+	 * Returns the mean of the values recorded.
+	 * @return the mean (in microseconds), or 0 if no values have been recorded
+	 */
+	public synchronized double getMean () {
+		return (count == 0) ? 0 : (double)total / count;
+	}
+	
+	/**
+	 * Returns a percentile of the values recorded: the value which the given percentage of values are no greater than.
+	 * @param percentile the percentile (0 through 100)
+	 * @return the percentile (in microseconds), or 0 if no values have been recorded
+	 * @throws IllegalArgumentException if percentile is out of range
+	 */
+	public synchronized long getPercentile (double percentile) throws IllegalArgumentException {
+		if (!(percentile >= 0 && percentile <= 100))
+			throw new IllegalArgumentException("The percentile must be between 0 and 100 inclusive.");
+		if (count == 0)
+			return 0;
+		
+		long rank = Math.max(1, (long)Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank)
+				return Math.min(highestValue(i), max);
+		}
+		return max;
+	}
+	
+	/* END Accessors */
+	
+	
+	/* Methods */
+	
+	/**
+	 * Records a value.
+	 * @param nanos the lateness (in nanoseconds); a negative value is counted as 0
+	 */
+	public synchronized void record (long nanos) {
+		long micros = Math.max(0, nanos / 1000);
+		counts[bucket(micros)]++;
+		count++;
+		total += micros;
+		if (micros > max)
+			max = micros;
+	}
+	
+	/**
+	 * Forgets every value recorded.
+	 */
+	public synchronized void reset () {
+		Arrays.fill(counts, 0);
+		count = 0;
+		total = 0;
+		max = 0;
+	}
+	
+	/* END Methods */
+	
+	
+	/* (Object) Methods */
+	
+	@Override
+	/**
+	 * Returns a summary of the values recorded, such as <code>"1200 events, p50 85us, p99 1430us, max 2210us"</code>.
+	 * @see java.lang.Object#toString()
+	 */
+	public synchronized String toString () {
+		return count + " events, p50 " + getPercentile(50) + "us, p99 " + getPercentile(99) + "us, max " + max + "us";
+	}
+	
+	/* END (Object) Methods */
+	
+	
+	/* Local Methods */
+	
+	private static int bucket (long value) {
+		if (value < LINEAR_LIMIT)
+			return (int)value;
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + (int)(value >>> shift) - SUB_BUCKETS;
+	}
+	
+	private static long highestValue (int bucket) {
+		if (bucket < LINEAR_LIMIT)
+			return bucket;
+		int shift = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+		long sub = (bucket - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+		return ((sub + 1) << shift) - 1;
+	}
+	
+	/* END Local Methods */
+
+}
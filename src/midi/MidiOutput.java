@@ -0,0 +1,44 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package midi;
+
+import java.io.Closeable;
+
+
+/**
+ * Somewhere an <code>Instrument</code> sends its notes.
+ * A <code>ChannelOutput</code> plays them on a channel of the shared synthesizer, a <code>RecordingOutput</code>
+ * keeps them in memory with the time they were sent, and a <code>NullOutput</code> discards them,
+ * so that music can be played where there is no synthesizer.
+ */
+public interface MidiOutput extends Closeable {
+	
+	/**
+	 * Starts a note.
+	 * @param midi the MIDI number of the note (0 through 127)
+	 * @param velocity the velocity (volume) to play the note
+	 */
+	public void noteOn (int midi, int velocity);
+	
+	/**
+	 * Stops a note.
+	 * @param midi the MIDI number of the note (0 through 127)
+	 */
+	public void noteOff (int midi);
+	
+	/**
+	 * Stops any notes which are sounding and releases what the output uses.
+	 * The output cannot be used once it has been closed.
+	 */
+	public void close ();
+
+}
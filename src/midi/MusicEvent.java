@@ -11,18 +11,32 @@
 
 package midi;
 
+import timing.TempoMap;
+
 
 /**
- * Represents a musical event which is either a note or a rest.
- * The event has a specified duration that the event should last
+ * Represents a musical event which is either a note, a chord of notes which sound together, or a rest.
+ * The event has a specified duration that the event should last, in ticks of a <code>TempoMap</code>.
+ * An event parsed from a note string is a quarter note or an eighth note at <code>TempoMap.DEFAULT_RESOLUTION</code>,
+ * which lasts 400 or 200 milliseconds with <code>TempoMap.DEFAULT</code>.
  */
 public class MusicEvent {
 	
+	/* Static Constants */
+	
+	private static final int SHORT_DURATION = TempoMap.DEFAULT_RESOLUTION / 2;
+	private static final int LONG_DURATION = TempoMap.DEFAULT_RESOLUTION;
+	private static final char CHORD_SEPARATOR = '+';
+	
+	/* END Static Constants */
+	
+	
 	/* Fields */
 	
 	private final EventType type;
 	private final int duration;
-	private final Note n;
+	private final Pitch p;
+	private final Pitch [] chord;
 	
 	/* END Fields */
 	
@@ -37,45 +51,131 @@ public class MusicEvent {
 	 * @throws IllegalArgumentException if the constructor is passed a <code>EventType</code> of <code>NOTE</code> and the <code>Note</code> is unspecified (<code>null</code>).
 	 */
 	public MusicEvent (EventType type, int duration, Note n) throws IllegalArgumentException {
-		if (type == EventType.NOTE && n == null)
+		this(type, duration, (n == null) ? null : n.toPitch());
+	}
+	
+	/**
+	 * Constructs a <code>Event</code> of a specific type with a <code>Pitch</code> and duration.
+	 * @param type the type of <code>Event</code>
+	 * @param duration the duration
+	 * @param p the <code>Pitch</code>
+	 * @throws IllegalArgumentException if the constructor is passed a <code>EventType</code> of <code>NOTE</code> and the <code>Pitch</code> is unspecified (<code>null</code>).
+	 */
+	public MusicEvent (EventType type, int duration, Pitch p) throws IllegalArgumentException {
+		if (type == EventType.NOTE && p == null)
 			throw new IllegalArgumentException("You must specify a note with this EventType");
+		if (type == EventType.CHORD)
+			throw new IllegalArgumentException("You must specify the notes of a chord");
 		
 		this.type = type;
 		this.duration = duration;
-		this.n = n;
+		this.p = p;
+		this.chord = null;
+	}
+	
+	/**
+	 * Constructs a <code>Event</code> which plays several notes together for a duration.
+	 * If only one <code>Pitch</code> is given then the event is a <code>NOTE</code>, and otherwise it is a <code>CHORD</code>.
+	 * @param duration the duration
+	 * @param pitches the notes to play, in order
+	 * @throws IllegalArgumentException if there are no notes, or any of them is <code>null</code>
+	 */
+	public MusicEvent (int duration, Pitch [] pitches) throws IllegalArgumentException {
+		if (pitches == null || pitches.length == 0)
+			throw new IllegalArgumentException("You must specify at least one note");
+		for (int i = 0; i < pitches.length; i++)
+			if (pitches[i] == null)
+				throw new IllegalArgumentException("The notes of a chord cannot be null");
+		
+		this.type = (pitches.length == 1) ? EventType.NOTE : EventType.CHORD;
+		this.duration = duration;
+		this.p = pitches[0];
+		this.chord = (pitches.length == 1) ? null : pitches.clone();
 	}
 	
 	/**
 	 * Constructs a <code>Event</code> from a <code>String</code>.
 	 * The <code>String</code> is of the format:
-	 * <pre>{noteString | "r"}["-"]</pre>
+	 * <pre>{noteString {"+" noteString} | "r"}["-"]</pre>
 	 * Where <code>noteString</code> is a valid string for the <code>parseNoteString(String str)</code> of <code>Note</code>.
+	 * Several note strings joined by <code>"+"</code>, such as <code>c4+e4+g4</code>, are a chord; a chord must begin
+	 * with a note name, so that a number such as <code>4.4e+2</code> is still read as a single frequency.
 	 * @see Note#parseNoteString(String)
 	 * @param note the <code>String</code> to parse
 	 * @throws IllegalArgumentException if the <code>String</code> is of the wrong format
 	 */
 	public MusicEvent (String note) throws IllegalArgumentException {
-		String newnote;
-		if (note.charAt(note.length() - 1) == '-') {
-			duration = 400;
-			newnote = note.substring(0, note.length() - 1);
+		int end = note.length();
+		if (end > 0 && note.charAt(end - 1) == '-') {
+			duration = LONG_DURATION;
+			end--;
 		} else {
-			duration = 200;
-			newnote = note;
+			duration = SHORT_DURATION;
 		}
 		
-		if (newnote.toLowerCase().equals("r")) {
+		if (isRest(note, 0, end)) {
 			this.type = EventType.REST;
-			this.n = null;
+			this.p = null;
+			this.chord = null;
+		} else if (isChord(note, 0, end)) {
+			int [] midi = parseChord(note, 0, end);
+			if (midi[0] < 0)
+				throw new IllegalArgumentException(NoteScanner.describe(midi[0]));
+			this.type = EventType.CHORD;
+			this.chord = toPitches(midi);
+			this.p = chord[0];
 		} else {
+			int midi = NoteScanner.parseNoteString(note, 0, end);
+			if (midi < 0)
+				throw new IllegalArgumentException(NoteScanner.describe(midi));
 			this.type = EventType.NOTE;
-			this.n = Note.parseNoteString(newnote);
+			this.p = Pitch.of(midi);
+			this.chord = null;
 		}
 	}
 	
 	/* END Constructors */
 	
 	
+	/* Accessors */
+	
+	/**
+	 * Returns the type of this event.
+	 * @return the <code>EventType</code>
+	 */
+	public EventType getType () {
+		return type;
+	}
+	
+	/**
+	 * Returns the duration of this event.
+	 * @return the duration (in ticks, which are milliseconds with <code>TempoMap.DEFAULT</code>)
+	 */
+	public int getDuration () {
+		return duration;
+	}
+	
+	/**
+	 * Returns the <code>Pitch</code> this event plays.
+	 * @return the <code>Pitch</code>, the first <code>Pitch</code> of a chord, or <code>null</code> if this event is a rest
+	 */
+	public Pitch getPitch () {
+		return p;
+	}
+	
+	/**
+	 * Returns every <code>Pitch</code> this event plays.
+	 * @return the notes of a chord in order, a single note, or no notes if this event is a rest
+	 */
+	public Pitch [] getPitches () {
+		if (chord != null)
+			return chord.clone();
+		return (p == null) ? new Pitch[0] : new Pitch [] { p };
+	}
+	
+	/* END Accessors */
+	
+	
 	/* Methods */
 	
 	/**
@@ -83,15 +183,125 @@ public class MusicEvent {
 	 * @param i the <code>Instrument</code> to play
 	 */
 	public void play (Instrument i) {
-		if (type == EventType.NOTE)
-			i.playNote(n, duration);
-		else if (type == EventType.REST)
+		if (type == EventType.NOTE) {
+			i.playNote(p.getMIDIAbsoluteNumber(), duration, 127);
+		} else if (type == EventType.CHORD) {
+			int [] midi = new int[chord.length];
+			for (int j = 0; j < chord.length; j++)
+				midi[j] = chord[j].getMIDIAbsoluteNumber();
+			i.playChord(midi, duration, 127);
+		} else if (type == EventType.REST) {
 			i.rest(duration);
+		}
 	}
 	
 	/* END Methods */
 	
 	
+	/* Static Methods */
+	
+	/**
+	 * Parses a <code>MusicEvent</code> from a range of characters in the format accepted by {@link #MusicEvent(String)}.
+	 * Rather than throwing an exception, a token which cannot be parsed is reported to a <code>ParseDiagnostics</code>.
+	 * Every token is counted by <code>ParseMetrics</code>, as parsed or rejected.
+	 * @param str the characters to parse
+	 * @param start the index of the first character of the token
+	 * @param end the index after the last character of the token
+	 * @param diagnostics the <code>ParseDiagnostics</code> to report to, or <code>null</code>
+	 * @param line the line the token was found on, for reporting
+	 * @param column the column the token was found at, for reporting
+	 * @return the <code>MusicEvent</code>, or <code>null</code> if the token could not be parsed
+	 */
+	public static MusicEvent parseEvent (CharSequence str, int start, int end, ParseDiagnostics diagnostics, int line, int column) {
+		int tokenEnd = end;
+		int duration = SHORT_DURATION;
+		if (end > start && str.charAt(end - 1) == '-') {
+			duration = LONG_DURATION;
+			end--;
+		}
+		
+		ParseMetrics metrics = ParseMetrics.getDefault();
+		if (isRest(str, start, end)) {
+			metrics.recordToken();
+			return new MusicEvent(EventType.REST, duration, (Pitch)null);
+		}
+		
+		if (isChord(str, start, end)) {
+			int [] midi = parseChord(str, start, end);
+			if (midi[0] < 0) {
+				metrics.recordRejected();
+				if (diagnostics != null)
+					diagnostics.report(line, column, str.subSequence(start, tokenEnd).toString(), NoteScanner.describe(midi[0]));
+				return null;
+			}
+			metrics.recordToken();
+			return new MusicEvent(duration, toPitches(midi));
+		}
+		
+		int midi = NoteScanner.parseNoteString(str, start, end);
+		if (midi < 0) {
+			metrics.recordRejected();
+			if (diagnostics != null)
+				diagnostics.report(line, column, str.subSequence(start, tokenEnd).toString(), NoteScanner.describe(midi));
+			return null;
+		}
+		metrics.recordToken();
+		return new MusicEvent(EventType.NOTE, duration, Pitch.of(midi));
+	}
+	
+	private static boolean isRest (CharSequence str, int start, int end) {
+		return end - start == 1 && (str.charAt(start) == 'r' || str.charAt(start) == 'R');
+	}
+	
+	/**
+	 * Determines whether a token is a chord: it begins with a letter and has a <code>CHORD_SEPARATOR</code>
+	 * between two other characters.
+	 */
+	private static boolean isChord (CharSequence str, int start, int end) {
+		if (end - start < 3 || !Character.isLetter(str.charAt(start)))
+			return false;
+		for (int i = start + 1; i < end - 1; i++)
+			if (str.charAt(i) == CHORD_SEPARATOR)
+				return true;
+		return false;
+	}
+	
+	/**
+	 * Parses the note strings of a chord.
+	 * A <code>CHORD_SEPARATOR</code> at the start of a note string is part of it, as the sign of a number.
+	 * @return the MIDI number of each note, or a single <code>NoteScanner</code> status code if a note cannot be parsed
+	 */
+	private static int [] parseChord (CharSequence str, int start, int end) {
+		int count = 1;
+		for (int i = start + 1, part = start; i < end; i++)
+			if (str.charAt(i) == CHORD_SEPARATOR && i > part) {
+				count++;
+				part = i + 1;
+			}
+		
+		int [] midi = new int[count];
+		int part = start, n = 0;
+		for (int i = start + 1; i <= end; i++)
+			if (i == end || (str.charAt(i) == CHORD_SEPARATOR && i > part)) {
+				int m = NoteScanner.parseNoteString(str, part, i);
+				if (m < 0)
+					return new int [] { m };
+				midi[n++] = m;
+				part = i + 1;
+			}
+		return midi;
+	}
+	
+	private static Pitch [] toPitches (int [] midi) {
+		Pitch [] pitches = new Pitch[midi.length];
+		for (int i = 0; i < midi.length; i++)
+			pitches[i] = Pitch.of(midi[i]);
+		return pitches;
+	}
+	
+	/* END Static Methods */
+	
+	
 	/* Enumerators */
 	
 	/**
@@ -106,7 +316,12 @@ public class MusicEvent {
 		/**
 		 * Represents a rest.
 		 */
-		REST
+		REST,
+		
+		/**
+		 * Represents several musical notes which sound together.
+		 */
+		CHORD
 	}
 	
 	/* END Enumerators */
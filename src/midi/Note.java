@@ -13,7 +13,7 @@ package midi;
 
 import noteGeneration.*;
 
-import java.util.HashMap;
+import java.util.Arrays;
 
 
 /**
@@ -35,17 +35,20 @@ public class Note extends NoteADT {
 		
 		/* Static Constants */
 		
-		private static final int DEFAULT_OCTAVE = 4;
 		private static final double ROUNDING_FACTOR;
 		
+		/**
+		 * Converts a natural logarithm of a frequency ratio into semitones.
+		 */
+		private static final double SEMITONES_PER_LOG = 12 / Math.log(2);
+		
 		/* END Static Constants */
 		
 		
 		/* Static Fields */
 		
-		private static HashMap<Integer, Double> midiTable;
-		private static HashMap<Double, Integer> freqTable;
-		private static HashMap<Character, Integer> letterTable;
+		private static final double [] frequencies;
+		private static final double [] roundedFrequencies;
 		
 		/* END Static Fields */
 		
@@ -55,21 +58,12 @@ public class Note extends NoteADT {
 		static {
 			ROUNDING_FACTOR = Math.pow(10, ROUNDING_PRECISION);
 			
-			midiTable = new HashMap<Integer, Double>(128);
-			freqTable = new HashMap<Double, Integer>(128);
-			for (int i = 0; i < 128; i++) {
-				double val = HZ_CONCERT_PITCH * Math.pow(2, (i - MIDI_CONCERT_PITCH) / 12.0);
-				midiTable.put(Integer.valueOf(i), val);
-				freqTable.put(Note.roundFrequency(val), Integer.valueOf(i));			}
-			
-			letterTable = new HashMap<Character, Integer>(7);
-			letterTable.put(Character.valueOf('C'), Integer.valueOf(0));
-			letterTable.put(Character.valueOf('D'), Integer.valueOf(2));
-			letterTable.put(Character.valueOf('E'), Integer.valueOf(4));
-			letterTable.put(Character.valueOf('F'), Integer.valueOf(5));
-			letterTable.put(Character.valueOf('G'), Integer.valueOf(7));
-			letterTable.put(Character.valueOf('A'), Integer.valueOf(9));
-			letterTable.put(Character.valueOf('B'), Integer.valueOf(11));
+			frequencies = new double[HIGH_MIDI_ABSOLUTE_NUMBER + 1];
+			roundedFrequencies = new double[HIGH_MIDI_ABSOLUTE_NUMBER + 1];
+			for (int i = 0; i < frequencies.length; i++) {
+				frequencies[i] = HZ_CONCERT_PITCH * Math.pow(2, (i - MIDI_CONCERT_PITCH) / 12.0);
+				roundedFrequencies[i] = Note.roundFrequency(frequencies[i]);
+			}
 		}
 		
 		/* END Static Initialiser */
@@ -81,7 +75,7 @@ public class Note extends NoteADT {
 		 * Used for debugging only.
 		 */
 		protected static void printTables () {
-			System.out.println(freqTable.toString());
+			System.out.println(Arrays.toString(roundedFrequencies));
 		}
 		
 		/* END Static Methods */
@@ -117,11 +111,11 @@ public class Note extends NoteADT {
 	 */
 	public Note (double frequency) throws IllegalArgumentException {
 		super(frequency);
-		double dFreq = Note.roundFrequency(frequency);
-		if (!midiTable.containsValue(dFreq))
-			throw new IllegalArgumentException("The frequency must be a valid half tone frequency between 0.0 and 13000.0 inclusive.");
+		int test = frequencyToMIDI(frequency);
+		if (test < 0)
+			throw new IllegalArgumentException(NoteScanner.describe(NoteScanner.INVALID_FREQUENCY));
 		
-		midi = freqTable.get(dFreq);
+		midi = test;
 	}
 	
 	/**
@@ -133,7 +127,7 @@ public class Note extends NoteADT {
 	public Note (int semitones) throws IllegalArgumentException {
 		super(semitones);
 		if (semitones < LOW_MIDI_ABSOLUTE_NUMBER - MIDI_CONCERT_PITCH || semitones > HIGH_MIDI_ABSOLUTE_NUMBER - MIDI_CONCERT_PITCH)
-			throw new IllegalArgumentException("The number of steps from A4 must be between -69 and 58 inclusive.");
+			throw new IllegalArgumentException(NoteScanner.describe(NoteScanner.INVALID_SEMITONES));
 		midi = semitones + MIDI_CONCERT_PITCH;
 	}
 	
@@ -150,7 +144,7 @@ public class Note extends NoteADT {
 	 * If not specified then the note is assumed to be natural (not accidental)</li>
 	 * <li><code>octave</code> is optional and is an integer in the range -1 through 9
 	 * and represents the octave this note is in.  If this is not specified then the note is
-	 * assumed to be in the octave specified by the constant <code>DEFAULT_OCTAVE</code></li>
+	 * assumed to be in octave 4</li>
 	 * Some examples of valid inputs are:
 	 * <pre>
 	 * G
@@ -167,15 +161,9 @@ public class Note extends NoteADT {
 	public Note (String strNote) throws IllegalArgumentException {
 		super(strNote);
 		
-		int letter = parseNote(strNote);
-		if (strNote.length() > 1)
-			strNote = strNote.substring(1);
-		int acc = parseAccidental(strNote);
-		int octave = parseOctave(strNote);
-		
-		int test = (octave + 1) * 12 + letter + acc;
-		if (test < LOW_MIDI_ABSOLUTE_NUMBER || test > HIGH_MIDI_ABSOLUTE_NUMBER)
-			throw new IllegalArgumentException("The note was parsed but was out of range.");
+		int test = NoteScanner.parseNoteName(strNote, 0, strNote.length());
+		if (test < 0)
+			throw new IllegalArgumentException(NoteScanner.describe(test));
 		
 		midi = test;
 	}
@@ -191,7 +179,7 @@ public class Note extends NoteADT {
 	 * @return the frequency
 	 */
 	public double getFrequencyInHz () {
-		return midiTable.get(midi);
+		return frequencies[midi];
 	}
 	
 	@Override
@@ -244,6 +232,14 @@ public class Note extends NoteADT {
 		midi += numberOfSemitones;
 	}
 	
+	/**
+	 * Returns the shared, immutable <code>Pitch</code> of this <code>Note</code>.
+	 * @return the <code>Pitch</code>
+	 */
+	public Pitch toPitch () {
+		return Pitch.of(midi);
+	}
+	
 	/* END Methods */
 	
 	
@@ -266,6 +262,16 @@ public class Note extends NoteADT {
 		return midi == n.getMIDIAbsoluteNumber();
 	}
 	
+	@Override
+	/**
+	 * Returns a hash code for this <code>NoteADT</code>, which is its MIDI number, so that equal notes have equal hash codes.
+	 * As a <code>Note</code> can be modified, use {@link Pitch} for notes which are kept as hash keys.
+	 * @see java.lang.Object#hashCode()
+	 */
+	public int hashCode () {
+		return midi;
+	}
+	
 	/* END (Object) Methods */
 	
 	
@@ -301,71 +307,100 @@ public class Note extends NoteADT {
 	/* END (Comparable) Methods */
 	
 	
-	/* Local Methods */
+	/* Static Methods */
 	
-	private int parseNote (String str) throws IllegalArgumentException {
-		for (char c = 'A'; c <= 'G'; c++)
-			if (str.toUpperCase().charAt(0) == c)
-				return letterTable.get(c);
-		throw new IllegalArgumentException("The note could not be parsed.");
+	/**
+	 * Parses a <code>String</code> and returns a <code>Note</code> constructed with the appropriate constructor.
+	 * The form of the <code>String</code> is determined from its characters with {@link NoteScanner#classify(CharSequence, int, int)}.
+	 * @param str the <code>String</code> to parse.  This can be a <code>String</code> representation of an <code>int</code> or <code>double</code> or a note string
+	 * @return a <code>Note</code> constructed from the <code>String</code>
+	 * @throws IllegalArgumentException if the <code>String</code> is malformed
+	 */
+	public static Note parseNoteString (String str) throws IllegalArgumentException {
+		int midi = NoteScanner.parseNoteString(str, 0, str.length());
+		if (midi < 0)
+			throw new IllegalArgumentException(NoteScanner.describe(midi));
+		return new Note(midi - MIDI_CONCERT_PITCH);
 	}
 	
-	private int parseAccidental (String str) {
-		if (str.contains("bb"))
-			return -2;
-		
-		if (str.contains("b"))
+	/**
+	 * Returns the MIDI number of the semitone nearest to a frequency.
+	 * Imperfect frequencies are tuned to the nearest half pitch; use {@link #centsFromNearest(double)} to find how far out of tune they are.
+	 * @param frequency the frequency (in Hz)
+	 * @return the MIDI number, or -1 if the frequency is not within half a semitone of the range of MIDI numbers
+	 */
+	public static int nearestMIDI (double frequency) {
+		//also rejects NaN
+		if (!(frequency > 0))
 			return -1;
 		
-		if (str.contains("#"))
-			return 1;
-		
-		if (str.contains("x"))
-			return 2;
-		
-		return 0;
+		long midi = Math.round(MIDI_CONCERT_PITCH + Math.log(frequency / HZ_CONCERT_PITCH) * SEMITONES_PER_LOG);
+		if (midi < LOW_MIDI_ABSOLUTE_NUMBER || midi > HIGH_MIDI_ABSOLUTE_NUMBER)
+			return -1;
+		return (int)midi;
 	}
 	
-	private int parseOctave (String str) throws IllegalArgumentException {
-		for (int i = -1; i <= 9; i++) {
-			String si = String.valueOf(i);
-			int idx = str.indexOf(si);
-			if (idx != -1) {
-				String s = str.substring(0, idx) + str.substring(idx + si.length());
-				for (int j = 0; j < s.length(); j++)
-						if (Character.isDigit(s.charAt(j)) || s.charAt(j) == '-')
-							throw new IllegalArgumentException("The octave is invalid.");
-				return i;
-			}
-		}
-		return DEFAULT_OCTAVE;
+	/**
+	 * Returns how far a frequency is from the semitone nearest to it, in cents (hundredths of a semitone).
+	 * @param frequency the frequency (in Hz)
+	 * @return the offset from <code>nearestMIDI(frequency)</code>, from -50 through 50; positive if the frequency is sharp
+	 * @throws IllegalArgumentException if the frequency is not within half a semitone of the range of MIDI numbers
+	 */
+	public static double centsFromNearest (double frequency) throws IllegalArgumentException {
+		int midi = nearestMIDI(frequency);
+		if (midi < 0)
+			throw new IllegalArgumentException(NoteScanner.describe(NoteScanner.INVALID_FREQUENCY));
+		return Math.log(frequency / frequencies[midi]) * SEMITONES_PER_LOG * 100;
 	}
 	
-	/* END Local Methods */
-	
+	/**
+	 * Tunes a run of frequencies to their nearest semitones.
+	 * @param frequencies the frequencies (in Hz)
+	 * @param offset the index of the first frequency to tune
+	 * @param length the number of frequencies to tune
+	 * @param midi receives the MIDI number of each frequency from index 0, or -1 for a frequency out of range
+	 * @param cents receives the offset of each frequency in cents from index 0 (0 for a frequency out of range), or <code>null</code> if the offsets are not wanted
+	 * @return the number of frequencies which were out of range
+	 * @throws IndexOutOfBoundsException if an array is too short
+	 */
+	public static int nearestMIDI (double [] frequencies, int offset, int length, int [] midi, double [] cents) throws IndexOutOfBoundsException {
+		if (offset < 0 || length < 0 || offset + length > frequencies.length || length > midi.length || (cents != null && length > cents.length))
+			throw new IndexOutOfBoundsException();
+		
+		double [] table = Note.frequencies;
+		int rejected = 0;
+		for (int i = 0; i < length; i++) {
+			double frequency = frequencies[offset + i];
+			int m = nearestMIDI(frequency);
+			midi[i] = m;
+			if (m < 0)
+				rejected++;
+			if (cents != null)
+				cents[i] = (m < 0) ? 0 : Math.log(frequency / table[m]) * SEMITONES_PER_LOG * 100;
+		}
+		return rejected;
+	}
 	
-	/* Static Methods */
+	/**
+	 * Returns the MIDI number of a half tone frequency, or -1 if the frequency is not a valid half tone frequency.
+	 * A frequency is a half tone frequency if, rounded to <code>ROUNDING_PRECISION</code> places, it is the rounded frequency of a semitone.
+	 * @param frequency the frequency to look up
+	 * @return the MIDI number, or -1
+	 */
+	static int frequencyToMIDI (double frequency) {
+		int midi = nearestMIDI(frequency);
+		if (midi < 0 || Note.roundFrequency(frequency) != roundedFrequencies[midi])
+			return -1;
+		return midi;
+	}
 	
 	/**
-	 * Parses a <code>String</code> and returns a <code>Note</code> constructed with the appropriate constructor.
-	 * @param str the <code>String</code> to parse.  This can be a <code>String</code> representation of an <code>int</code> or <code>double</code> or a note string
-	 * @return a <code>Note</code> constructed from the <code>String</code>
-	 * @throws IllegalArgumentException if the <code>String</code> is malformed
+	 * Returns the frequency of a MIDI number.
+	 * @param midi the MIDI number (0 through 127)
+	 * @return the frequency
 	 */
-	public static Note parseNoteString (String str) throws IllegalArgumentException {
-		Note note;
-		try {
-			int semitones = Integer.parseInt(str);
-			note = new Note(semitones);
-		} catch (NumberFormatException e) {
-			try {
-				double frequency = Double.parseDouble(str);
-				note = new Note(frequency);
-			} catch (NumberFormatException e1) {
-				note = new Note(str);
-			}
-		}
-		return note;
+	static double frequencyOf (int midi) {
+		return frequencies[midi];
 	}
 	
 	/**
@@ -0,0 +1,73 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package midi;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+
+/**
+ * A Java Flight Recorder event for a note on or note off message sent by an <code>Instrument</code>,
+ * with the time it was due and the time it was sent, by the clock of the instrument.
+ * The event is disabled by default, so that playback pays nothing for it; it is enabled for a recording with
+ * <code>-XX:StartFlightRecording:+midi.Note#enabled=true</code>.
+ */
+@Name("midi.Note")
+@Label("Note")
+@Category({ "MIDI", "Playback" })
+@Description("A note on or note off message sent by an instrument")
+@Enabled(false)
+@StackTrace(false)
+final class NoteEvent extends Event {
+	
+	/* Static Constants */
+	
+	static final String ON = "on";
+	static final String OFF = "off";
+	
+	/* END Static Constants */
+	
+	
+	/* Fields */
+	
+	@Label("Action")
+	@Description("Whether the note was started (on) or stopped (off)")
+	String action;
+	
+	@Label("MIDI Number")
+	int midi;
+	
+	@Label("Channel")
+	@Description("The synthesizer channel, or -1 if the instrument does not play on one")
+	int channel;
+	
+	@Label("Intended Time")
+	@Description("When the message was due, by the clock of the instrument (in nanoseconds)")
+	long intended;
+	
+	@Label("Actual Time")
+	@Description("When the message was sent, by the clock of the instrument (in nanoseconds)")
+	long actual;
+	
+	@Label("Lateness")
+	@Timespan(Timespan.NANOSECONDS)
+	long lateness;
+	
+	/* END Fields */
+
+}
@@ -0,0 +1,355 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package midi;
+
+import noteGeneration.NoteADT;
+
+
+/**
+ * Scans note strings character by character without creating any objects.
+ * Rather than throwing an exception, the scanning methods return a negative status code
+ * when the input is malformed, which can be turned into a message with {@link #describe(int)}.
+ */
+public final class NoteScanner {
+	
+	/* Static */
+		
+		/* Public Static Constants */
+		
+		/**
+		 * Returned when the note letter could not be parsed.
+		 */
+		public static final int INVALID_NOTE = -1;
+		
+		/**
+		 * Returned when the octave could not be parsed.
+		 */
+		public static final int INVALID_OCTAVE = -2;
+		
+		/**
+		 * Returned when the note was parsed but is outside of the MIDI range.
+		 */
+		public static final int OUT_OF_RANGE = -3;
+		
+		/**
+		 * Returned when a number of semitones from A4 is outside of the MIDI range.
+		 */
+		public static final int INVALID_SEMITONES = -4;
+		
+		/**
+		 * Returned when a frequency is not a valid half tone frequency.
+		 */
+		public static final int INVALID_FREQUENCY = -5;
+		
+		/* END Public Static Constants */
+		
+		
+		/* Static Constants */
+		
+		private static final int DEFAULT_OCTAVE = 4;
+		
+		/**
+		 * The largest number of decimal digits that always fits in an <code>int</code>.
+		 */
+		private static final int MAX_INT_DIGITS = 9;
+		
+		/**
+		 * The number of semitones above C for each of the letters 'A' through 'G'.
+		 */
+		private static final int [] LETTERS = { 9, 11, 0, 2, 4, 5, 7 };
+		
+		/* END Static Constants */
+	
+	/* END Static */
+	
+	
+	/* Constructors */
+	
+	private NoteScanner () {
+	}
+	
+	/* END Constructors */
+	
+	
+	/* Static Methods */
+	
+	/**
+	 * Parses a note string into a MIDI number in a single pass.
+	 * This accepts exactly the strings accepted by {@link Note#Note(String)}: a letter 'A' through 'G'
+	 * (case insensitive) followed by an optional accidental and an optional octave in any order.
+	 * @param str the characters to scan
+	 * @param start the index of the first character of the note string
+	 * @param end the index after the last character of the note string
+	 * @return the MIDI number (0 through 127), or one of <code>INVALID_NOTE</code>,
+	 * <code>INVALID_OCTAVE</code> or <code>OUT_OF_RANGE</code>
+	 */
+	public static int parseNoteName (CharSequence str, int start, int end) {
+		if (start >= end)
+			return INVALID_NOTE;
+		
+		int letter = letterValue(str.charAt(start));
+		if (letter < 0)
+			return INVALID_NOTE;
+		
+		//a single letter is also scanned for an accidental, as Note(String) has always done
+		int i = (end - start > 1) ? start + 1 : start;
+		
+		boolean doubleFlat = false, flat = false, sharp = false, doubleSharp = false;
+		int digits = 0, asciiDigits = 0, dashes = 0;
+		int digit = 0, digitIndex = -1, dashIndex = -1;
+		char prev = 0;
+		for (; i < end; i++) {
+			char c = str.charAt(i);
+			if (c >= '0' && c <= '9') {
+				digits++;
+				asciiDigits++;
+				digit = c - '0';
+				digitIndex = i;
+			} else if (c == 'b') {
+				if (prev == 'b')
+					doubleFlat = true;
+				flat = true;
+			} else if (c == '#') {
+				sharp = true;
+			} else if (c == 'x') {
+				doubleSharp = true;
+			} else if (c == '-') {
+				dashes++;
+				dashIndex = i;
+			} else if (c >= 0x80 && Character.isDigit(c)) {
+				digits++;
+			}
+			prev = c;
+		}
+		
+		int octave;
+		if (asciiDigits == 0)
+			octave = DEFAULT_OCTAVE;
+		else if (digits == 1 && dashes == 0)
+			octave = digit;
+		else if (digits == 1 && dashes == 1 && digit == 1 && dashIndex == digitIndex - 1)
+			octave = -1;
+		else
+			return INVALID_OCTAVE;
+		
+		int acc;
+		if (doubleFlat)
+			acc = -2;
+		else if (flat)
+			acc = -1;
+		else if (sharp)
+			acc = 1;
+		else if (doubleSharp)
+			acc = 2;
+		else
+			acc = 0;
+		
+		int midi = (octave + 1) * 12 + letter + acc;
+		if (midi < NoteADT.LOW_MIDI_ABSOLUTE_NUMBER || midi > NoteADT.HIGH_MIDI_ABSOLUTE_NUMBER)
+			return OUT_OF_RANGE;
+		return midi;
+	}
+	
+	/**
+	 * Determines which of the forms accepted by {@link Note#parseNoteString(String)} a token is written in,
+	 * by inspecting its characters rather than by attempting each conversion in turn.
+	 * @param str the characters to classify
+	 * @param start the index of the first character of the token
+	 * @param end the index after the last character of the token
+	 * @return the <code>TokenKind</code> of the token
+	 */
+	public static TokenKind classify (CharSequence str, int start, int end) {
+		if (start >= end)
+			return TokenKind.NOTE_NAME;
+		
+		char c = str.charAt(start);
+		if (!(c <= ' ' || c == '+' || c == '-' || c == '.' || (c >= '0' && c <= '9') || c == 'N' || c == 'I'
+				|| (c >= 0x80 && Character.isDigit(c))))
+			//neither Integer.parseInt nor Double.parseDouble accept a token starting with this character
+			return TokenKind.NOTE_NAME;
+		
+		int i = start;
+		if (c == '+' || c == '-')
+			i++;
+		int digitsStart = i;
+		while (i < end && isAsciiDigit(str.charAt(i)))
+			i++;
+		int intDigits = i - digitsStart;
+		if (i == end && intDigits > 0)
+			//longer integers may or may not fit in an int, so leave those to Integer.parseInt
+			return (intDigits <= MAX_INT_DIGITS) ? TokenKind.SEMITONES : TokenKind.OTHER;
+		
+		//[sign] digits [. digits] or [sign] . digits, then [exponent] [type suffix]
+		int mantissaDigits = intDigits;
+		if (i < end && str.charAt(i) == '.') {
+			i++;
+			int fractionStart = i;
+			while (i < end && isAsciiDigit(str.charAt(i)))
+				i++;
+			mantissaDigits += i - fractionStart;
+		}
+		if (mantissaDigits > 0) {
+			if (i < end && (str.charAt(i) == 'e' || str.charAt(i) == 'E')) {
+				i++;
+				if (i < end && (str.charAt(i) == '+' || str.charAt(i) == '-'))
+					i++;
+				int exponentStart = i;
+				while (i < end && isAsciiDigit(str.charAt(i)))
+					i++;
+				if (i == exponentStart)
+					return TokenKind.OTHER;
+			}
+			if (i < end && "fFdD".indexOf(str.charAt(i)) != -1)
+				i++;
+			if (i == end)
+				return TokenKind.FREQUENCY;
+		}
+		return TokenKind.OTHER;
+	}
+	
+	/**
+	 * Parses a token in any of the forms accepted by {@link Note#parseNoteString(String)} into a MIDI number.
+	 * The token is classified with {@link #classify(CharSequence, int, int)}, so no exceptions are thrown
+	 * for ordinary note names, numbers of semitones or frequencies.  Only unusual tokens (for example
+	 * hexadecimal frequencies or numbers padded with whitespace) fall back to the conversions in
+	 * <code>Integer</code> and <code>Double</code>.
+	 * @param str the characters to scan
+	 * @param start the index of the first character of the token
+	 * @param end the index after the last character of the token
+	 * @return the MIDI number (0 through 127), or a negative status code
+	 */
+	public static int parseNoteString (CharSequence str, int start, int end) {
+		switch (classify(str, start, end)) {
+			case SEMITONES:
+				return semitonesToMIDI(parseInt(str, start, end));
+			case FREQUENCY:
+				return frequencyToMIDI(Double.parseDouble(str.subSequence(start, end).toString()));
+			case NOTE_NAME:
+				return parseNoteName(str, start, end);
+			default:
+				String token = str.subSequence(start, end).toString();
+				try {
+					return semitonesToMIDI(Integer.parseInt(token));
+				} catch (NumberFormatException e) {
+				}
+				try {
+					return frequencyToMIDI(Double.parseDouble(token));
+				} catch (NumberFormatException e) {
+				}
+				return parseNoteName(str, start, end);
+		}
+	}
+	
+	/**
+	 * Returns the message describing a status code returned by one of the scanning methods.
+	 * @param status the status code
+	 * @return a message describing the error
+	 */
+	public static String describe (int status) {
+		switch (status) {
+			case INVALID_NOTE:
+				return "The note could not be parsed.";
+			case INVALID_OCTAVE:
+				return "The octave is invalid.";
+			case OUT_OF_RANGE:
+				return "The note was parsed but was out of range.";
+			case INVALID_SEMITONES:
+				return "The number of steps from A4 must be between -69 and 58 inclusive.";
+			case INVALID_FREQUENCY:
+				return "The frequency must be a valid half tone frequency between 0.0 and 13000.0 inclusive.";
+			default:
+				return "The note string is valid.";
+		}
+	}
+	
+	/* END Static Methods */
+	
+	
+	/* Local Methods */
+	
+	private static boolean isAsciiDigit (char c) {
+		return c >= '0' && c <= '9';
+	}
+	
+	/**
+	 * Parses a token already classified as <code>SEMITONES</code>.
+	 */
+	private static int parseInt (CharSequence str, int start, int end) {
+		boolean negative = str.charAt(start) == '-';
+		int i = (negative || str.charAt(start) == '+') ? start + 1 : start;
+		int value = 0;
+		for (; i < end; i++)
+			value = value * 10 + (str.charAt(i) - '0');
+		return negative ? -value : value;
+	}
+	
+	private static int semitonesToMIDI (int semitones) {
+		if (semitones < NoteADT.LOW_MIDI_ABSOLUTE_NUMBER - NoteADT.MIDI_CONCERT_PITCH
+				|| semitones > NoteADT.HIGH_MIDI_ABSOLUTE_NUMBER - NoteADT.MIDI_CONCERT_PITCH)
+			return INVALID_SEMITONES;
+		return semitones + NoteADT.MIDI_CONCERT_PITCH;
+	}
+	
+	private static int frequencyToMIDI (double frequency) {
+		int midi = Note.frequencyToMIDI(frequency);
+		return (midi < 0) ? INVALID_FREQUENCY : midi;
+	}
+	
+	/**
+	 * Returns the number of semitones above C of a note letter, or -1 if c is not a note letter.
+	 */
+	private static int letterValue (char c) {
+		char upper;
+		if (c < 0x80)
+			upper = (c >= 'a' && c <= 'z') ? (char)(c - ('a' - 'A')) : c;
+		else
+			//mirrors String.toUpperCase(), which may expand a character (e.g. a ligature) into letters
+			upper = String.valueOf(c).toUpperCase().charAt(0);
+		
+		if (upper < 'A' || upper > 'G')
+			return -1;
+		return LETTERS[upper - 'A'];
+	}
+	
+	/* END Local Methods */
+	
+	
+	/* Enumerators */
+	
+	/**
+	 * Represents the form a note token is written in.
+	 */
+	public static enum TokenKind {
+		/**
+		 * A number of semitones from A4, such as <code>-12</code>.
+		 */
+		SEMITONES,
+		
+		/**
+		 * A frequency in Hz, such as <code>440.0</code>.
+		 */
+		FREQUENCY,
+		
+		/**
+		 * A note name, such as <code>g3</code>.
+		 */
+		NOTE_NAME,
+		
+		/**
+		 * A token which cannot be classified from its characters alone, such as a hexadecimal frequency.
+		 */
+		OTHER
+	}
+	
+	/* END Enumerators */
+
+}
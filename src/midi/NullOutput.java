@@ -0,0 +1,45 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package midi;
+
+
+/**
+ * A <code>MidiOutput</code> which discards every note, for playing music where nothing should be heard.
+ */
+public class NullOutput implements MidiOutput {
+	
+	/* (MidiOutput) Methods */
+	
+	/**
+	 * Does nothing.
+	 * @see midi.MidiOutput#noteOn(int, int)
+	 */
+	public void noteOn (int midi, int velocity) {
+	}
+	
+	/**
+	 * Does nothing.
+	 * @see midi.MidiOutput#noteOff(int)
+	 */
+	public void noteOff (int midi) {
+	}
+	
+	/**
+	 * Does nothing.
+	 * @see midi.MidiOutput#close()
+	 */
+	public void close () {
+	}
+	
+	/* END (MidiOutput) Methods */
+
+}
@@ -0,0 +1,185 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package midi;
+
+
+/**
+ * Packs a musical event into a single <code>int</code>, so that events can be stored in primitive arrays and files.
+ * The layout, from the most significant bit, is:
+ * <pre>
+ * type     2 bits   TYPE_NOTE, TYPE_REST or TYPE_CHORD
+ * midi     7 bits   the MIDI number of the note (0 for a rest)
+ * duration 23 bits  the duration (0 through MAX_DURATION)
+ * </pre>
+ * A chord of several notes is packed as one <code>TYPE_CHORD</code> event for each note but the last,
+ * followed by a <code>TYPE_NOTE</code> event for the last note, all with the duration of the chord.
+ */
+public final class PackedEvent {
+	
+	/* Static */
+		
+		/* Public Static Constants */
+		
+		/**
+		 * The type of an event which plays a note.
+		 */
+		public static final int TYPE_NOTE = 0;
+		
+		/**
+		 * The type of an event which rests.
+		 */
+		public static final int TYPE_REST = 1;
+		
+		/**
+		 * The type of an event which starts a note of a chord.
+		 * The note sounds together with the event which follows it and takes no time of its own;
+		 * it stops when that event ends.
+		 */
+		public static final int TYPE_CHORD = 2;
+		
+		/**
+		 * The longest duration which can be packed.
+		 */
+		public static final int MAX_DURATION = (1 << 23) - 1;
+		
+		/* END Public Static Constants */
+		
+		
+		/* Static Constants */
+		
+		static final int TYPE_SHIFT = 30;
+		static final int MIDI_SHIFT = 23;
+		static final int MIDI_MASK = 0x7F;
+		
+		/* END Static Constants */
+	
+	/* END Static */
+	
+	
+	/* Constructors */
+	
+	private PackedEvent () {
+	}
+	
+	/* END Constructors */
+	
+	
+	/* Static Methods */
+	
+	/**
+	 * Packs an event.
+	 * @param type the type of event
+	 * @param midi the MIDI number of the note (ignored for a rest)
+	 * @param duration the duration
+	 * @return the packed event
+	 * @throws IllegalArgumentException if any of the values are out of range
+	 */
+	public static int pack (int type, int midi, int duration) throws IllegalArgumentException {
+		if (type != TYPE_NOTE && type != TYPE_REST && type != TYPE_CHORD)
+			throw new IllegalArgumentException("Unknown event type " + type + ".");
+		if (midi < 0 || midi > MIDI_MASK)
+			throw new IllegalArgumentException("The MIDI number must be between 0 and 127 inclusive.");
+		if (duration < 0 || duration > MAX_DURATION)
+			throw new IllegalArgumentException("The duration must be between 0 and " + MAX_DURATION + " inclusive.");
+		
+		if (type == TYPE_REST)
+			midi = 0;
+		return (type << TYPE_SHIFT) | (midi << MIDI_SHIFT) | duration;
+	}
+	
+	/**
+	 * Packs a <code>MusicEvent</code> which is a note or a rest.
+	 * @param e the <code>MusicEvent</code> to pack
+	 * @return the packed event
+	 * @throws IllegalArgumentException if the event is a chord, or the duration of the event is out of range
+	 * @see #pack(MusicEvent, int[], int)
+	 */
+	public static int pack (MusicEvent e) throws IllegalArgumentException {
+		if (e.getType() == MusicEvent.EventType.CHORD)
+			throw new IllegalArgumentException("A chord cannot be packed into a single event.");
+		if (e.getType() == MusicEvent.EventType.REST)
+			return pack(TYPE_REST, 0, e.getDuration());
+		return pack(TYPE_NOTE, e.getPitch().getMIDIAbsoluteNumber(), e.getDuration());
+	}
+	
+	/**
+	 * Packs any <code>MusicEvent</code>, including a chord, into as many events as it needs.
+	 * @param e the <code>MusicEvent</code> to pack
+	 * @param events the array to store the packed events in
+	 * @param offset the index to store the first packed event at
+	 * @return the number of packed events stored, which is the number of notes in a chord and 1 otherwise
+	 * @throws IllegalArgumentException if the duration of the event is out of range
+	 * @throws IndexOutOfBoundsException if the array is too short
+	 */
+	public static int pack (MusicEvent e, int [] events, int offset) throws IllegalArgumentException, IndexOutOfBoundsException {
+		if (e.getType() != MusicEvent.EventType.CHORD) {
+			events[offset] = pack(e);
+			return 1;
+		}
+		
+		Pitch [] pitches = e.getPitches();
+		if (offset < 0 || offset + pitches.length > events.length)
+			throw new IndexOutOfBoundsException();
+		for (int i = 0; i < pitches.length; i++)
+			events[offset + i] = pack((i == pitches.length - 1) ? TYPE_NOTE : TYPE_CHORD,
+					pitches[i].getMIDIAbsoluteNumber(), e.getDuration());
+		return pitches.length;
+	}
+	
+	/**
+	 * Returns the number of packed events a <code>MusicEvent</code> needs.
+	 * @param e the <code>MusicEvent</code>
+	 * @return the number of notes in a chord, and 1 otherwise
+	 */
+	public static int size (MusicEvent e) {
+		return (e.getType() == MusicEvent.EventType.CHORD) ? e.getPitches().length : 1;
+	}
+	
+	/**
+	 * Returns the type of a packed event.
+	 * @param event the packed event
+	 * @return <code>TYPE_NOTE</code>, <code>TYPE_REST</code> or <code>TYPE_CHORD</code>
+	 */
+	public static int getType (int event) {
+		return event >>> TYPE_SHIFT;
+	}
+	
+	/**
+	 * Returns the MIDI number of a packed event.
+	 * @param event the packed event
+	 * @return the MIDI number (0 for a rest)
+	 */
+	public static int getMIDI (int event) {
+		return (event >>> MIDI_SHIFT) & MIDI_MASK;
+	}
+	
+	/**
+	 * Returns the time a packed event takes, which is its duration unless it is a <code>TYPE_CHORD</code> event.
+	 * @param event the packed event
+	 * @return the time the event takes (in milliseconds)
+	 */
+	public static int getAdvance (int event) {
+		return (getType(event) == TYPE_CHORD) ? 0 : (event & MAX_DURATION);
+	}
+	
+	/**
+	 * Returns the duration of a packed event.
+	 * @param event the packed event
+	 * @return the duration
+	 */
+	public static int getDuration (int event) {
+		return event & MAX_DURATION;
+	}
+	
+	/* END Static Methods */
+
+}
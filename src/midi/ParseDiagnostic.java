@@ -0,0 +1,99 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package midi;
+
+
+/**
+ * Describes a token which could not be parsed, and where it was found.
+ */
+public class ParseDiagnostic {
+	
+	/* Fields */
+	
+	private final int line;
+	private final int column;
+	private final String token;
+	private final String reason;
+	
+	/* END Fields */
+	
+	
+	/* Constructors */
+	
+	/**
+	 * Constructs a <code>ParseDiagnostic</code>.
+	 * @param line the line the token was found on (starting at 1)
+	 * @param column the column of the first character of the token (starting at 1)
+	 * @param token the token which could not be parsed
+	 * @param reason the reason the token could not be parsed
+	 */
+	public ParseDiagnostic (int line, int column, String token, String reason) {
+		this.line = line;
+		this.column = column;
+		this.token = token;
+		this.reason = reason;
+	}
+	
+	/* END Constructors */
+	
+	
+	/* Accessors */
+	
+	/**
+	 * Returns the line the token was found on.
+	 * @return the line (starting at 1)
+	 */
+	public int getLine () {
+		return line;
+	}
+	
+	/**
+	 * Returns the column of the first character of the token.
+	 * @return the column (starting at 1)
+	 */
+	public int getColumn () {
+		return column;
+	}
+	
+	/**
+	 * Returns the token which could not be parsed.
+	 * @return the token
+	 */
+	public String getToken () {
+		return token;
+	}
+	
+	/**
+	 * Returns the reason the token could not be parsed.
+	 * @return the reason
+	 */
+	public String getReason () {
+		return reason;
+	}
+	
+	/* END Accessors */
+	
+	
+	/* (Object) Methods */
+	
+	@Override
+	/**
+	 * Returns a description of this diagnostic, such as <code>3:14: "h4" (The note could not be parsed.)</code>.
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString () {
+		return line + ":" + column + ": \"" + token + "\" (" + reason + ")";
+	}
+	
+	/* END (Object) Methods */
+
+}
@@ -0,0 +1,143 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package midi;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Vector;
+
+
+/**
+ * Collects <code>ParseDiagnostic</code>s while a song is parsed, so they can be inspected together afterwards.
+ * Every diagnostic is counted, but only the first few are kept, so a badly damaged file cannot use up memory.
+ */
+public class ParseDiagnostics {
+	
+	/* Static Constants */
+	
+	/**
+	 * The default number of diagnostics to keep.
+	 */
+	public static final int DEFAULT_LIMIT = 100;
+	
+	/* END Static Constants */
+	
+	
+	/* Fields */
+	
+	private final int limit;
+	private final Vector<ParseDiagnostic> diagnostics;
+	private long count;
+	
+	/* END Fields */
+	
+	
+	/* Constructors */
+	
+	/**
+	 * Constructs a <code>ParseDiagnostics</code> which keeps up to <code>DEFAULT_LIMIT</code> diagnostics.
+	 */
+	public ParseDiagnostics () {
+		this(DEFAULT_LIMIT);
+	}
+	
+	/**
+	 * Constructs a <code>ParseDiagnostics</code> which keeps up to a specified number of diagnostics.
+	 * @param limit the number of diagnostics to keep
+	 * @throws IllegalArgumentException if limit is negative
+	 */
+	public ParseDiagnostics (int limit) throws IllegalArgumentException {
+		if (limit < 0)
+			throw new IllegalArgumentException("The limit cannot be negative.");
+		
+		this.limit = limit;
+		this.diagnostics = new Vector<ParseDiagnostic>(Math.min(limit, 16));
+	}
+	
+	/* END Constructors */
+	
+	
+	/* Accessors */
+	
+	/**
+	 * Returns the number of diagnostics reported, including any which were not kept.
+	 * @return the number of diagnostics reported
+	 */
+	public synchronized long getCount () {
+		return count;
+	}
+	
+	/**
+	 * Returns the number of diagnostics this <code>ParseDiagnostics</code> keeps.
+	 * @return the limit
+	 */
+	public int getLimit () {
+		return limit;
+	}
+	
+	/**
+	 * Returns <code>true</code> if no diagnostics have been reported.
+	 * @return <code>true</code> if no diagnostics have been reported
+	 */
+	public synchronized boolean isEmpty () {
+		return count == 0;
+	}
+	
+	/**
+	 * Returns the diagnostics which were kept, in the order they were reported.
+	 * @return an unmodifiable list of diagnostics
+	 */
+	public synchronized List<ParseDiagnostic> getDiagnostics () {
+		return Collections.unmodifiableList(new Vector<ParseDiagnostic>(diagnostics));
+	}
+	
+	/* END Accessors */
+	
+	
+	/* Methods */
+	
+	/**
+	 * Reports a token which could not be parsed.
+	 * @param line the line the token was found on (starting at 1)
+	 * @param column the column of the first character of the token (starting at 1)
+	 * @param token the token which could not be parsed
+	 * @param reason the reason the token could not be parsed
+	 */
+	public synchronized void report (int line, int column, String token, String reason) {
+		count++;
+		if (diagnostics.size() < limit)
+			diagnostics.add(new ParseDiagnostic(line, column, token, reason));
+	}
+	
+	/**
+	 * Adds the diagnostics reported to another <code>ParseDiagnostics</code>, which was used to parse part of a file.
+	 * Positions in the other diagnostics are relative to the start of that part, so they are moved to where it begins.
+	 * @param other the diagnostics for the part of the file
+	 * @param line the line the part begins on (starting at 1)
+	 * @param column the column the part begins at (starting at 1)
+	 */
+	public void merge (ParseDiagnostics other, int line, int column) {
+		List<ParseDiagnostic> list = other.getDiagnostics();
+		long count = other.getCount();
+		synchronized (this) {
+			for (int i = 0; i < list.size(); i++) {
+				ParseDiagnostic d = list.get(i);
+				report(d.getLine() + line - 1, (d.getLine() == 1) ? d.getColumn() + column - 1 : d.getColumn(),
+						d.getToken(), d.getReason());
+			}
+			this.count += count - list.size();
+		}
+	}
+	
+	/* END Methods */
+
+}
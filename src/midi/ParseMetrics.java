@@ -0,0 +1,152 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package midi;
+
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Counts the parsing of songs across the process, and publishes it over JMX as <code>midi:type=Parsing</code>.
+ * Every token parsed by {@link MusicEvent#parseEvent(CharSequence, int, int, ParseDiagnostics, int, int)} is counted,
+ * as accepted or rejected, and readers of whole songs, such as <code>Song</code>, record how long reading took.
+ * Counters are <code>LongAdder</code>s, so the threads of a <code>ParallelSongParser</code> can count at once
+ * without contending.  The one <code>ParseMetrics</code> is returned by <code>getDefault()</code>.
+ */
+public final class ParseMetrics implements ParseMetricsMBean {
+	
+	/* Static Constants */
+	
+	/**
+	 * The name the metrics are published under.
+	 */
+	public static final String OBJECT_NAME = "midi:type=Parsing";
+	
+	private static final long NANOS_PER_MILLI = 1000000;
+	
+	private static final ParseMetrics DEFAULT = PlaybackMetrics.register(new ParseMetrics(), OBJECT_NAME);
+	
+	/* END Static Constants */
+	
+	
+	/* Fields */
+	
+	private final LongAdder parsed = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder songs = new LongAdder();
+	private final LongAdder parseNanos = new LongAdder();
+	
+	/* END Fields */
+	
+	
+	/* Constructors */
+	
+	private ParseMetrics () {
+	}
+	
+	/* END Constructors */
+	
+	
+	/* (ParseMetricsMBean) Methods */
+	
+	/**
+	 * Returns the number of tokens of song files parsed into events.
+	 * @see midi.ParseMetricsMBean#getTokensParsed()
+	 */
+	public long getTokensParsed () {
+		return parsed.sum();
+	}
+	
+	/**
+	 * Returns the number of tokens of song files which could not be parsed and were ignored.
+	 * @see midi.ParseMetricsMBean#getTokensRejected()
+	 */
+	public long getTokensRejected () {
+		return rejected.sum();
+	}
+	
+	/**
+	 * Returns the number of songs read.
+	 * @see midi.ParseMetricsMBean#getSongsRead()
+	 */
+	public long getSongsRead () {
+		return songs.sum();
+	}
+	
+	/**
+	 * Returns how long reading songs has taken altogether.
+	 * @see midi.ParseMetricsMBean#getParseMillis()
+	 */
+	public long getParseMillis () {
+		return parseNanos.sum() / NANOS_PER_MILLI;
+	}
+	
+	/**
+	 * Forgets the counts and times recorded so far.
+	 * @see midi.ParseMetricsMBean#reset()
+	 */
+	public void reset () {
+		parsed.reset();
+		rejected.reset();
+		songs.reset();
+		parseNanos.reset();
+	}
+	
+	/* END (ParseMetricsMBean) Methods */
+	
+	
+	/* Methods */
+	
+	/**
+	 * Records how long part of a song took to read, such as a batch of events read while the song plays.
+	 * @param nanos the time taken (in nanoseconds)
+	 */
+	public void recordParse (long nanos) {
+		parseNanos.add(nanos);
+	}
+	
+	/**
+	 * Records that a whole song has been read.
+	 */
+	public void recordSong () {
+		songs.increment();
+	}
+	
+	/**
+	 * Records that a token was parsed into an event.
+	 */
+	void recordToken () {
+		parsed.increment();
+	}
+	
+	/**
+	 * Records that a token could not be parsed.
+	 */
+	void recordRejected () {
+		rejected.increment();
+	}
+	
+	/* END Methods */
+	
+	
+	/* Static Methods */
+	
+	/**
+	 * Returns the process-wide <code>ParseMetrics</code>, which is published over JMX the first time it is used.
+	 * @return the <code>ParseMetrics</code>
+	 */
+	public static ParseMetrics getDefault () {
+		return DEFAULT;
+	}
+	
+	/* END Static Methods */
+
+}
@@ -0,0 +1,49 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package midi;
+
+
+/**
+ * The attributes and operations of <code>ParseMetrics</code> which are published over JMX.
+ */
+public interface ParseMetricsMBean {
+	
+	/**
+	 * Returns the number of tokens of song files parsed into events.
+	 * @return the number of tokens parsed
+	 */
+	public long getTokensParsed ();
+	
+	/**
+	 * Returns the number of tokens of song files which could not be parsed and were ignored.
+	 * @return the number of tokens rejected
+	 */
+	public long getTokensRejected ();
+	
+	/**
+	 * Returns the number of songs read.
+	 * @return the number of songs
+	 */
+	public long getSongsRead ();
+	
+	/**
+	 * Returns how long reading songs has taken altogether.
+	 * @return the time (in milliseconds)
+	 */
+	public long getParseMillis ();
+	
+	/**
+	 * Forgets the counts and times recorded so far.
+	 */
+	public void reset ();
+
+}
@@ -0,0 +1,193 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package midi;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Vector;
+
+
+/**
+ * A figure which is repeated up or down a scale, such as a plain scale, thirds, or an arpeggio.
+ * The figure is a cell of degrees, counted from an anchor degree, and after each cell the anchor moves by a step.
+ * For example, thirds have the cell <code>0, 2</code> and a step of 1 degree, so in C major they play C E, D F, E G, and so on.
+ * A step of <code>OCTAVE</code> moves the anchor by an octave of whichever scale the pattern is played in.
+ * The common patterns are available by name, for <code>parsePattern(String)</code>.
+ * A <code>Pattern</code> cannot be changed.
+ */
+public final class Pattern {
+	
+	/* Static */
+	
+	private static HashMap<String, Pattern> namedPatterns = new HashMap<String, Pattern>(8);
+		
+		/* Static Constants */
+		
+		/**
+		 * The step which moves the anchor by an octave of the scale.
+		 */
+		public static final int OCTAVE = 0;
+		
+		/**
+		 * Every degree of the scale in turn.
+		 */
+		public static final Pattern SCALE = name(new Pattern("scale", 1, 0));
+		
+		/**
+		 * Each degree followed by the degree a third above it.
+		 */
+		public static final Pattern THIRDS = name(new Pattern("thirds", 1, 0, 2));
+		
+		/**
+		 * Each degree followed by the degree a fourth above it.
+		 */
+		public static final Pattern FOURTHS = name(new Pattern("fourths", 1, 0, 3));
+		
+		/**
+		 * Four degrees up from each degree in turn.
+		 */
+		public static final Pattern FOURS = name(new Pattern("fours", 1, 0, 1, 2, 3));
+		
+		/**
+		 * The triad on each degree in turn.
+		 */
+		public static final Pattern TRIADS = name(new Pattern("triads", 1, 0, 2, 4));
+		
+		/**
+		 * The triad on the tonic, in every octave.
+		 */
+		public static final Pattern ARPEGGIO = name(new Pattern("arpeggio", OCTAVE, 0, 2, 4));
+		
+		/* END Static Constants */
+	
+	/* END Static */
+	
+	
+	/* Fields */
+	
+	private final String name;
+	private final int step;
+	private final int [] cell;
+	
+	/* END Fields */
+	
+	
+	/* Constructors */
+	
+	/**
+	 * Constructs a <code>Pattern</code> from a cell of degrees and the step between cells.
+	 * @param name the name of the pattern
+	 * @param step the number of degrees the anchor moves after each cell, or <code>OCTAVE</code>
+	 * @param cell the degrees of the cell, counted from the anchor
+	 * @throws IllegalArgumentException if the cell is empty or the step is negative
+	 */
+	public Pattern (String name, int step, int... cell) throws IllegalArgumentException {
+		if (cell.length == 0)
+			throw new IllegalArgumentException("A pattern must have at least one degree.");
+		if (step < 0)
+			throw new IllegalArgumentException("The step of a pattern cannot be negative.");
+		
+		this.name = name;
+		this.step = step;
+		this.cell = cell.clone();
+	}
+	
+	/* END Constructors */
+	
+	
+	/* Accessors */
+	
+	/**
+	 * Returns the name of this pattern.
+	 * @return the name
+	 */
+	public String getName () {
+		return name;
+	}
+	
+	/**
+	 * Returns the number of degrees the anchor moves after each cell.
+	 * @return the step, or <code>OCTAVE</code>
+	 */
+	public int getStep () {
+		return step;
+	}
+	
+	/**
+	 * Returns the number of degrees the anchor moves after each cell in a scale.
+	 * @param scale the scale the pattern is played in
+	 * @return the step, which is the size of the scale if the step is <code>OCTAVE</code>
+	 */
+	public int getStep (Scale scale) {
+		return (step == OCTAVE) ? scale.size() : step;
+	}
+	
+	/**
+	 * Returns the degrees of the cell.
+	 * @return the degrees, counted from the anchor
+	 */
+	public int [] getCell () {
+		return cell.clone();
+	}
+	
+	/* END Accessors */
+	
+	
+	/* (Object) Methods */
+	
+	@Override
+	/**
+	 * Returns the name of this pattern.
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString () {
+		return name;
+	}
+	
+	/* END (Object) Methods */
+	
+	
+	/* Static Methods */
+	
+	/**
+	 * Returns a named pattern.
+	 * @param str the name of the pattern, such as <code>"thirds"</code> or <code>"arpeggio"</code>
+	 * @return the <code>Pattern</code>
+	 * @throws IllegalArgumentException if there is no pattern with that name
+	 */
+	public static Pattern parsePattern (String str) throws IllegalArgumentException {
+		Pattern pattern = namedPatterns.get(str.toLowerCase());
+		if (pattern == null)
+			throw new IllegalArgumentException("Cannot find pattern " + str);
+		return pattern;
+	}
+	
+	/**
+	 * Returns a <code>Vector&lt;String&gt;</code> of available named patterns.
+	 * @return a list of named patterns
+	 */
+	public static Vector<String> getNamedPatterns () {
+		Vector<String> v = new Vector<String>(namedPatterns.size());
+		Iterator<String> i = namedPatterns.keySet().iterator();
+		while (i.hasNext())
+			v.add(i.next());
+		return v;
+	}
+	
+	private static Pattern name (Pattern pattern) {
+		namedPatterns.put(pattern.getName(), pattern);
+		return pattern;
+	}
+	
+	/* END Static Methods */
+
+}
@@ -0,0 +1,227 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package midi;
+
+import noteGeneration.NoteADT;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+
+/**
+ * Generates the notes of a <code>Pattern</code> played in a <code>Scale</code>, one packed event at a time,
+ * so that sequences of any length can be played or rendered without being held in memory.
+ * The tonic of the scale is the starting note, and the pattern moves from it towards the end note and stays between
+ * the two.  When the next cell would leave that range, the pass is over, and the next pass goes back the other way,
+ * playing the pattern in reverse; a number of passes can be given, or the pattern can repeat forever.
+ * The MIDI number of every degree in the range is worked out when the generator is constructed, so each event
+ * is found from a table without creating any objects.
+ * Events are read with <code>nextInt()</code>, or a batch at a time with <code>fill(EventBuffer.Builder, int)</code>.
+ * A <code>PatternGenerator</code> is used by one thread at a time.
+ */
+public final class PatternGenerator implements PrimitiveIterator.OfInt {
+	
+	/* Fields */
+	
+	//the MIDI number of each degree from lowest to highest
+	private final int [] midi;
+	private final int lowest;
+	private final int highest;
+	
+	private final int [] cell;
+	private final int cellLow;
+	private final int cellHigh;
+	private final int step;
+	private final int duration;
+	private final int passes;
+	
+	private int anchor;
+	private int direction;
+	private int index;
+	private int pass;
+	private boolean done;
+	
+	/* END Fields */
+	
+	
+	/* Constructors */
+	
+	/**
+	 * Constructs a <code>PatternGenerator</code> which makes one pass from the start note to the end note.
+	 * @param scale the scale, whose tonic is the start note
+	 * @param pattern the pattern to play
+	 * @param start the starting note
+	 * @param end the note the pattern moves towards, which may be above or below the start note
+	 * @param duration the duration of each note (in ticks)
+	 * @throws IllegalArgumentException if duration is out of range
+	 */
+	public PatternGenerator (Scale scale, Pattern pattern, NoteADT start, NoteADT end, int duration) throws IllegalArgumentException {
+		this(scale, pattern, start, end, duration, 1);
+	}
+	
+	/**
+	 * Constructs a <code>PatternGenerator</code>.
+	 * @param scale the scale, whose tonic is the start note
+	 * @param pattern the pattern to play
+	 * @param start the starting note
+	 * @param end the note the pattern moves towards, which may be above or below the start note
+	 * @param duration the duration of each note (in ticks)
+	 * @param passes the number of passes to make, alternately towards the end note and back, or 0 to repeat forever
+	 * @throws IllegalArgumentException if duration is out of range or passes is negative
+	 */
+	public PatternGenerator (Scale scale, Pattern pattern, NoteADT start, NoteADT end, int duration, int passes) throws IllegalArgumentException {
+		if (duration < 1 || duration > PackedEvent.MAX_DURATION)
+			throw new IllegalArgumentException("The duration must be between 1 and " + PackedEvent.MAX_DURATION + " inclusive.");
+		if (passes < 0)
+			throw new IllegalArgumentException("The number of passes cannot be negative.");
+		
+		int tonic = start.getMIDIAbsoluteNumber();
+		int low = Math.min(tonic, end.getMIDIAbsoluteNumber());
+		int high = Math.max(tonic, end.getMIDIAbsoluteNumber());
+		
+		//the degrees from the tonic whose notes are within the range
+		int lowest = 0, highest = 0;
+		while (tonic + scale.getOffset(lowest - 1) >= low)
+			lowest--;
+		while (tonic + scale.getOffset(highest + 1) <= high)
+			highest++;
+		this.midi = new int[highest - lowest + 1];
+		for (int d = lowest; d <= highest; d++)
+			midi[d - lowest] = tonic + scale.getOffset(d);
+		this.lowest = lowest;
+		this.highest = highest;
+		
+		this.cell = pattern.getCell();
+		int cellLow = cell[0], cellHigh = cell[0];
+		for (int i = 1; i < cell.length; i++) {
+			cellLow = Math.min(cellLow, cell[i]);
+			cellHigh = Math.max(cellHigh, cell[i]);
+		}
+		this.cellLow = cellLow;
+		this.cellHigh = cellHigh;
+		this.step = pattern.getStep(scale);
+		this.duration = duration;
+		this.passes = passes;
+		
+		//the first anchor is the one nearest the tonic, on the side of the end note, from which the whole cell fits
+		this.direction = (end.getMIDIAbsoluteNumber() >= tonic) ? 1 : -1;
+		this.anchor = (direction > 0) ? -Math.floorDiv(cellLow - lowest, step) * step : Math.floorDiv(highest - cellHigh, step) * step;
+		this.done = !fits(anchor);
+	}
+	
+	/* END Constructors */
+	
+	
+	/* Accessors */
+	
+	/**
+	 * Returns the lowest MIDI number this generator can play.
+	 * @return the MIDI number of the lowest degree of the scale in the range
+	 */
+	public int getLowestNote () {
+		return midi[0];
+	}
+	
+	/**
+	 * Returns the highest MIDI number this generator can play.
+	 * @return the MIDI number of the highest degree of the scale in the range
+	 */
+	public int getHighestNote () {
+		return midi[midi.length - 1];
+	}
+	
+	/* END Accessors */
+	
+	
+	/* (PrimitiveIterator.OfInt) Methods */
+	
+	/**
+	 * Returns <code>true</code> if there are more events.
+	 * @see java.util.Iterator#hasNext()
+	 */
+	public boolean hasNext () {
+		return !done;
+	}
+	
+	/**
+	 * Returns the next event, which is a note packed by <code>PackedEvent</code>.
+	 * @see java.util.PrimitiveIterator.OfInt#nextInt()
+	 */
+	public int nextInt () throws NoSuchElementException {
+		if (done)
+			throw new NoSuchElementException();
+		
+		int degree = anchor + ((direction > 0) ? cell[index] : cell[cell.length - 1 - index]);
+		int event = (PackedEvent.TYPE_NOTE << PackedEvent.TYPE_SHIFT) | (midi[degree - lowest] << PackedEvent.MIDI_SHIFT) | duration;
+		if (++index == cell.length) {
+			index = 0;
+			advance();
+		}
+		return event;
+	}
+	
+	/* END (PrimitiveIterator.OfInt) Methods */
+	
+	
+	/* Methods */
+	
+	/**
+	 * Appends up to a number of the next events to an <code>EventBuffer.Builder</code>.
+	 * @param events the <code>Builder</code> to append to
+	 * @param max the largest number of events to append
+	 * @return the number of events appended, which is less than max only when there are no more events
+	 */
+	public int fill (EventBuffer.Builder events, int max) {
+		int count = 0;
+		for (; count < max && !done; count++)
+			events.addPacked(nextInt());
+		return count;
+	}
+	
+	/* END Methods */
+	
+	
+	/* Local Methods */
+	
+	/**
+	 * Returns <code>true</code> if every degree of the cell at an anchor is within the range.
+	 */
+	private boolean fits (int anchor) {
+		return anchor + cellLow >= lowest && anchor + cellHigh <= highest;
+	}
+	
+	/**
+	 * Moves the anchor to the next cell, turning back at the end of a pass.
+	 */
+	private void advance () {
+		if (fits(anchor + direction * step)) {
+			anchor += direction * step;
+			return;
+		}
+		
+		if (passes != 0 && ++pass == passes) {
+			done = true;
+			return;
+		}
+		//the last cell is played back from its second note, so that the note at the turn is not repeated
+		direction = -direction;
+		if (cell.length > 1)
+			index = 1;
+		else if (fits(anchor + direction * step))
+			anchor += direction * step;
+		else
+			done = true;
+	}
+	
+	/* END Local Methods */
+
+}
@@ -0,0 +1,204 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package midi;
+
+import noteGeneration.NoteADT;
+
+
+/**
+ * An immutable musical pitch.
+ * Only 128 pitches exist, one for each MIDI number, and they are created once and shared:
+ * use {@link #of(int)} to get one.  Unlike <code>Note</code>, a <code>Pitch</code> cannot be
+ * modified, so it is safe to share between events and threads and to use as a hash key.
+ */
+public final class Pitch implements Comparable<Pitch> {
+	
+	/* Static */
+		
+		/* Static Constants */
+		
+		private static final String [] NAMES = { "C", "C#", "D", "D#", "E", "F", "F#", "G", "G#", "A", "A#", "B" };
+		
+		/* END Static Constants */
+		
+		
+		/* Static Fields */
+		
+		private static final Pitch [] pitches;
+		
+		/* END Static Fields */
+		
+		
+		/* Static Initialiser */
+		
+		static {
+			pitches = new Pitch[NoteADT.HIGH_MIDI_ABSOLUTE_NUMBER + 1];
+			for (int i = 0; i < pitches.length; i++)
+				pitches[i] = new Pitch(i);
+		}
+		
+		/* END Static Initialiser */
+	
+	/* END Static */
+	
+	
+	/* Fields */
+	
+	private final int midi;
+	
+	/* END Fields */
+	
+	
+	/* Constructors */
+	
+	private Pitch (int midi) {
+		this.midi = midi;
+	}
+	
+	/* END Constructors */
+	
+	
+	/* Accessors */
+	
+	/**
+	 * Returns the MIDI index that this pitch represents.
+	 * @return the MIDI index (0 through 127)
+	 */
+	public int getMIDIAbsoluteNumber () {
+		return midi;
+	}
+	
+	/**
+	 * Returns the number of semitones this pitch is from A4 (440 Hz).
+	 * @return the number of semitones from A4
+	 */
+	public int getHalfSteps () {
+		return midi - NoteADT.MIDI_CONCERT_PITCH;
+	}
+	
+	/**
+	 * Returns the frequency that this pitch represents.
+	 * @return the frequency
+	 */
+	public double getFrequencyInHz () {
+		return Note.frequencyOf(midi);
+	}
+	
+	/* END Accessors */
+	
+	
+	/* Methods */
+	
+	/**
+	 * Determines if this pitch and another form an octave.
+	 * @param p the other <code>Pitch</code>
+	 * @return <code>true</code> if the pitches are 12 semitones apart
+	 */
+	public boolean formOctave (Pitch p) {
+		return Math.abs(p.midi - midi) == 12;
+	}
+	
+	/**
+	 * Returns the pitch a specified number of semitones from this pitch.
+	 * @param numberOfSemitones the number of semitones to transpose by (this can be positive or negative)
+	 * @return the shared <code>Pitch</code> for the transposed pitch
+	 * @throws IllegalArgumentException if the transposition would place the pitch out of range
+	 */
+	public Pitch transpose (int numberOfSemitones) throws IllegalArgumentException {
+		return of(midi + numberOfSemitones);
+	}
+	
+	/**
+	 * Returns a new, modifiable <code>Note</code> with this pitch.
+	 * @return a <code>Note</code>
+	 */
+	public Note toNote () {
+		return new Note(getHalfSteps());
+	}
+	
+	/* END Methods */
+	
+	
+	/* (Object) Methods */
+	
+	@Override
+	/**
+	 * Compares this <code>Pitch</code> to another object.
+	 * @param o the <code>Object</code> to compare this <code>Pitch</code> against
+	 * @return <code>true</code> if o is a <code>Pitch</code> with the same MIDI number
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	public boolean equals (Object o) {
+		return o instanceof Pitch && ((Pitch)o).midi == midi;
+	}
+	
+	@Override
+	/**
+	 * Returns a hash code for this pitch, which is its MIDI number.
+	 * @see java.lang.Object#hashCode()
+	 */
+	public int hashCode () {
+		return midi;
+	}
+	
+	@Override
+	/**
+	 * Returns the name of this pitch with its octave, such as <code>C#4</code>.
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString () {
+		return NAMES[midi % 12] + (midi / 12 - 1);
+	}
+	
+	/* END (Object) Methods */
+	
+	
+	/* (Comparable) Methods */
+	
+	/**
+	 * Compares this <code>Pitch</code> with another for order; lower pitches come first.
+	 * @param p the <code>Pitch</code> to compare against
+	 * @see java.lang.Comparable#compareTo(java.lang.Object)
+	 */
+	public int compareTo (Pitch p) {
+		return (midi < p.midi) ? -1 : ((midi == p.midi) ? 0 : 1);
+	}
+	
+	/* END (Comparable) Methods */
+	
+	
+	/* Static Methods */
+	
+	/**
+	 * Returns the shared <code>Pitch</code> for a MIDI number.
+	 * @param midi the MIDI number (0 through 127)
+	 * @return the <code>Pitch</code>
+	 * @throws IllegalArgumentException if midi is out of range
+	 */
+	public static Pitch of (int midi) throws IllegalArgumentException {
+		if (midi < NoteADT.LOW_MIDI_ABSOLUTE_NUMBER || midi > NoteADT.HIGH_MIDI_ABSOLUTE_NUMBER)
+			throw new IllegalArgumentException("The MIDI number must be between 0 and 127 inclusive.");
+		return pitches[midi];
+	}
+	
+	/**
+	 * Returns the shared <code>Pitch</code> for a note.
+	 * @param n the note
+	 * @return the <code>Pitch</code> of n
+	 */
+	public static Pitch of (NoteADT n) {
+		return pitches[n.getMIDIAbsoluteNumber()];
+	}
+	
+	/* END Static Methods */
+
+}
@@ -0,0 +1,251 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package midi;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+
+/**
+ * Counts the work of playback across the process, and publishes it over JMX as <code>midi:type=Playback</code>,
+ * so that a tool such as JConsole can show whether a stutter came from opening the synthesizer, loading a patch,
+ * a slow synthesizer, or late scheduling.
+ * Every <code>Instrument</code>, the <code>SynthesizerPool</code> and every <code>DeadlineScheduler</code> record into
+ * the one <code>PlaybackMetrics</code> returned by <code>getDefault()</code>.  Counters are <code>LongAdder</code>s and times
+ * are kept in <code>LatenessHistogram</code>s, so recording costs a few nanoseconds and creates no objects.
+ */
+public final class PlaybackMetrics implements PlaybackMetricsMBean {
+	
+	/* Static Constants */
+	
+	/**
+	 * The name the metrics are published under.
+	 */
+	public static final String OBJECT_NAME = "midi:type=Playback";
+	
+	private static final long NANOS_PER_MILLI = 1000000;
+	
+	private static final PlaybackMetrics DEFAULT = register(new PlaybackMetrics(), OBJECT_NAME);
+	
+	/* END Static Constants */
+	
+	
+	/* Fields */
+	
+	private final LongAdder notesPlayed = new LongAdder();
+	private final LongAdder activeNotes = new LongAdder();
+	private final LongAdder instrumentsLoaded = new LongAdder();
+	private final LongAdder instrumentLoadNanos = new LongAdder();
+	private final LatenessHistogram dispatch = new LatenessHistogram();
+	private final LatenessHistogram lateness = new LatenessHistogram();
+	private volatile long synthesizerOpenNanos;
+	
+	/* END Fields */
+	
+	
+	/* Constructors */
+	
+	private PlaybackMetrics () {
+	}
+	
+	/* END Constructors */
+	
+	
+	/* (PlaybackMetricsMBean) Methods */
+	
+	/**
+	 * Returns the number of notes started by every <code>Instrument</code>.
+	 * @see midi.PlaybackMetricsMBean#getNotesPlayed()
+	 */
+	public long getNotesPlayed () {
+		return notesPlayed.sum();
+	}
+	
+	/**
+	 * Returns the number of notes which have been started and not yet stopped.
+	 * @see midi.PlaybackMetricsMBean#getActiveNotes()
+	 */
+	public long getActiveNotes () {
+		return activeNotes.sum();
+	}
+	
+	/**
+	 * Returns how long the shared synthesizer took to open.
+	 * @see midi.PlaybackMetricsMBean#getSynthesizerOpenMillis()
+	 */
+	public long getSynthesizerOpenMillis () {
+		return synthesizerOpenNanos / NANOS_PER_MILLI;
+	}
+	
+	/**
+	 * Returns the number of patches loaded from the soundbank.
+	 * @see midi.PlaybackMetricsMBean#getInstrumentsLoaded()
+	 */
+	public long getInstrumentsLoaded () {
+		return instrumentsLoaded.sum();
+	}
+	
+	/**
+	 * Returns how long loading patches from the soundbank has taken altogether.
+	 * @see midi.PlaybackMetricsMBean#getInstrumentLoadMillis()
+	 */
+	public long getInstrumentLoadMillis () {
+		return instrumentLoadNanos.sum() / NANOS_PER_MILLI;
+	}
+	
+	/**
+	 * Returns the median time taken to send a note on message.
+	 * @see midi.PlaybackMetricsMBean#getNoteOnDispatchP50Micros()
+	 */
+	public long getNoteOnDispatchP50Micros () {
+		return dispatch.getPercentile(50);
+	}
+	
+	/**
+	 * Returns the 99th percentile of the time taken to send a note on message.
+	 * @see midi.PlaybackMetricsMBean#getNoteOnDispatchP99Micros()
+	 */
+	public long getNoteOnDispatchP99Micros () {
+		return dispatch.getPercentile(99);
+	}
+	
+	/**
+	 * Returns the longest time taken to send a note on message.
+	 * @see midi.PlaybackMetricsMBean#getNoteOnDispatchMaxMicros()
+	 */
+	public long getNoteOnDispatchMaxMicros () {
+		return dispatch.getMax();
+	}
+	
+	/**
+	 * Returns the number of deadlines met by every <code>DeadlineScheduler</code>.
+	 * @see midi.PlaybackMetricsMBean#getDeadlines()
+	 */
+	public long getDeadlines () {
+		return lateness.getCount();
+	}
+	
+	/**
+	 * Returns the median lateness of the deadlines met.
+	 * @see midi.PlaybackMetricsMBean#getLatenessP50Micros()
+	 */
+	public long getLatenessP50Micros () {
+		return lateness.getPercentile(50);
+	}
+	
+	/**
+	 * Returns the 99th percentile of the lateness of the deadlines met.
+	 * @see midi.PlaybackMetricsMBean#getLatenessP99Micros()
+	 */
+	public long getLatenessP99Micros () {
+		return lateness.getPercentile(99);
+	}
+	
+	/**
+	 * Returns the greatest lateness of the deadlines met.
+	 * @see midi.PlaybackMetricsMBean#getLatenessMaxMicros()
+	 */
+	public long getLatenessMaxMicros () {
+		return lateness.getMax();
+	}
+	
+	/**
+	 * Forgets the counts, times and percentiles recorded so far, except the number of active notes and the synthesizer open time.
+	 * @see midi.PlaybackMetricsMBean#reset()
+	 */
+	public void reset () {
+		notesPlayed.reset();
+		instrumentsLoaded.reset();
+		instrumentLoadNanos.reset();
+		dispatch.reset();
+		lateness.reset();
+	}
+	
+	/* END (PlaybackMetricsMBean) Methods */
+	
+	
+	/* Methods */
+	
+	/**
+	 * Records that the shared synthesizer was opened.
+	 * @param nanos the time it took to open (in nanoseconds)
+	 */
+	void recordSynthesizerOpen (long nanos) {
+		synthesizerOpenNanos = nanos;
+	}
+	
+	/**
+	 * Records that a patch was loaded from the soundbank.
+	 * @param nanos the time it took to load (in nanoseconds)
+	 */
+	void recordInstrumentLoad (long nanos) {
+		instrumentsLoaded.increment();
+		instrumentLoadNanos.add(nanos);
+	}
+	
+	/**
+	 * Records that a note was started.
+	 * @param nanos the time the note on message took to send (in nanoseconds)
+	 */
+	void recordNoteOn (long nanos) {
+		notesPlayed.increment();
+		activeNotes.increment();
+		dispatch.record(nanos);
+	}
+	
+	/**
+	 * Records that a note was stopped.
+	 */
+	void recordNoteOff () {
+		activeNotes.decrement();
+	}
+	
+	/**
+	 * Records how late a deadline was met.
+	 * @param nanos the lateness (in nanoseconds)
+	 */
+	void recordLateness (long nanos) {
+		lateness.record(nanos);
+	}
+	
+	/* END Methods */
+	
+	
+	/* Static Methods */
+	
+	/**
+	 * Returns the process-wide <code>PlaybackMetrics</code>, which is published over JMX the first time it is used.
+	 * @return the <code>PlaybackMetrics</code>
+	 */
+	public static PlaybackMetrics getDefault () {
+		return DEFAULT;
+	}
+	
+	/**
+	 * Publishes a bean on the platform MBean server under a name, unless it cannot be published,
+	 * in which case the bean still counts but cannot be seen over JMX.
+	 */
+	static <T> T register (T bean, String name) {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(bean, new ObjectName(name));
+		} catch (JMException e) {
+		} catch (SecurityException e) {
+		}
+		return bean;
+	}
+	
+	/* END Static Methods */
+
+}
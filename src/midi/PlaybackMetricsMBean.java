@@ -0,0 +1,98 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package midi;
+
+
+/**
+ * The attributes and operations of <code>PlaybackMetrics</code> which are published over JMX.
+ * Times are in milliseconds, and percentiles of lateness and dispatch time in microseconds.
+ */
+public interface PlaybackMetricsMBean {
+	
+	/**
+	 * Returns the number of notes started by every <code>Instrument</code>.
+	 * @return the number of note on messages sent
+	 */
+	public long getNotesPlayed ();
+	
+	/**
+	 * Returns the number of notes which have been started and not yet stopped.
+	 * @return the number of notes sounding
+	 */
+	public long getActiveNotes ();
+	
+	/**
+	 * Returns how long the shared synthesizer took to open.
+	 * @return the time (in milliseconds), or 0 if it has not been opened
+	 */
+	public long getSynthesizerOpenMillis ();
+	
+	/**
+	 * Returns the number of patches loaded from the soundbank.
+	 * @return the number of patches loaded
+	 */
+	public long getInstrumentsLoaded ();
+	
+	/**
+	 * Returns how long loading patches from the soundbank has taken altogether.
+	 * @return the time (in milliseconds)
+	 */
+	public long getInstrumentLoadMillis ();
+	
+	/**
+	 * Returns the median time taken to send a note on message.
+	 * @return the 50th percentile (in microseconds)
+	 */
+	public long getNoteOnDispatchP50Micros ();
+	
+	/**
+	 * Returns the 99th percentile of the time taken to send a note on message.
+	 * @return the 99th percentile (in microseconds)
+	 */
+	public long getNoteOnDispatchP99Micros ();
+	
+	/**
+	 * Returns the longest time taken to send a note on message.
+	 * @return the maximum (in microseconds)
+	 */
+	public long getNoteOnDispatchMaxMicros ();
+	
+	/**
+	 * Returns the number of deadlines met by every <code>DeadlineScheduler</code>.
+	 * @return the number of deadlines
+	 */
+	public long getDeadlines ();
+	
+	/**
+	 * Returns the median lateness of the deadlines met.
+	 * @return the 50th percentile (in microseconds)
+	 */
+	public long getLatenessP50Micros ();
+	
+	/**
+	 * Returns the 99th percentile of the lateness of the deadlines met.
+	 * @return the 99th percentile (in microseconds)
+	 */
+	public long getLatenessP99Micros ();
+	
+	/**
+	 * Returns the greatest lateness of the deadlines met.
+	 * @return the maximum (in microseconds)
+	 */
+	public long getLatenessMaxMicros ();
+	
+	/**
+	 * Forgets the counts, times and percentiles recorded so far, except the number of active notes and the synthesizer open time.
+	 */
+	public void reset ();
+
+}
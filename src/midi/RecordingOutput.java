@@ -0,0 +1,173 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package midi;
+
+import java.util.Arrays;
+
+import javax.sound.midi.ShortMessage;
+
+
+/**
+ * A <code>MidiOutput</code> which keeps every note on and note off message in memory, with the time it was sent.
+ * Times are taken from a <code>Clock</code>, usually the one the playing <code>Instrument</code> keeps time with,
+ * so that playback with a <code>VirtualClock</code> can be checked exactly.
+ * The messages are held in arrays, so a whole song can be recorded without creating an object per message.
+ * A <code>RecordingOutput</code> may be read by another thread while it records.
+ */
+public class RecordingOutput implements MidiOutput {
+	
+	/* Static Constants */
+	
+	private static final int DEFAULT_CAPACITY = 256;
+	
+	/* END Static Constants */
+	
+	
+	/* Fields */
+	
+	private final Clock clock;
+	private long [] times = new long[DEFAULT_CAPACITY];
+	private int [] messages = new int[DEFAULT_CAPACITY];
+	private int size;
+	
+	/* END Fields */
+	
+	
+	/* Constructors */
+	
+	/**
+	 * Constructs a <code>RecordingOutput</code> which records the time of each message from a <code>Clock</code>.
+	 * @param clock the clock to take times from
+	 */
+	public RecordingOutput (Clock clock) {
+		this.clock = clock;
+	}
+	
+	/* END Constructors */
+	
+	
+	/* Accessors */
+	
+	/**
+	 * Returns the number of messages recorded.
+	 * @return the number of messages
+	 */
+	public synchronized int size () {
+		return size;
+	}
+	
+	/**
+	 * Returns the time a message was sent.
+	 * @param index the index of the message
+	 * @return the time, as returned by the clock (in nanoseconds)
+	 * @throws IndexOutOfBoundsException if index is out of range
+	 */
+	public synchronized long getTime (int index) throws IndexOutOfBoundsException {
+		checkIndex(index);
+		return times[index];
+	}
+	
+	/**
+	 * Returns the command of a message.
+	 * @param index the index of the message
+	 * @return <code>ShortMessage.NOTE_ON</code> or <code>ShortMessage.NOTE_OFF</code>
+	 * @throws IndexOutOfBoundsException if index is out of range
+	 */
+	public synchronized int getCommand (int index) throws IndexOutOfBoundsException {
+		checkIndex(index);
+		return messages[index] >>> 16;
+	}
+	
+	/**
+	 * Returns the MIDI number of the note of a message.
+	 * @param index the index of the message
+	 * @return the MIDI number (0 through 127)
+	 * @throws IndexOutOfBoundsException if index is out of range
+	 */
+	public synchronized int getMIDI (int index) throws IndexOutOfBoundsException {
+		checkIndex(index);
+		return (messages[index] >> 8) & 0xFF;
+	}
+	
+	/**
+	 * Returns the velocity of a message.
+	 * @param index the index of the message
+	 * @return the velocity, which is 0 for a note off
+	 * @throws IndexOutOfBoundsException if index is out of range
+	 */
+	public synchronized int getVelocity (int index) throws IndexOutOfBoundsException {
+		checkIndex(index);
+		return messages[index] & 0xFF;
+	}
+	
+	/* END Accessors */
+	
+	
+	/* Methods */
+	
+	/**
+	 * Forgets every message recorded.
+	 */
+	public synchronized void clear () {
+		size = 0;
+	}
+	
+	/* END Methods */
+	
+	
+	/* (MidiOutput) Methods */
+	
+	/**
+	 * Records a note on message.
+	 * @see midi.MidiOutput#noteOn(int, int)
+	 */
+	public void noteOn (int midi, int velocity) {
+		record(ShortMessage.NOTE_ON, midi, velocity);
+	}
+	
+	/**
+	 * Records a note off message.
+	 * @see midi.MidiOutput#noteOff(int)
+	 */
+	public void noteOff (int midi) {
+		record(ShortMessage.NOTE_OFF, midi, 0);
+	}
+	
+	/**
+	 * Does nothing; the messages recorded can still be read.
+	 * @see midi.MidiOutput#close()
+	 */
+	public void close () {
+	}
+	
+	/* END (MidiOutput) Methods */
+	
+	
+	/* Local Methods */
+	
+	private synchronized void record (int command, int midi, int velocity) {
+		if (size == times.length) {
+			times = Arrays.copyOf(times, size * 2);
+			messages = Arrays.copyOf(messages, size * 2);
+		}
+		times[size] = clock.nanoTime();
+		messages[size++] = (command << 16) | ((midi & 0xFF) << 8) | (velocity & 0xFF);
+	}
+	
+	private void checkIndex (int index) throws IndexOutOfBoundsException {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+	}
+	
+	/* END Local Methods */
+
+}
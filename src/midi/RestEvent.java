@@ -0,0 +1,57 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package midi;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+
+/**
+ * A Java Flight Recorder event for a rest of an <code>Instrument</code>, which lasts as long as the instrument waited,
+ * with the time the rest was due to end and the time it did, by the clock of the instrument.
+ * The event is disabled by default, like <code>NoteEvent</code>.
+ */
+@Name("midi.Rest")
+@Label("Rest")
+@Category({ "MIDI", "Playback" })
+@Description("A wait of an instrument for the end of a rest or note")
+@Enabled(false)
+@StackTrace(false)
+final class RestEvent extends Event {
+	
+	/* Fields */
+	
+	@Label("Channel")
+	@Description("The synthesizer channel, or -1 if the instrument does not play on one")
+	int channel;
+	
+	@Label("Intended Time")
+	@Description("When the rest was due to end, by the clock of the instrument (in nanoseconds)")
+	long intended;
+	
+	@Label("Actual Time")
+	@Description("When the rest ended, by the clock of the instrument (in nanoseconds)")
+	long actual;
+	
+	@Label("Lateness")
+	@Timespan(Timespan.NANOSECONDS)
+	long lateness;
+	
+	/* END Fields */
+
+}
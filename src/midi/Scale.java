@@ -0,0 +1,252 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package midi;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Vector;
+
+
+/**
+ * A scale or mode, given by the steps (in semitones) between its degrees, which add up to an octave.
+ * The number of semitones from the tonic to each degree is worked out once, when the scale is constructed,
+ * so that any degree, including those in other octaves and below the tonic, is found without a loop.
+ * The common scales and the modes of the major scale are available by name, for <code>parseScale(String)</code>.
+ * A <code>Scale</code> cannot be changed.
+ */
+public final class Scale {
+	
+	/* Static */
+	
+	private static HashMap<String, Scale> namedScales = new HashMap<String, Scale>(16);
+		
+		/* Static Constants */
+		
+		/**
+		 * The chromatic scale, which has all twelve semitones.
+		 */
+		public static final Scale CHROMATIC = name(new Scale("chromatic", 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1));
+		
+		/**
+		 * The major scale (the Ionian mode).
+		 */
+		public static final Scale MAJOR = name(new Scale("major", 2, 2, 1, 2, 2, 2, 1));
+		
+		/**
+		 * The Dorian mode, which starts on the second degree of the major scale.
+		 */
+		public static final Scale DORIAN = name(MAJOR.getMode(2, "dorian"));
+		
+		/**
+		 * The Phrygian mode, which starts on the third degree of the major scale.
+		 */
+		public static final Scale PHRYGIAN = name(MAJOR.getMode(3, "phrygian"));
+		
+		/**
+		 * The Lydian mode, which starts on the fourth degree of the major scale.
+		 */
+		public static final Scale LYDIAN = name(MAJOR.getMode(4, "lydian"));
+		
+		/**
+		 * The Mixolydian mode, which starts on the fifth degree of the major scale.
+		 */
+		public static final Scale MIXOLYDIAN = name(MAJOR.getMode(5, "mixolydian"));
+		
+		/**
+		 * The natural minor scale (the Aeolian mode), which starts on the sixth degree of the major scale.
+		 */
+		public static final Scale MINOR = name(MAJOR.getMode(6, "minor"));
+		
+		/**
+		 * The Locrian mode, which starts on the seventh degree of the major scale.
+		 */
+		public static final Scale LOCRIAN = name(MAJOR.getMode(7, "locrian"));
+		
+		/**
+		 * The harmonic minor scale.
+		 */
+		public static final Scale HARMONIC_MINOR = name(new Scale("harmonic-minor", 2, 1, 2, 2, 1, 3, 1));
+		
+		/**
+		 * The melodic minor scale, as played ascending.
+		 */
+		public static final Scale MELODIC_MINOR = name(new Scale("melodic-minor", 2, 1, 2, 2, 2, 2, 1));
+		
+		/**
+		 * The major pentatonic scale.
+		 */
+		public static final Scale PENTATONIC = name(new Scale("pentatonic", 2, 2, 3, 2, 3));
+		
+		/**
+		 * The minor pentatonic scale.
+		 */
+		public static final Scale MINOR_PENTATONIC = name(new Scale("minor-pentatonic", 3, 2, 2, 3, 2));
+		
+		/**
+		 * The blues scale.
+		 */
+		public static final Scale BLUES = name(new Scale("blues", 3, 2, 1, 1, 3, 2));
+		
+		/**
+		 * The whole tone scale.
+		 */
+		public static final Scale WHOLE_TONE = name(new Scale("whole-tone", 2, 2, 2, 2, 2, 2));
+		
+		private static final int OCTAVE = 12;
+		
+		/* END Static Constants */
+	
+	/* END Static */
+	
+	
+	/* Fields */
+	
+	private final String name;
+	private final int [] steps;
+	private final int [] offsets;
+	
+	/* END Fields */
+	
+	
+	/* Constructors */
+	
+	/**
+	 * Constructs a <code>Scale</code> from the steps between its degrees.
+	 * @param name the name of the scale
+	 * @param steps the number of semitones from each degree to the next, starting from the tonic
+	 * @throws IllegalArgumentException if there are no steps, a step is less than 1, or the steps do not add up to an octave
+	 */
+	public Scale (String name, int... steps) throws IllegalArgumentException {
+		if (steps.length == 0)
+			throw new IllegalArgumentException("A scale must have at least one step.");
+		
+		int [] offsets = new int[steps.length];
+		int total = 0;
+		for (int i = 0; i < steps.length; i++) {
+			if (steps[i] < 1)
+				throw new IllegalArgumentException("Each step of a scale must be at least 1 semitone.");
+			offsets[i] = total;
+			total += steps[i];
+		}
+		if (total != OCTAVE)
+			throw new IllegalArgumentException("The steps of a scale must add up to " + OCTAVE + " semitones, not " + total + ".");
+		
+		this.name = name;
+		this.steps = steps.clone();
+		this.offsets = offsets;
+	}
+	
+	/* END Constructors */
+	
+	
+	/* Accessors */
+	
+	/**
+	 * Returns the name of this scale.
+	 * @return the name
+	 */
+	public String getName () {
+		return name;
+	}
+	
+	/**
+	 * Returns the number of degrees in an octave of this scale.
+	 * @return the number of degrees
+	 */
+	public int size () {
+		return offsets.length;
+	}
+	
+	/**
+	 * Returns the number of semitones from the tonic to a degree of this scale.
+	 * @param degree the degree, counting from 0 at the tonic, which may be negative or beyond the first octave
+	 * @return the number of semitones, which is negative for a degree below the tonic
+	 */
+	public int getOffset (int degree) {
+		int n = offsets.length;
+		return Math.floorDiv(degree, n) * OCTAVE + offsets[Math.floorMod(degree, n)];
+	}
+	
+	/* END Accessors */
+	
+	
+	/* Methods */
+	
+	/**
+	 * Returns a mode of this scale, which has the same steps but starts on another degree.
+	 * @param degree the degree to start on, counting from 1 at the tonic
+	 * @param name the name of the mode
+	 * @return the <code>Scale</code> of the mode
+	 * @throws IllegalArgumentException if degree is not a degree of this scale
+	 */
+	public Scale getMode (int degree, String name) throws IllegalArgumentException {
+		if (degree < 1 || degree > steps.length)
+			throw new IllegalArgumentException("The degree must be between 1 and " + steps.length + " inclusive.");
+		
+		int [] mode = new int[steps.length];
+		for (int i = 0; i < steps.length; i++)
+			mode[i] = steps[(degree - 1 + i) % steps.length];
+		return new Scale(name, mode);
+	}
+	
+	/* END Methods */
+	
+	
+	/* (Object) Methods */
+	
+	@Override
+	/**
+	 * Returns the name of this scale.
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString () {
+		return name;
+	}
+	
+	/* END (Object) Methods */
+	
+	
+	/* Static Methods */
+	
+	/**
+	 * Returns a named scale.
+	 * @param str the name of the scale, such as <code>"major"</code> or <code>"dorian"</code>
+	 * @return the <code>Scale</code>
+	 * @throws IllegalArgumentException if there is no scale with that name
+	 */
+	public static Scale parseScale (String str) throws IllegalArgumentException {
+		Scale scale = namedScales.get(str.toLowerCase());
+		if (scale == null)
+			throw new IllegalArgumentException("Cannot find scale " + str);
+		return scale;
+	}
+	
+	/**
+	 * Returns a <code>Vector&lt;String&gt;</code> of available named scales.
+	 * @return a list of named scales
+	 */
+	public static Vector<String> getNamedScales () {
+		Vector<String> v = new Vector<String>(namedScales.size());
+		Iterator<String> i = namedScales.keySet().iterator();
+		while (i.hasNext())
+			v.add(i.next());
+		return v;
+	}
+	
+	private static Scale name (Scale scale) {
+		namedScales.put(scale.getName(), scale);
+		return scale;
+	}
+	
+	/* END Static Methods */
+
+}
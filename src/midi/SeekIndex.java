@@ -0,0 +1,369 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package midi;
+
+import timing.TempoMap;
+import timing.TimeContext;
+import timing.TimeSignature;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+
+/**
+ * Finds where a song is at a given time or bar, so that it can be played from the middle without
+ * reading the events before that point.
+ * The index is built once from an <code>EventBuffer</code> and its <code>TempoMap</code>, and holds the tick at which
+ * each step of the song starts (a step is a note, rest, or whole chord), which is the sum of the durations before it,
+ * and the tick at which each bar starts.  A bar is as long as the time signature of the map says, and a new bar
+ * begins wherever the time signature changes.  Seeking is a binary search of these arrays.
+ * A <code>SeekIndex</code> cannot be changed, and may be used by several threads at once.
+ */
+public final class SeekIndex {
+	
+	/* Fields */
+	
+	private final EventBuffer events;
+	private final TempoMap tempo;
+	
+	//for each step: the index of its first event, and its start tick, with one more entry for the end of the song
+	private final int [] stepIndices;
+	private final long [] stepTicks;
+	private final long [] barTicks;
+	
+	/* END Fields */
+	
+	
+	/* Constructors */
+	
+	/**
+	 * Constructs a <code>SeekIndex</code> for events whose durations are milliseconds, that is, ticks of <code>TempoMap.DEFAULT</code>.
+	 * @param events the events of the song
+	 */
+	public SeekIndex (EventBuffer events) {
+		this(events, TempoMap.DEFAULT);
+	}
+	
+	/**
+	 * Constructs a <code>SeekIndex</code> for events whose durations are ticks of a <code>TempoMap</code>.
+	 * @param events the events of the song
+	 * @param tempo the tempo map of the song
+	 */
+	public SeekIndex (EventBuffer events, TempoMap tempo) {
+		this.events = events;
+		this.tempo = tempo;
+		
+		int n = events.size();
+		int steps = 0;
+		for (int i = 0; i < n; i++)
+			if (PackedEvent.getType(events.get(i)) != PackedEvent.TYPE_CHORD)
+				steps++;
+		//an unfinished chord at the end is a step of its own
+		if (n > 0 && PackedEvent.getType(events.get(n - 1)) == PackedEvent.TYPE_CHORD)
+			steps++;
+		
+		this.stepIndices = new int[steps + 1];
+		this.stepTicks = new long[steps + 1];
+		long tick = 0;
+		int step = 0;
+		boolean open = false;
+		for (int i = 0; i < n; i++) {
+			int e = events.get(i);
+			if (!open) {
+				stepIndices[step] = i;
+				stepTicks[step] = tick;
+				open = true;
+			}
+			if (PackedEvent.getType(e) != PackedEvent.TYPE_CHORD) {
+				tick += PackedEvent.getDuration(e);
+				step++;
+				open = false;
+			}
+		}
+		if (open) {
+			tick += PackedEvent.getDuration(events.get(n - 1));
+			step++;
+		}
+		stepIndices[step] = n;
+		stepTicks[step] = tick;
+		
+		this.barTicks = findBars(tempo, tick);
+	}
+	
+	/* END Constructors */
+	
+	
+	/* Accessors */
+	
+	/**
+	 * Returns the length of the song.
+	 * @return the total duration (in ticks)
+	 */
+	public long getLength () {
+		return stepTicks[stepTicks.length - 1];
+	}
+	
+	/**
+	 * Returns the number of bars in the song, counting a bar which is only partly filled.
+	 * @return the number of bars (at least 1)
+	 */
+	public int getBarCount () {
+		return barTicks.length;
+	}
+	
+	/**
+	 * Returns the tick at which a bar starts.
+	 * @param bar the number of the bar, starting from 1
+	 * @return the tick
+	 * @throws IllegalArgumentException if there is no such bar
+	 */
+	public long getBarTick (int bar) throws IllegalArgumentException {
+		if (bar < 1 || bar > barTicks.length)
+			throw new IllegalArgumentException("The bar must be between 1 and " + barTicks.length + " inclusive.");
+		return barTicks[bar - 1];
+	}
+	
+	/**
+	 * Returns the number of the bar a tick is in.
+	 * @param tick the tick (not negative)
+	 * @return the number of the bar, starting from 1
+	 */
+	public int getBar (long tick) {
+		int i = Arrays.binarySearch(barTicks, tick);
+		return ((i >= 0) ? i : Math.max(0, -i - 2)) + 1;
+	}
+	
+	/* END Accessors */
+	
+	
+	/* Methods */
+	
+	/**
+	 * Finds where the song is at a time from its start.
+	 * @param nanos the time (in nanoseconds, not negative)
+	 * @return the <code>Position</code>
+	 * @throws IllegalArgumentException if nanos is negative
+	 */
+	public Position seekTime (long nanos) throws IllegalArgumentException {
+		return seekTick(tempo.toTick(nanos));
+	}
+	
+	/**
+	 * Finds where the song is at the start of a bar.
+	 * @param bar the number of the bar, starting from 1
+	 * @return the <code>Position</code>
+	 * @throws IllegalArgumentException if there is no such bar
+	 */
+	public Position seekBar (int bar) throws IllegalArgumentException {
+		return seekTick(getBarTick(bar));
+	}
+	
+	/**
+	 * Finds where the song is at a tick.  A tick past the end of the song is the end of the song.
+	 * @param tick the tick (not negative)
+	 * @return the <code>Position</code>
+	 * @throws IllegalArgumentException if tick is negative
+	 */
+	public Position seekTick (long tick) throws IllegalArgumentException {
+		if (tick < 0)
+			throw new IllegalArgumentException("A tick cannot be negative.");
+		
+		int steps = stepTicks.length - 1;
+		tick = Math.min(tick, stepTicks[steps]);
+		int step = Arrays.binarySearch(stepTicks, 0, steps, tick);
+		if (step < 0)
+			step = -step - 2;
+		else
+			//steps with no duration start at the same tick; the last of them is the one reached
+			while (step + 1 < steps && stepTicks[step + 1] == tick)
+				step++;
+		
+		if (step < 0 || stepTicks[step + 1] <= tick)
+			return new Position(tick, stepIndices[steps], new int[0], 0);
+		
+		int first = stepIndices[step], next = stepIndices[step + 1];
+		int [] sounding = new int[next - first];
+		int count = 0;
+		for (int i = first; i < next; i++)
+			if (PackedEvent.getType(events.get(i)) != PackedEvent.TYPE_REST)
+				sounding[count++] = PackedEvent.getMIDI(events.get(i));
+		return new Position(tick, next, Arrays.copyOf(sounding, count), stepTicks[step + 1] - tick);
+	}
+	
+	/* END Methods */
+	
+	
+	/* Static Methods */
+	
+	/**
+	 * Returns the tick at which each bar starts, until a song of a length ends.
+	 */
+	private static long [] findBars (TempoMap tempo, long length) {
+		long [] bars = new long[16];
+		int count = 0;
+		TimeSignature signature = new TimeSignature(4, 4);
+		long tick = 0, end = 0;
+		for (int i = 0; i <= tempo.getTempoCount(); i++) {
+			//the bars of the current signature run until the next one which differs, or until the end of the song
+			TimeSignature next = null;
+			if (i < tempo.getTempoCount()) {
+				TimeContext context = tempo.getContext(i);
+				if (context == null || (i > 0 && sameSignature(context.getTimeSignature(), signature)))
+					continue;
+				next = context.getTimeSignature();
+				end = tempo.getTempoTick(i);
+			} else {
+				end = Math.max(length, tick + 1);
+			}
+			
+			long bar = Math.max(1, (long)tempo.getResolution() * 4 * signature.getBeats() / signature.getValue());
+			for (; tick < end; tick += bar) {
+				if (count == bars.length)
+					bars = Arrays.copyOf(bars, count * 2);
+				bars[count++] = tick;
+			}
+			tick = end;
+			if (next != null)
+				signature = next;
+		}
+		return Arrays.copyOf(bars, count);
+	}
+	
+	private static boolean sameSignature (TimeSignature a, TimeSignature b) {
+		return a.getBeats() == b.getBeats() && a.getValue() == b.getValue();
+	}
+	
+	/* END Static Methods */
+	
+	
+	/* Inner Classes */
+	
+	/**
+	 * A point in a song found by a <code>SeekIndex</code>: the notes sounding there and the events which follow.
+	 * To play from the point, the sounding notes are held for <code>getRemaining()</code> ticks, and then the events
+	 * from <code>getIndex()</code> onward are played, with a <code>DeadlineScheduler</code> started at <code>getTick()</code>
+	 * so that the tempo map is followed from there.  <code>getHead()</code> and <code>getTail()</code> give these as events.
+	 */
+	public final class Position {
+		
+		private final long tick;
+		private final int index;
+		private final int [] sounding;
+		private final long remaining;
+		
+		private Position (long tick, int index, int [] sounding, long remaining) {
+			this.tick = tick;
+			this.index = index;
+			this.sounding = sounding;
+			this.remaining = remaining;
+		}
+		
+		/**
+		 * Returns the tick of this position.
+		 * @return the tick from the start of the song
+		 */
+		public long getTick () {
+			return tick;
+		}
+		
+		/**
+		 * Returns the time of this position.
+		 * @return the time from the start of the song (in nanoseconds)
+		 */
+		public long getNanos () {
+			return tempo.toNanos(tick);
+		}
+		
+		/**
+		 * Returns the tempo map of the song.
+		 * @return the <code>TempoMap</code> of the <code>SeekIndex</code>
+		 */
+		public TempoMap getTempoMap () {
+			return tempo;
+		}
+		
+		/**
+		 * Returns the number of the bar this position is in.
+		 * @return the number of the bar, starting from 1
+		 */
+		public int getBar () {
+			return SeekIndex.this.getBar(tick);
+		}
+		
+		/**
+		 * Returns the index of the first event which starts after this position.
+		 * @return the index in the <code>EventBuffer</code>, which is its size at the end of the song
+		 */
+		public int getIndex () {
+			return index;
+		}
+		
+		/**
+		 * Returns the notes which are sounding at this position.
+		 * @return the MIDI numbers of the notes, which is empty during a rest
+		 */
+		public int [] getSounding () {
+			return sounding.clone();
+		}
+		
+		/**
+		 * Returns the notes which are sounding at this position.
+		 * @return the pitches of the notes, which is empty during a rest
+		 */
+		public Pitch [] getPitches () {
+			Pitch [] pitches = new Pitch[sounding.length];
+			for (int i = 0; i < sounding.length; i++)
+				pitches[i] = Pitch.of(sounding[i]);
+			return pitches;
+		}
+		
+		/**
+		 * Returns how long the notes or rest at this position continue.
+		 * @return the time until the next event starts (in ticks)
+		 */
+		public long getRemaining () {
+			return remaining;
+		}
+		
+		/**
+		 * Returns the notes sounding at this position as an event which lasts for the rest of their duration,
+		 * or a rest if no notes are sounding.
+		 * @return the events, which are empty at the end of the song
+		 */
+		public EventBuffer getHead () {
+			EventBuffer.Builder head = new EventBuffer.Builder(Math.max(1, sounding.length));
+			if (remaining == 0)
+				return head.build();
+			
+			int duration = (int)Math.min(remaining, PackedEvent.MAX_DURATION);
+			if (sounding.length == 0)
+				head.add(PackedEvent.TYPE_REST, 0, duration);
+			for (int i = 0; i < sounding.length; i++)
+				head.add((i < sounding.length - 1) ? PackedEvent.TYPE_CHORD : PackedEvent.TYPE_NOTE, sounding[i], duration);
+			return head.build();
+		}
+		
+		/**
+		 * Returns the events which follow this position, without copying them.
+		 * @return the events from <code>getIndex()</code> onward
+		 */
+		public EventBuffer getTail () {
+			IntBuffer tail = events.asIntBuffer();
+			tail.position(index);
+			return EventBuffer.wrap(tail);
+		}
+	
+	}
+	
+	/* END Inner Classes */
+
+}
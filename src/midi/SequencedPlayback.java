@@ -0,0 +1,161 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package midi;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MetaEventListener;
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.MidiUnavailableException;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.Sequencer;
+
+
+/**
+ * A <code>Sequence</code> being played by the system <code>Sequencer</code>.
+ * Playback starts as soon as the <code>SequencedPlayback</code> is started, and the timing of every
+ * message comes from the sequencer's clock, so the thread which started it is free until it calls <code>await()</code>.
+ * The sequencer is closed when the sequence ends or playback is stopped.
+ */
+public class SequencedPlayback {
+	
+	/* Static Constants */
+	
+	/**
+	 * The type of the meta message which ends a track.
+	 */
+	static final int META_END_OF_TRACK = 0x2F;
+	
+	/* END Static Constants */
+	
+	
+	/* Fields */
+	
+	private final Sequencer sequencer;
+	private final CountDownLatch done = new CountDownLatch(1);
+	
+	/* END Fields */
+	
+	
+	/* Constructors */
+	
+	private SequencedPlayback (Sequencer sequencer) {
+		this.sequencer = sequencer;
+	}
+	
+	/* END Constructors */
+	
+	
+	/* Methods */
+	
+	/**
+	 * Waits until the sequence has finished playing or playback is stopped.
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public void await () throws InterruptedException {
+		done.await();
+	}
+	
+	/**
+	 * Waits until the sequence has finished playing or playback is stopped, or until a timeout elapses.
+	 * @param timeout the longest time to wait
+	 * @param unit the unit of timeout
+	 * @return <code>true</code> if playback has finished, or <code>false</code> if the timeout elapsed first
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public boolean await (long timeout, TimeUnit unit) throws InterruptedException {
+		return done.await(timeout, unit);
+	}
+	
+	/**
+	 * Returns <code>true</code> if the sequence has finished playing or playback has been stopped.
+	 * @return <code>true</code> if playback has finished
+	 */
+	public boolean isDone () {
+		return done.getCount() == 0;
+	}
+	
+	/**
+	 * Returns how far playback has reached.
+	 * @return the position in the sequence (in microseconds)
+	 */
+	public long getPosition () {
+		return sequencer.getMicrosecondPosition();
+	}
+	
+	/**
+	 * Stops playback and closes the sequencer.  Notes which are sounding are turned off.
+	 * This has no effect if playback has already finished.
+	 */
+	public void stop () {
+		finish();
+	}
+	
+	/* END Methods */
+	
+	
+	/* Local Methods */
+	
+	private synchronized void finish () {
+		if (isDone())
+			return;
+		
+		sequencer.stop();
+		sequencer.close();
+		done.countDown();
+	}
+	
+	/* END Local Methods */
+	
+	
+	/* Static Methods */
+	
+	/**
+	 * Starts playing a <code>Sequence</code> on the system <code>Sequencer</code>, and returns without waiting for it to finish.
+	 * @param sequence the <code>Sequence</code> to play
+	 * @param receiver the <code>Receiver</code> to send the messages of the sequence to, such as that of a <code>Synthesizer</code>
+	 * @return the <code>SequencedPlayback</code>
+	 * @throws MidiUnavailableException if there is no sequencer, or it cannot be opened
+	 * @throws IllegalArgumentException if the sequence cannot be played
+	 */
+	public static SequencedPlayback start (Sequence sequence, Receiver receiver) throws MidiUnavailableException, IllegalArgumentException {
+		Sequencer sequencer = MidiSystem.getSequencer(false);
+		final SequencedPlayback playback = new SequencedPlayback(sequencer);
+		
+		sequencer.open();
+		try {
+			sequencer.getTransmitter().setReceiver(receiver);
+			sequencer.setSequence(sequence);
+			sequencer.addMetaEventListener(new MetaEventListener() {
+				public void meta (MetaMessage message) {
+					if (message.getType() == META_END_OF_TRACK)
+						playback.finish();
+				}
+			});
+			sequencer.start();
+		} catch (InvalidMidiDataException e) {
+			sequencer.close();
+			throw new IllegalArgumentException(e.getMessage());
+		} catch (MidiUnavailableException e) {
+			sequencer.close();
+			throw e;
+		}
+		return playback;
+	}
+	
+	/* END Static Methods */
+
+}
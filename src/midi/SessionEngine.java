@@ -0,0 +1,330 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package midi;
+
+import noteGeneration.NoteADT;
+import timing.TempoMap;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Plays many songs at once on a few shared threads.
+ * Where <code>Instrument.play(EventBuffer)</code> holds its thread for the whole song, a <code>Session</code>
+ * started here holds no thread while it waits: each time an event is due, a task on the engine's
+ * <code>ScheduledExecutorService</code> sends its notes and schedules the session again for the deadline
+ * of the next event.  Deadlines are measured from the start of the session, as with <code>DeadlineScheduler</code>,
+ * so a late task does not delay the rest of the song.  A session keeps only its position and the notes it is
+ * sounding, so thousands of sessions can play at once, each to its own <code>MidiOutput</code>, such as a
+ * <code>ChannelOutput</code> of the shared synthesizer or a <code>RecordingOutput</code>.
+ */
+public class SessionEngine {
+	
+	/* Fields */
+	
+	private final ScheduledExecutorService executor;
+	private final LatenessHistogram lateness = new LatenessHistogram();
+	private final AtomicInteger active = new AtomicInteger();
+	private final Set<Session> live = new HashSet<Session>();
+	
+	/* END Fields */
+	
+	
+	/* Constructors */
+	
+	/**
+	 * Constructs a <code>SessionEngine</code> with one thread for each processor.
+	 */
+	public SessionEngine () {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * Constructs a <code>SessionEngine</code> with a number of threads.
+	 * The threads are daemon threads, so they do not keep the program running.
+	 * @param threads the number of threads to play sessions on
+	 * @throws IllegalArgumentException if threads is less than 1
+	 */
+	public SessionEngine (int threads) throws IllegalArgumentException {
+		if (threads < 1)
+			throw new IllegalArgumentException("There must be at least one thread.");
+		
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(threads, new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+			
+			public Thread newThread (Runnable r) {
+				Thread t = new Thread(r, "session-engine-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		//a stopped session's task would otherwise stay queued until its deadline
+		executor.setRemoveOnCancelPolicy(true);
+		this.executor = executor;
+	}
+	
+	/* END Constructors */
+	
+	
+	/* Accessors */
+	
+	/**
+	 * Returns how late the events of every session have been played.
+	 * @return the <code>LatenessHistogram</code> shared by the sessions
+	 */
+	public LatenessHistogram getLateness () {
+		return lateness;
+	}
+	
+	/**
+	 * Returns the number of sessions which are playing.
+	 * @return the number of sessions which have been started and have not finished or been stopped
+	 */
+	public int getActiveSessions () {
+		return active.get();
+	}
+	
+	/* END Accessors */
+	
+	
+	/* Methods */
+	
+	/**
+	 * Starts playing every event of an <code>EventBuffer</code> to a <code>MidiOutput</code>, at the default (full) velocity (volume),
+	 * and returns without waiting.  The output is not closed when the session finishes.
+	 * @param events the events to play
+	 * @param output the output to send notes to
+	 * @return the <code>Session</code>
+	 * @throws RejectedExecutionException if the engine has been shut down
+	 */
+	public Session start (EventBuffer events, MidiOutput output) throws RejectedExecutionException {
+		return start(events, output, TempoMap.DEFAULT);
+	}
+	
+	/**
+	 * Starts playing every event of an <code>EventBuffer</code>, whose durations are ticks of a <code>TempoMap</code>,
+	 * to a <code>MidiOutput</code>, and returns without waiting.  The output is not closed when the session finishes.
+	 * @param events the events to play
+	 * @param output the output to send notes to
+	 * @param tempo the tempo map which converts ticks into time
+	 * @return the <code>Session</code>
+	 * @throws RejectedExecutionException if the engine has been shut down
+	 */
+	public Session start (EventBuffer events, MidiOutput output, TempoMap tempo) throws RejectedExecutionException {
+		Session session = new Session(events, output, tempo);
+		active.incrementAndGet();
+		synchronized (live) {
+			live.add(session);
+		}
+		try {
+			session.schedule(0);
+		} catch (RejectedExecutionException e) {
+			synchronized (live) {
+				live.remove(session);
+			}
+			active.decrementAndGet();
+			throw e;
+		}
+		return session;
+	}
+	
+	/**
+	 * Stops the engine's threads.  Sessions which are playing are stopped, so their notes are released
+	 * and anything waiting for them returns.
+	 */
+	public void shutdown () {
+		executor.shutdownNow();
+		
+		Session [] sessions;
+		synchronized (live) {
+			sessions = live.toArray(new Session[live.size()]);
+		}
+		for (int i = 0; i < sessions.length; i++)
+			sessions[i].stop();
+	}
+	
+	/* END Methods */
+	
+	
+	/* Inner Classes */
+	
+	/**
+	 * A song being played by a <code>SessionEngine</code>.
+	 */
+	public final class Session implements Runnable {
+		
+		private final EventBuffer events;
+		private final MidiOutput output;
+		private final TempoMap tempo;
+		private final CountDownLatch done = new CountDownLatch(1);
+		
+		//the notes sounding: those of a chord so far, then the event which completes it
+		private final int [] sounding = new int[NoteADT.HIGH_MIDI_ABSOLUTE_NUMBER + 1];
+		private int count;
+		private int index;
+		private long origin;
+		private long position;
+		private ScheduledFuture<?> task;
+		private boolean stopped;
+		private RuntimeException failure;
+		
+		private Session (EventBuffer events, MidiOutput output, TempoMap tempo) {
+			this.events = events;
+			this.output = output;
+			this.tempo = tempo;
+		}
+		
+		/**
+		 * Waits until the session has finished playing or has been stopped.
+		 * @throws InterruptedException if the thread is interrupted while waiting
+		 */
+		public void await () throws InterruptedException {
+			done.await();
+		}
+		
+		/**
+		 * Waits until the session has finished playing or has been stopped, or until a timeout elapses.
+		 * @param timeout the longest time to wait
+		 * @param unit the unit of timeout
+		 * @return <code>true</code> if the session has finished, or <code>false</code> if the timeout elapsed first
+		 * @throws InterruptedException if the thread is interrupted while waiting
+		 */
+		public boolean await (long timeout, TimeUnit unit) throws InterruptedException {
+			return done.await(timeout, unit);
+		}
+		
+		/**
+		 * Returns <code>true</code> if the session has finished playing or has been stopped.
+		 * @return <code>true</code> if the session has finished
+		 */
+		public boolean isDone () {
+			return done.getCount() == 0;
+		}
+		
+		/**
+		 * Returns how far the session has reached.
+		 * @return the tick of the latest event played, from the start (in milliseconds with <code>TempoMap.DEFAULT</code>)
+		 */
+		public synchronized long getPosition () {
+			return position;
+		}
+		
+		/**
+		 * Returns the exception which ended the session early, such as one thrown by its output.
+		 * @return the <code>RuntimeException</code>, or <code>null</code> if the session has not failed
+		 */
+		public synchronized RuntimeException getFailure () {
+			return failure;
+		}
+		
+		/**
+		 * Stops the session and any notes it is sounding.
+		 * This has no effect if the session has already finished.
+		 */
+		public synchronized void stop () {
+			if (stopped)
+				return;
+			
+			if (task != null)
+				task.cancel(false);
+			finish();
+		}
+		
+		/**
+		 * Plays the events which are due, and schedules the session again for the next deadline.
+		 * The session finishes at the deadline after its last event, so a song which ends in a rest finishes when the rest ends.
+		 * If the output throws an exception, or the session cannot be scheduled again, the session finishes early
+		 * and keeps the exception as its failure.
+		 * This is called by the engine, and should not be called otherwise.
+		 * @see java.lang.Runnable#run()
+		 */
+		public synchronized void run () {
+			if (stopped)
+				return;
+			
+			try {
+				play();
+			} catch (RuntimeException e) {
+				failure = e;
+				finish();
+			}
+		}
+		
+		private void play () {
+			long now = System.nanoTime();
+			if (index == 0)
+				origin = now;
+			else
+				lateness.record(now - (origin + tempo.toNanos(position)));
+			
+			for (int i = 0; i < count; i++)
+				output.noteOff(sounding[i]);
+			count = 0;
+			
+			int n = events.size();
+			if (index == n) {
+				finish();
+				return;
+			}
+			while (index < n) {
+				int e = events.get(index++);
+				int type = PackedEvent.getType(e);
+				if (type != PackedEvent.TYPE_REST && count < sounding.length) {
+					sounding[count] = PackedEvent.getMIDI(e);
+					output.noteOn(sounding[count++], 127);
+				}
+				if (type != PackedEvent.TYPE_CHORD) {
+					position += PackedEvent.getDuration(e);
+					break;
+				}
+			}
+			
+			schedule(origin + tempo.toNanos(position) - System.nanoTime());
+		}
+		
+		private synchronized void schedule (long delay) {
+			task = executor.schedule(this, delay, TimeUnit.NANOSECONDS);
+		}
+		
+		private void finish () {
+			//the session must finish even if the output fails, so each note is released on its own
+			for (int i = 0; i < count; i++) {
+				try {
+					output.noteOff(sounding[i]);
+				} catch (RuntimeException e) {
+					if (failure == null)
+						failure = e;
+				}
+			}
+			count = 0;
+			stopped = true;
+			synchronized (live) {
+				live.remove(this);
+			}
+			active.decrementAndGet();
+			done.countDown();
+		}
+	
+	}
+	
+	/* END Inner Classes */
+
+}
@@ -0,0 +1,152 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package midi;
+
+import timing.TempoMap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.MidiUnavailableException;
+import javax.sound.midi.Sequence;
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+
+/**
+ * Renders an <code>EventBuffer</code> to audio without playing it.
+ * The events are converted into a <code>Sequence</code> by <code>SongSequence</code> and given to the JDK's
+ * software synthesizer, which timestamps each message to the sample and produces audio as fast as it is read,
+ * rather than in real time.  No audio device is used, so songs can be rendered on a machine without one.
+ * The synthesizer is reached through <code>AudioSystem</code>, which opens a new one for each stream, as the
+ * interface for opening a stream on a synthesizer which is already open is not public.
+ * The audio is 44.1 kHz, 16 bit stereo, and continues for a few seconds after the song so that the last notes can fade.
+ */
+public final class SongRenderer {
+	
+	/* Static Constants */
+	
+	/**
+	 * The MIDI file type written for the synthesizer: a single track.
+	 */
+	private static final int MIDI_FILE_TYPE = 0;
+	
+	/* END Static Constants */
+	
+	
+	/* Constructors */
+	
+	private SongRenderer () {
+	}
+	
+	/* END Constructors */
+	
+	
+	/* Static Methods */
+	
+	/**
+	 * Returns the audio of events as a stream, which is synthesised as it is read.
+	 * @param events the events to render
+	 * @param patch the patch to play the events with
+	 * @return the <code>AudioInputStream</code>
+	 * @throws IllegalArgumentException if the patch is out of range
+	 * @throws MidiUnavailableException if the software synthesizer is unavailable
+	 */
+	public static AudioInputStream openStream (EventBuffer events, int patch) throws IllegalArgumentException, MidiUnavailableException {
+		return openStream(events, patch, TempoMap.DEFAULT);
+	}
+	
+	/**
+	 * Returns the audio of events, whose durations are ticks of a <code>TempoMap</code>, as a stream which is synthesised as it is read.
+	 * @param events the events to render
+	 * @param patch the patch to play the events with
+	 * @param tempo the tempo map of the events
+	 * @return the <code>AudioInputStream</code>
+	 * @throws IllegalArgumentException if the patch is out of range
+	 * @throws MidiUnavailableException if the software synthesizer is unavailable
+	 */
+	public static AudioInputStream openStream (EventBuffer events, int patch, TempoMap tempo) throws IllegalArgumentException, MidiUnavailableException {
+		Sequence sequence = SongSequence.toSequence(events, 0, patch, tempo);
+		try {
+			//the synthesizer is reached through the audio file readers, which read a MIDI file into audio
+			ByteArrayOutputStream midi = new ByteArrayOutputStream();
+			MidiSystem.write(sequence, MIDI_FILE_TYPE, midi);
+			return AudioSystem.getAudioInputStream(new ByteArrayInputStream(midi.toByteArray()));
+		} catch (UnsupportedAudioFileException e) {
+			throw new MidiUnavailableException("Offline rendering is unavailable. There is no software synthesizer.");
+		} catch (IOException e) {
+			throw new MidiUnavailableException("Offline rendering is unavailable. " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Renders events to a WAV file.
+	 * @param events the events to render
+	 * @param patch the patch to play the events with
+	 * @param file the file to write
+	 * @return the number of bytes written
+	 * @throws IllegalArgumentException if the patch is out of range
+	 * @throws MidiUnavailableException if the software synthesizer is unavailable
+	 * @throws IOException if the file cannot be written
+	 */
+	public static int render (EventBuffer events, int patch, File file) throws IllegalArgumentException, MidiUnavailableException, IOException {
+		return render(events, patch, TempoMap.DEFAULT, file);
+	}
+	
+	/**
+	 * Renders events, whose durations are ticks of a <code>TempoMap</code>, to a WAV file.
+	 * @param events the events to render
+	 * @param patch the patch to play the events with
+	 * @param tempo the tempo map of the events
+	 * @param file the file to write
+	 * @return the number of bytes written
+	 * @throws IllegalArgumentException if the patch is out of range
+	 * @throws MidiUnavailableException if the software synthesizer is unavailable
+	 * @throws IOException if the file cannot be written
+	 */
+	public static int render (EventBuffer events, int patch, TempoMap tempo, File file) throws IllegalArgumentException, MidiUnavailableException, IOException {
+		AudioInputStream audio = openStream(events, patch, tempo);
+		try {
+			return AudioSystem.write(audio, AudioFileFormat.Type.WAVE, file);
+		} finally {
+			audio.close();
+		}
+	}
+	
+	/**
+	 * Renders events to a stream in the WAV format.
+	 * @param events the events to render
+	 * @param patch the patch to play the events with
+	 * @param out the stream to write to, which is not closed
+	 * @return the number of bytes written
+	 * @throws IllegalArgumentException if the patch is out of range
+	 * @throws MidiUnavailableException if the software synthesizer is unavailable
+	 * @throws IOException if the stream cannot be written
+	 */
+	public static int render (EventBuffer events, int patch, OutputStream out) throws IllegalArgumentException, MidiUnavailableException, IOException {
+		AudioInputStream audio = openStream(events, patch);
+		try {
+			return AudioSystem.write(audio, AudioFileFormat.Type.WAVE, out);
+		} finally {
+			audio.close();
+		}
+	}
+	
+	/* END Static Methods */
+
+}
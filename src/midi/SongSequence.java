@@ -0,0 +1,287 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package midi;
+
+import timing.TempoMap;
+import timing.TimeContext;
+import timing.TimeSignature;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Track;
+
+
+/**
+ * Converts an <code>EventBuffer</code> into a <code>javax.sound.midi.Sequence</code>, so that it can be played
+ * by a <code>Sequencer</code> or written to a file.
+ * Durations are ticks of a <code>TempoMap</code>, whose resolution and tempos are written into the sequence.
+ * By default the map is <code>TempoMap.DEFAULT</code>, as when the events are played or rendered, so a long note
+ * is written as a quarter note and a short note as an eighth note.
+ * A <code>Sequence</code> from any source, such as a Standard MIDI File, can be converted back into events.
+ */
+public final class SongSequence {
+	
+	/* Static Constants */
+	
+	/**
+	 * The velocity (volume) notes are played at.
+	 */
+	public static final int VELOCITY = 127;
+	
+	private static final int META_TEMPO = 0x51;
+	private static final int META_TIME_SIGNATURE = 0x58;
+	private static final int MAX_MIDI_TEMPO = 0xFFFFFF;
+	private static final int PERCUSSION_CHANNEL = 9;
+	private static final long NANOS_PER_MILLI = 1000000;
+	
+	/* END Static Constants */
+	
+	
+	/* Constructors */
+	
+	private SongSequence () {
+	}
+	
+	/* END Constructors */
+	
+	
+	/* Static Methods */
+	
+	/**
+	 * Converts events, whose durations are ticks of <code>TempoMap.DEFAULT</code>, into a <code>Sequence</code> with a single track.
+	 * The track begins with the tempo and a program change to the patch, followed by a note on and
+	 * note off message for each note, at ticks which are the sum of the durations of the events before it.
+	 * The notes of a chord share the tick of the event which completes it.
+	 * @param events the events to convert
+	 * @param channel the MIDI channel to play the events on (0 through 15)
+	 * @param patch the patch to play the events with
+	 * @return the <code>Sequence</code>
+	 * @throws IllegalArgumentException if the channel or patch is out of range
+	 */
+	public static Sequence toSequence (EventBuffer events, int channel, int patch) throws IllegalArgumentException {
+		return toSequence(events, channel, patch, TempoMap.DEFAULT);
+	}
+	
+	/**
+	 * Converts events, whose durations are ticks of a <code>TempoMap</code>, into a <code>Sequence</code> with a single track.
+	 * The sequence has the resolution of the map, and the track has a tempo message, and a time signature message
+	 * where one is known, at the tick of each tempo of the map.  The events are converted as by
+	 * <code>toSequence(EventBuffer, int, int)</code>.
+	 * @param events the events to convert
+	 * @param channel the MIDI channel to play the events on (0 through 15)
+	 * @param patch the patch to play the events with
+	 * @param tempo the tempo map of the events
+	 * @return the <code>Sequence</code>
+	 * @throws IllegalArgumentException if the channel or patch is out of range, or a quarter note of the map is too long for a MIDI file
+	 */
+	public static Sequence toSequence (EventBuffer events, int channel, int patch, TempoMap tempo) throws IllegalArgumentException {
+		try {
+			Sequence sequence = new Sequence(Sequence.PPQ, tempo.getResolution());
+			Track track = sequence.createTrack();
+			
+			for (int i = 0; i < tempo.getTempoCount(); i++) {
+				long micros = tempo.getMicrosecondsPerQuarter(i);
+				if (micros > MAX_MIDI_TEMPO)
+					throw new IllegalArgumentException("A quarter note cannot be longer than " + MAX_MIDI_TEMPO + " microseconds in a MIDI file.");
+				byte [] data = { (byte)(micros >> 16), (byte)(micros >> 8), (byte)micros };
+				track.add(new MidiEvent(new MetaMessage(META_TEMPO, data, data.length), tempo.getTempoTick(i)));
+				
+				TimeContext context = tempo.getContext(i);
+				if (context != null) {
+					TimeSignature signature = context.getTimeSignature();
+					byte [] time = { (byte)signature.getBeats(), (byte)Integer.numberOfTrailingZeros(signature.getValue()), 24, 8 };
+					track.add(new MidiEvent(new MetaMessage(META_TIME_SIGNATURE, time, time.length), tempo.getTempoTick(i)));
+				}
+			}
+			track.add(new MidiEvent(new ShortMessage(ShortMessage.PROGRAM_CHANGE, channel, patch, 0), 0));
+			
+			long tick = 0;
+			EventBuffer.Cursor c = events.cursor();
+			while (c.next()) {
+				int duration = c.getDuration();
+				if (c.isNote()) {
+					track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_ON, channel, c.getMIDI(), VELOCITY), tick));
+					track.add(new MidiEvent(new ShortMessage(ShortMessage.NOTE_OFF, channel, c.getMIDI(), 0), tick + duration));
+				}
+				if (!c.isChord())
+					tick += duration;
+			}
+			
+			//moves the end of the track past the final rest
+			track.add(new MidiEvent(new MetaMessage(SequencedPlayback.META_END_OF_TRACK, new byte[0], 0), tick));
+			return sequence;
+		} catch (InvalidMidiDataException e) {
+			throw new IllegalArgumentException(e.getMessage());
+		}
+	}
+	
+	/**
+	 * Converts a <code>Sequence</code> into events, for example one read from a Standard MIDI File.
+	 * The notes of every track and channel except the percussion channel are merged, and their times are
+	 * converted into milliseconds, which are ticks of <code>TempoMap.DEFAULT</code>, using a <code>TempoMap</code> of the tempo changes of the sequence.  Notes which start in the same
+	 * millisecond become a chord, which lasts until the next note starts or, if all of its notes end before
+	 * then, as long as its longest note, and is followed by a rest.  A note which is still sounding when
+	 * the next one starts is cut short, as events cannot overlap.
+	 * @param sequence the <code>Sequence</code> to convert
+	 * @return the events
+	 */
+	public static EventBuffer fromSequence (Sequence sequence) {
+		TempoMap tempos = getTempoMap(sequence);
+		
+		//pairs each note on with the next note off for the same key on the same channel
+		List<Span> spans = new ArrayList<Span>();
+		List<LinkedList<Long>> sounding = new ArrayList<LinkedList<Long>>(Collections.nCopies(16 * 128, (LinkedList<Long>)null));
+		Track [] tracks = sequence.getTracks();
+		for (int t = 0; t < tracks.length; t++) {
+			for (int i = 0; i < tracks[t].size(); i++) {
+				MidiEvent event = tracks[t].get(i);
+				MidiMessage message = event.getMessage();
+				if (!(message instanceof ShortMessage))
+					continue;
+				
+				ShortMessage m = (ShortMessage)message;
+				int command = m.getCommand();
+				if (m.getChannel() == PERCUSSION_CHANNEL || (command != ShortMessage.NOTE_ON && command != ShortMessage.NOTE_OFF))
+					continue;
+				
+				int key = m.getChannel() * 128 + m.getData1();
+				if (command == ShortMessage.NOTE_ON && m.getData2() > 0) {
+					if (sounding.get(key) == null)
+						sounding.set(key, new LinkedList<Long>());
+					sounding.get(key).addLast(event.getTick());
+				} else if (sounding.get(key) != null && !sounding.get(key).isEmpty()) {
+					long start = sounding.get(key).removeFirst();
+					spans.add(new Span(toMillis(sequence, tempos, start), toMillis(sequence, tempos, event.getTick()), m.getData1()));
+				}
+			}
+		}
+		
+		//notes which are never turned off end with the sequence
+		long end = toMillis(sequence, tempos, sequence.getTickLength());
+		for (int key = 0; key < sounding.size(); key++)
+			if (sounding.get(key) != null)
+				for (Long start : sounding.get(key))
+					spans.add(new Span(toMillis(sequence, tempos, start), end, key % 128));
+		Collections.sort(spans);
+		
+		EventBuffer.Builder events = new EventBuffer.Builder(spans.size() + 16);
+		int [] chord = new int[128];
+		long time = 0;
+		for (int i = 0; i < spans.size();) {
+			long start = spans.get(i).start;
+			addRest(events, start - time);
+			
+			//collects the notes which start in this millisecond
+			long length = 1;
+			int size = 0;
+			for (; i < spans.size() && spans.get(i).start == start; i++) {
+				Span span = spans.get(i);
+				length = Math.max(length, span.end - start);
+				if (size == 0 || chord[size - 1] != span.midi)
+					chord[size++] = span.midi;
+			}
+			if (i < spans.size())
+				length = Math.min(length, spans.get(i).start - start);
+			length = Math.min(length, PackedEvent.MAX_DURATION);
+			
+			for (int n = 0; n < size; n++)
+				events.add((n < size - 1) ? PackedEvent.TYPE_CHORD : PackedEvent.TYPE_NOTE, chord[n], (int)length);
+			time = start + length;
+		}
+		return events.build();
+	}
+	
+	/* END Static Methods */
+	
+	
+	/* Local Methods */
+	
+	/**
+	 * Returns a <code>TempoMap</code> of the tempo messages in every track of a sequence.
+	 */
+	private static TempoMap getTempoMap (Sequence sequence) {
+		TempoMap.Builder tempos = new TempoMap.Builder(sequence.getResolution());
+		Track [] tracks = sequence.getTracks();
+		for (int t = 0; t < tracks.length; t++) {
+			for (int i = 0; i < tracks[t].size(); i++) {
+				MidiMessage message = tracks[t].get(i).getMessage();
+				if (message instanceof MetaMessage && ((MetaMessage)message).getType() == META_TEMPO) {
+					byte [] data = ((MetaMessage)message).getData();
+					if (data.length != 3)
+						continue;
+					int micros = ((data[0] & 0xFF) << 16) | ((data[1] & 0xFF) << 8) | (data[2] & 0xFF);
+					if (micros > 0)
+						tempos.setMicrosecondsPerQuarter(tracks[t].get(i).getTick(), micros);
+				}
+			}
+		}
+		return tempos.build();
+	}
+	
+	/**
+	 * Converts a tick of a sequence into milliseconds from its start.
+	 */
+	private static long toMillis (Sequence sequence, TempoMap tempos, long tick) {
+		if (sequence.getDivisionType() != Sequence.PPQ)
+			return Math.round(tick * 1000.0 / (sequence.getDivisionType() * sequence.getResolution()));
+		return (tempos.toNanos(tick) + NANOS_PER_MILLI / 2) / NANOS_PER_MILLI;
+	}
+	
+	/**
+	 * Appends a rest, split into several if it is longer than the longest event.
+	 */
+	private static void addRest (EventBuffer.Builder events, long duration) {
+		for (; duration > 0; duration -= PackedEvent.MAX_DURATION)
+			events.add(PackedEvent.TYPE_REST, 0, (int)Math.min(duration, PackedEvent.MAX_DURATION));
+	}
+	
+	/* END Local Methods */
+	
+	
+	/* Inner Classes */
+	
+	/**
+	 * A note read from a sequence, with its start and end (in milliseconds).
+	 * Spans are ordered by start, then by MIDI number.
+	 */
+	private static final class Span implements Comparable<Span> {
+		
+		private final long start;
+		private final long end;
+		private final int midi;
+		
+		private Span (long start, long end, int midi) {
+			this.start = start;
+			this.end = end;
+			this.midi = midi;
+		}
+		
+		public int compareTo (Span other) {
+			if (start != other.start)
+				return (start < other.start) ? -1 : 1;
+			return midi - other.midi;
+		}
+	
+	}
+	
+	/* END Inner Classes */
+
+}
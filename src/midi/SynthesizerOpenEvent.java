@@ -0,0 +1,46 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package midi;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+
+/**
+ * A Java Flight Recorder event for opening the shared synthesizer, which happens when the first
+ * <code>Instrument</code> is constructed, and lasts as long as opening took.
+ * The event is disabled by default, like <code>NoteEvent</code>.
+ */
+@Name("midi.SynthesizerOpen")
+@Label("Synthesizer Open")
+@Category({ "MIDI", "Synthesizer" })
+@Description("The shared synthesizer was opened")
+@Enabled(false)
+@StackTrace(false)
+final class SynthesizerOpenEvent extends Event {
+	
+	/* Fields */
+	
+	@Label("Synthesizer")
+	String synthesizer;
+	
+	@Label("Channels")
+	int channels;
+	
+	/* END Fields */
+
+}
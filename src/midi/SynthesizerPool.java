@@ -0,0 +1,211 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package midi;
+
+import javax.sound.midi.MidiChannel;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.MidiUnavailableException;
+import javax.sound.midi.Soundbank;
+import javax.sound.midi.Synthesizer;
+
+
+/**
+ * Shares one synthesizer between every <code>Instrument</code> in the process.
+ * The synthesizer is opened the first time a channel is leased, and each patch is loaded from the
+ * default soundbank only once.  An <code>Instrument</code> leases one of the synthesizer's channels
+ * and returns it when it is closed, so up to <code>getChannelCount()</code> instruments can play at once.
+ * The percussion channel (channel 10, index 9) is never leased, as it ignores program changes.
+ * How long the synthesizer took to open and each patch took to load is recorded by <code>PlaybackMetrics</code>,
+ * and as <code>SynthesizerOpenEvent</code>s and <code>InstrumentLoadEvent</code>s for Java Flight Recorder.
+ */
+public final class SynthesizerPool {
+	
+	/* Static */
+		
+		/* Static Constants */
+		
+		/**
+		 * The index of the General MIDI percussion channel.
+		 */
+		public static final int PERCUSSION_CHANNEL = 9;
+		
+		/* END Static Constants */
+		
+		
+		/* Static Fields */
+		
+		private static SynthesizerPool pool;
+		
+		/* END Static Fields */
+	
+	/* END Static */
+	
+	
+	/* Fields */
+	
+	private final Synthesizer synthesizer;
+	private final MidiChannel [] channels;
+	private final boolean [] leased;
+	private final javax.sound.midi.Instrument [] instruments;
+	private final boolean [] loaded;
+	
+	/* END Fields */
+	
+	
+	/* Constructors */
+	
+	private SynthesizerPool (Synthesizer synthesizer) throws MidiUnavailableException {
+		Soundbank soundbank = synthesizer.getDefaultSoundbank();
+		if (soundbank == null || soundbank.getInstruments() == null)
+			throw new MidiUnavailableException("MIDI unavailable. There is no default soundbank.");
+		
+		this.synthesizer = synthesizer;
+		this.channels = synthesizer.getChannels();
+		this.leased = new boolean[channels.length];
+		this.instruments = soundbank.getInstruments();
+		this.loaded = new boolean[instruments.length];
+	}
+	
+	/* END Constructors */
+	
+	
+	/* Accessors */
+	
+	/**
+	 * Returns the shared synthesizer.
+	 * @return the <code>Synthesizer</code>, which is open
+	 */
+	public Synthesizer getSynthesizer () {
+		return synthesizer;
+	}
+	
+	/**
+	 * Returns the number of patches in the default soundbank.
+	 * @return the number of patches
+	 */
+	public int getPatchCount () {
+		return instruments.length;
+	}
+	
+	/**
+	 * Returns the number of channels which can be leased.
+	 * @return the number of channels, not counting the percussion channel
+	 */
+	public int getChannelCount () {
+		int count = 0;
+		for (int i = 0; i < channels.length; i++)
+			if (channels[i] != null && i != PERCUSSION_CHANNEL)
+				count++;
+		return count;
+	}
+	
+	/**
+	 * Returns a channel of the synthesizer.
+	 * @param index the index of the channel, as returned by <code>lease(int)</code>
+	 * @return the <code>MidiChannel</code>
+	 */
+	public MidiChannel getChannel (int index) {
+		return channels[index];
+	}
+	
+	/* END Accessors */
+	
+	
+	/* Methods */
+	
+	/**
+	 * Leases a free channel and sets it to play a patch, loading the patch if no channel has used it before.
+	 * @param patch the patch to play
+	 * @return the index of the leased channel
+	 * @throws IllegalArgumentException if patch is outside of the range of available patches
+	 * @throws MidiUnavailableException if every channel is leased
+	 */
+	public synchronized int lease (int patch) throws IllegalArgumentException, MidiUnavailableException {
+		if (patch < 0 || patch >= instruments.length)
+			throw new IllegalArgumentException("The patch index must be between 0 and " + (instruments.length - 1) + " inclusive.");
+		
+		int i;
+		for (i = 0; i < channels.length; i++)
+			if (channels[i] != null && !leased[i] && i != PERCUSSION_CHANNEL)
+				break;
+		if (i == channels.length)
+			throw new MidiUnavailableException("All " + getChannelCount() + " channels are in use.");
+		
+		if (!loaded[patch]) {
+			InstrumentLoadEvent event = new InstrumentLoadEvent();
+			event.begin();
+			long start = System.nanoTime();
+			synthesizer.loadInstrument(instruments[patch]);
+			PlaybackMetrics.getDefault().recordInstrumentLoad(System.nanoTime() - start);
+			if (event.shouldCommit()) {
+				event.patch = patch;
+				event.instrument = instruments[patch].getName();
+				event.channel = i;
+				event.commit();
+			}
+			loaded[patch] = true;
+		}
+		leased[i] = true;
+		channels[i].programChange(patch);
+		return i;
+	}
+	
+	/**
+	 * Returns a leased channel to the pool, stopping any notes it is playing.
+	 * Releasing a channel which is not leased has no effect.
+	 * @param index the index of the channel, as returned by <code>lease(int)</code>
+	 */
+	public synchronized void release (int index) {
+		if (!leased[index])
+			return;
+		
+		channels[index].allNotesOff();
+		channels[index].resetAllControllers();
+		leased[index] = false;
+	}
+	
+	/* END Methods */
+	
+	
+	/* Static Methods */
+	
+	/**
+	 * Returns the process-wide <code>SynthesizerPool</code>, opening the system synthesizer the first time it is called.
+	 * @return the <code>SynthesizerPool</code>
+	 * @throws MidiUnavailableException if the synthesizer cannot be opened or has no default soundbank
+	 */
+	public static synchronized SynthesizerPool getDefault () throws MidiUnavailableException {
+		if (pool == null) {
+			SynthesizerOpenEvent event = new SynthesizerOpenEvent();
+			event.begin();
+			long start = System.nanoTime();
+			Synthesizer synthesizer = MidiSystem.getSynthesizer();
+			synthesizer.open();
+			PlaybackMetrics.getDefault().recordSynthesizerOpen(System.nanoTime() - start);
+			if (event.shouldCommit()) {
+				event.synthesizer = synthesizer.getDeviceInfo().getName();
+				event.channels = synthesizer.getChannels().length;
+				event.commit();
+			}
+			try {
+				pool = new SynthesizerPool(synthesizer);
+			} catch (MidiUnavailableException e) {
+				synthesizer.close();
+				throw e;
+			}
+		}
+		return pool;
+	}
+	
+	/* END Static Methods */
+
+}
@@ -0,0 +1,65 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package midi;
+
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * A <code>Clock</code> which keeps real time with <code>System.nanoTime()</code>.
+ * A wait parks the thread until shortly before the deadline and then spins for the final stretch,
+ * as waking from a park can take much longer than the precision playback needs.
+ * @see Clock#SYSTEM
+ */
+public class SystemClock implements Clock {
+	
+	/* Static Constants */
+	
+	/**
+	 * How long before a deadline to stop parking and start spinning (in nanoseconds).
+	 */
+	public static final long SPIN_NANOS = 1000000;
+	
+	/* END Static Constants */
+	
+	
+	/* (Clock) Methods */
+	
+	/**
+	 * Returns <code>System.nanoTime()</code>.
+	 * @see midi.Clock#nanoTime()
+	 */
+	public long nanoTime () {
+		return System.nanoTime();
+	}
+	
+	/**
+	 * Parks and then spins until the deadline.
+	 * @see midi.Clock#waitUntil(long)
+	 */
+	public void waitUntil (long deadline) {
+		long remaining = deadline - System.nanoTime();
+		while (remaining > SPIN_NANOS) {
+			LockSupport.parkNanos(remaining - SPIN_NANOS);
+			if (Thread.currentThread().isInterrupted())
+				return;
+			remaining = deadline - System.nanoTime();
+		}
+		while (remaining > 0) {
+			Thread.yield();
+			remaining = deadline - System.nanoTime();
+		}
+	}
+	
+	/* END (Clock) Methods */
+
+}
@@ -0,0 +1,116 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package midi;
+
+
+/**
+ * The result of transposing a whole <code>EventBuffer</code> with {@link EventBuffer#transpose(int, Transposition.Policy)}:
+ * the transposed events and whether every note could be moved by the interval asked for.
+ * Notes which would leave the MIDI range are handled by a <code>Policy</code> rather than by throwing an exception,
+ * so that a whole catalogue of songs can be transposed into every key and the results checked afterwards.
+ */
+public final class Transposition {
+	
+	/* Fields */
+	
+	private final EventBuffer events;
+	private final Status status;
+	private final int adjusted;
+	
+	/* END Fields */
+	
+	
+	/* Constructors */
+	
+	Transposition (EventBuffer events, Status status, int adjusted) {
+		this.events = events;
+		this.status = status;
+		this.adjusted = adjusted;
+	}
+	
+	/* END Constructors */
+	
+	
+	/* Accessors */
+	
+	/**
+	 * Returns the transposed events.
+	 * @return the <code>EventBuffer</code>, which is the original buffer if the transposition was rejected
+	 */
+	public EventBuffer getEvents () {
+		return events;
+	}
+	
+	/**
+	 * Returns whether every note was moved by the interval asked for.
+	 * @return the <code>Status</code>
+	 */
+	public Status getStatus () {
+		return status;
+	}
+	
+	/**
+	 * Returns the number of notes which would have left the MIDI range and were clamped or folded instead.
+	 * @return the number of notes adjusted, which is 0 unless the status is <code>Status.ADJUSTED</code>
+	 */
+	public int getAdjustedCount () {
+		return adjusted;
+	}
+	
+	/* END Accessors */
+	
+	
+	/* Enumerators */
+	
+	/**
+	 * Represents what is done with a note which would leave the MIDI range.
+	 */
+	public static enum Policy {
+		/**
+		 * The note is moved to the lowest or highest MIDI number instead.
+		 */
+		CLAMP,
+		
+		/**
+		 * The note is moved by whole octaves until it is back in range, so that it keeps its pitch class.
+		 */
+		FOLD_OCTAVE,
+		
+		/**
+		 * The whole buffer is left as it is.
+		 */
+		REJECT
+	}
+	
+	/**
+	 * Represents the outcome of a transposition.
+	 */
+	public static enum Status {
+		/**
+		 * Every note was moved by the interval asked for.
+		 */
+		EXACT,
+		
+		/**
+		 * Some notes would have left the MIDI range and were clamped or folded.
+		 */
+		ADJUSTED,
+		
+		/**
+		 * Some notes would have left the MIDI range, so nothing was transposed.
+		 */
+		REJECTED
+	}
+	
+	/* END Enumerators */
+
+}
@@ -0,0 +1,67 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package midi;
+
+
+/**
+ * A <code>Clock</code> which only moves when it is waited on or advanced, and does so at once.
+ * Playing a song with a <code>VirtualClock</code> sends the same notes at the same times, as measured by
+ * the clock, as playing it in real time, but takes only as long as sending the notes does.
+ * The clock starts at 0 and may be shared between threads.
+ */
+public class VirtualClock implements Clock {
+	
+	/* Fields */
+	
+	private long time;
+	
+	/* END Fields */
+	
+	
+	/* (Clock) Methods */
+	
+	/**
+	 * Returns the time the clock has been moved to.
+	 * @see midi.Clock#nanoTime()
+	 */
+	public synchronized long nanoTime () {
+		return time;
+	}
+	
+	/**
+	 * Moves the clock to the deadline, if it is not already past it, and returns at once.
+	 * @see midi.Clock#waitUntil(long)
+	 */
+	public synchronized void waitUntil (long deadline) {
+		if (deadline > time)
+			time = deadline;
+	}
+	
+	/* END (Clock) Methods */
+	
+	
+	/* Methods */
+	
+	/**
+	 * Moves the clock forward.
+	 * @param nanos the time to move the clock forward by (in nanoseconds)
+	 * @throws IllegalArgumentException if nanos is negative
+	 */
+	public synchronized void advance (long nanos) throws IllegalArgumentException {
+		if (nanos < 0)
+			throw new IllegalArgumentException("A clock cannot be moved backward.");
+		time += nanos;
+	}
+	
+	/* END Methods */
+
+}
@@ -0,0 +1,235 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package song;
+
+import midi.EventBuffer;
+import midi.Instrument;
+import midi.PackedEvent;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+
+/**
+ * A song which has been compiled into a binary file by <code>SongCompiler</code>, and is read by
+ * mapping the file into memory, so that no parsing is needed and no objects are created per event.
+ * The file is big-endian and begins with a header of <code>HEADER_SIZE</code> bytes:
+ * <pre>
+ * int   MAGIC
+ * short VERSION
+ * short (reserved)
+ * int   the number of events
+ * long  the total duration of the song (in milliseconds)
+ * byte  the lowest MIDI number played (-1 if there are no notes)
+ * byte  the highest MIDI number played (-1 if there are no notes)
+ * (padding to HEADER_SIZE bytes)
+ * </pre>
+ * The header is followed by one <code>int</code> per event, packed by {@link PackedEvent}.
+ */
+public class CompiledSong {
+	
+	/* Static Constants */
+	
+	/**
+	 * The first four bytes of a compiled song file (<code>0x89</code> followed by <code>"SNG"</code>).
+	 */
+	public static final int MAGIC = 0x89534E47;
+	
+	/**
+	 * The version of the file format written by <code>SongCompiler</code>.
+	 * Version 2 added <code>PackedEvent.TYPE_CHORD</code> events; version 1 files can still be read.
+	 */
+	public static final short VERSION = 2;
+	
+	/**
+	 * The size of the header, in bytes.
+	 */
+	public static final int HEADER_SIZE = 32;
+	
+	/**
+	 * The size of each event record, in bytes.
+	 */
+	public static final int RECORD_SIZE = 4;
+	
+	/* END Static Constants */
+	
+	
+	/* Fields */
+	
+	private final EventBuffer events;
+	private final long totalDuration;
+	private final int lowestNote;
+	private final int highestNote;
+	
+	/* END Fields */
+	
+	
+	/* Constructors */
+	
+	private CompiledSong (EventBuffer events, long totalDuration, int lowestNote, int highestNote) {
+		this.events = events;
+		this.totalDuration = totalDuration;
+		this.lowestNote = lowestNote;
+		this.highestNote = highestNote;
+	}
+	
+	/* END Constructors */
+	
+	
+	/* Accessors */
+	
+	/**
+	 * Returns the number of events in this song.
+	 * @return the number of events
+	 */
+	public int size () {
+		return events.size();
+	}
+	
+	/**
+	 * Returns an event of this song, packed by <code>PackedEvent</code>.
+	 * @param index the index of the event
+	 * @return the packed event
+	 * @throws IndexOutOfBoundsException if index is not less than <code>size()</code>
+	 */
+	public int getEvent (int index) throws IndexOutOfBoundsException {
+		return events.get(index);
+	}
+	
+	/**
+	 * Returns the events of this song, which are read from the mapped file as they are needed.
+	 * @return the events
+	 */
+	public EventBuffer getEvents () {
+		return events;
+	}
+	
+	/**
+	 * Returns the total duration of this song.
+	 * @return the total duration (in milliseconds)
+	 */
+	public long getTotalDuration () {
+		return totalDuration;
+	}
+	
+	/**
+	 * Returns the lowest MIDI number played in this song.
+	 * @return the lowest MIDI number, or -1 if the song has no notes
+	 */
+	public int getLowestNote () {
+		return lowestNote;
+	}
+	
+	/**
+	 * Returns the highest MIDI number played in this song.
+	 * @return the highest MIDI number, or -1 if the song has no notes
+	 */
+	public int getHighestNote () {
+		return highestNote;
+	}
+	
+	/* END Accessors */
+	
+	
+	/* Methods */
+	
+	/**
+	 * Plays every event of this song on an <code>Instrument</code>.
+	 * @param instr the <code>Instrument</code> to play
+	 */
+	public void play (Instrument instr) {
+		instr.play(events);
+	}
+	
+	/* END Methods */
+	
+	
+	/* Static Methods */
+	
+	/**
+	 * Determines whether a file is a compiled song file by reading its first four bytes.
+	 * @param file the file to test
+	 * @return <code>true</code> if the file begins with <code>MAGIC</code>
+	 * @throws IOException if the file does not exist or cannot be read
+	 */
+	public static boolean isCompiled (File file) throws IOException {
+		DataInputStream in = new DataInputStream(new FileInputStream(file));
+		try {
+			return in.readInt() == MAGIC;
+		} catch (EOFException e) {
+			return false;
+		} finally {
+			in.close();
+		}
+	}
+	
+	/**
+	 * Opens a compiled song file by mapping it into memory.
+	 * @param file the file to open
+	 * @return the <code>CompiledSong</code>
+	 * @throws IOException if the file cannot be read or is not a compiled song file
+	 */
+	public static CompiledSong open (File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		MappedByteBuffer map;
+		try {
+			FileChannel channel = raf.getChannel();
+			if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE)
+				throw new IOException("The file is not a compiled song file.");
+			//the mapping remains valid after the channel is closed
+			map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		} finally {
+			raf.close();
+		}
+		
+		if (map.getInt(0) != MAGIC)
+			throw new IOException("The file is not a compiled song file.");
+		if (map.getShort(4) < 1 || map.getShort(4) > VERSION)
+			throw new IOException("Version " + map.getShort(4) + " compiled song files are not supported.");
+		
+		int count = map.getInt(8);
+		if (count < 0 || (long)count * RECORD_SIZE > map.capacity() - HEADER_SIZE)
+			throw new IOException("The compiled song file is truncated.");
+		
+		map.position(HEADER_SIZE);
+		EventBuffer events = EventBuffer.wrap(map.slice().asIntBuffer().limit(count));
+		return new CompiledSong(events, map.getLong(12), map.get(20), map.get(21));
+	}
+	
+	/**
+	 * Writes a header into the start of a buffer.
+	 * @param buffer the buffer to write to, which must hold at least <code>HEADER_SIZE</code> bytes
+	 * @param count the number of events
+	 * @param totalDuration the total duration (in milliseconds)
+	 * @param lowestNote the lowest MIDI number played, or -1
+	 * @param highestNote the highest MIDI number played, or -1
+	 */
+	static void putHeader (ByteBuffer buffer, int count, long totalDuration, int lowestNote, int highestNote) {
+		buffer.putInt(0, MAGIC);
+		buffer.putShort(4, VERSION);
+		buffer.putShort(6, (short)0);
+		buffer.putInt(8, count);
+		buffer.putLong(12, totalDuration);
+		buffer.put(20, (byte)lowestNote);
+		buffer.put(21, (byte)highestNote);
+	}
+	
+	/* END Static Methods */
+
+}
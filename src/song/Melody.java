@@ -11,22 +11,48 @@
 
 package song;
 
+import java.util.Arrays;
 import java.util.Iterator;
 
 import javax.sound.midi.MidiUnavailableException;
 
+import midi.DeadlineScheduler;
+import midi.EventBuffer;
 import midi.Instrument;
 import midi.Note;
+import midi.Pattern;
+import midi.PatternGenerator;
+import midi.Scale;
 
 
 /**
- * Play a chromatic scale up from the note specified by the first argument.
+ * Play a scale up an octave from the note specified by the first argument, chromatic by default.
  * The note can be specified as any value which validly constructs a <code>Note</code> with {@link Note#parseNoteString(String)}.
  * The second argument optionally specifies the instrument to use, either as a patch number or
  * one of the named instruments available within <code>Instrument</code>.
+ * With the <code>-scale</code> and <code>-pattern</code> options, another named <code>Scale</code> or <code>Pattern</code> is played.
+ * With the <code>-octaves</code> option, the pattern covers that many octaves, downwards if the number is negative.
+ * With the <code>-passes</code> option, the pattern turns back at the end of the range that many times more,
+ * or repeats until the program is stopped if the number is 0.
+ * The notes are generated by a <code>PatternGenerator</code> as they are played, so a pattern of any length can be played.
  */
 public class Melody {
 	
+	/* Static Constants */
+	
+	/**
+	 * The duration of each note (in milliseconds).
+	 */
+	private static final int NOTE_DURATION = 200;
+	
+	/**
+	 * The number of notes generated ahead of those being played.
+	 */
+	private static final int BATCH_SIZE = 256;
+	
+	/* END Static Constants */
+	
+	
 	/* Main Method */
 	
 	/**
@@ -35,14 +61,32 @@ public class Melody {
 	 * @param args the list of arguments
 	 */
 	public static void main (String [] args) {
-		if (args.length < 1 || args.length > 2) {
-			System.err.println("Usage: Melody startnote [instrument]\n");
-			System.out.println("Available instruments:");
-			Iterator<String> i = Instrument.getNamedInstruments().iterator();
-			while (i.hasNext())
-				System.out.println('\t' + i.next());
-			System.exit(0);
+		//options come before the note
+		Scale scale = Scale.CHROMATIC;
+		Pattern pattern = Pattern.SCALE;
+		int octaves = 1, passes = 1;
+		int first = 0;
+		try {
+			for (; first < args.length && args[first].startsWith("-") && first + 1 < args.length; first += 2) {
+				if (args[first].equals("-scale"))
+					scale = Scale.parseScale(args[first + 1]);
+				else if (args[first].equals("-pattern"))
+					pattern = Pattern.parsePattern(args[first + 1]);
+				else if (args[first].equals("-octaves"))
+					octaves = Integer.parseInt(args[first + 1]);
+				else if (args[first].equals("-passes"))
+					passes = Integer.parseInt(args[first + 1]);
+				else
+					printUsage();
+			}
+		} catch (IllegalArgumentException e) {
+			System.out.println(e.getMessage());
+			printUsage();
 		}
+		args = Arrays.copyOfRange(args, first, args.length);
+		
+		if (args.length < 1 || args.length > 2 || passes < 0)
+			printUsage();
 		
 		//get instrument
 		Instrument instr;
@@ -66,17 +110,53 @@ public class Melody {
 		}
 		
 		String str = args[0];
+		PatternGenerator notes = null;
 		try {
 			Note start = Note.parseNoteString(str);
-			for (Note n = new Note(start); !(n.formOctave(start)); n.modifyNoteBySemitones(1))
-				instr.playNote(n, 200);
-			instr.rest(1500);
+			Note end = new Note(start);
+			end.modifyNoteBySemitones(12 * octaves);
+			notes = new PatternGenerator(scale, pattern, start, end, NOTE_DURATION, passes);
 		} catch (IllegalArgumentException e) {
 			System.out.println("Could not create note from string");
 			System.exit(0);
 		}
+		
+		//the batches share one schedule, so generating notes does not delay them
+		DeadlineScheduler scheduler = new DeadlineScheduler(instr.getLateness(), instr.getClock());
+		EventBuffer.Builder batch = new EventBuffer.Builder(BATCH_SIZE);
+		while (notes.hasNext() && !Thread.currentThread().isInterrupted()) {
+			notes.fill(batch.clear(), BATCH_SIZE);
+			instr.play(batch.build(), scheduler);
+		}
+		instr.rest(1500);
+		instr.close();
 	}
 	
 	/* END Main Method */
 	
+	
+	/* Local Methods */
+	
+	/**
+	 * Prints the usage message and the available instruments, scales and patterns, then exits.
+	 */
+	private static void printUsage () {
+		System.err.println("Usage: Melody [-scale name] [-pattern name] [-octaves n] [-passes n] startnote [instrument]\n");
+		System.out.println("Available instruments:");
+		Iterator<String> i = Instrument.getNamedInstruments().iterator();
+		while (i.hasNext())
+			System.out.println('\t' + i.next());
+		System.out.println("Available scales:");
+		i = Scale.getNamedScales().iterator();
+		while (i.hasNext())
+			System.out.println('\t' + i.next());
+		System.out.println("Available patterns:");
+		i = Pattern.getNamedPatterns().iterator();
+		while (i.hasNext())
+			System.out.println('\t' + i.next());
+		System.exit(0);
+	}
+	
+	/* END Local Methods */
+	
 }
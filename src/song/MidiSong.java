@@ -0,0 +1,118 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package song;
+
+import midi.EventBuffer;
+import midi.SongSequence;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiSystem;
+
+
+/**
+ * Reads and writes songs as Standard MIDI Files, so that they can be exchanged with other programs.
+ * A song is written as a single track (type 0) file by way of <code>SongSequence</code>, with the ticks and tempo
+ * of <code>TempoMap.DEFAULT</code>, so the durations of the events are kept exactly.  Any Standard MIDI File can be read,
+ * though overlapping notes are simplified as described by <code>SongSequence.fromSequence(Sequence)</code>.
+ */
+public class MidiSong {
+	
+	/* Static Constants */
+	
+	/**
+	 * The first four bytes of a Standard MIDI File (<code>"MThd"</code>).
+	 */
+	public static final int MAGIC = 0x4D546864;
+	
+	/**
+	 * The MIDI file type written: a single track.
+	 */
+	public static final int FILE_TYPE = 0;
+	
+	/* END Static Constants */
+	
+	
+	/* Constructors */
+	
+	private MidiSong () {
+	}
+	
+	/* END Constructors */
+	
+	
+	/* Static Methods */
+	
+	/**
+	 * Returns <code>true</code> if a file begins like a Standard MIDI File.
+	 * @param file the file to check
+	 * @return <code>true</code> if the file is a Standard MIDI File
+	 * @throws IOException if the file does not exist or cannot be read
+	 */
+	public static boolean isMidi (File file) throws IOException {
+		DataInputStream in = new DataInputStream(new FileInputStream(file));
+		try {
+			return in.readInt() == MAGIC;
+		} catch (EOFException e) {
+			return false;
+		} finally {
+			in.close();
+		}
+	}
+	
+	/**
+	 * Reads the events of a Standard MIDI File.
+	 * @param file the file to read
+	 * @return the events of the song
+	 * @throws IOException if the file cannot be read or is not a valid Standard MIDI File
+	 */
+	public static EventBuffer read (File file) throws IOException {
+		try {
+			return SongSequence.fromSequence(MidiSystem.getSequence(file));
+		} catch (InvalidMidiDataException e) {
+			throw new IOException("The file is not a valid MIDI file: " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Writes events to a Standard MIDI File.
+	 * @param events the events to write
+	 * @param patch the patch to play the events with
+	 * @param file the file to write
+	 * @throws IllegalArgumentException if the patch is out of range
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void write (EventBuffer events, int patch, File file) throws IllegalArgumentException, IOException {
+		MidiSystem.write(SongSequence.toSequence(events, 0, patch), FILE_TYPE, file);
+	}
+	
+	/**
+	 * Writes events to a stream as a Standard MIDI File.
+	 * @param events the events to write
+	 * @param patch the patch to play the events with
+	 * @param out the stream to write to, which is not closed
+	 * @throws IllegalArgumentException if the patch is out of range
+	 * @throws IOException if the stream cannot be written
+	 */
+	public static void write (EventBuffer events, int patch, OutputStream out) throws IllegalArgumentException, IOException {
+		MidiSystem.write(SongSequence.toSequence(events, 0, patch), FILE_TYPE, out);
+	}
+	
+	/* END Static Methods */
+
+}
@@ -0,0 +1,274 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package song;
+
+import midi.EventBuffer;
+import midi.MusicEvent;
+import midi.ParseDiagnostics;
+
+import java.io.CharArrayReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Parses a song file on several threads.
+ * The file is split into chunks which end on a separator, so that no token crosses a chunk.
+ * Each chunk is mapped into memory and parsed by a <code>SongReader</code> on a fork/join pool,
+ * and the events and diagnostics of the chunks are then joined back together in file order.
+ * The events are packed into an <code>EventBuffer</code>, so that a whole song can be held in memory.
+ * The file must be in an encoding in which commas and line terminators are single bytes, such as ASCII or UTF-8.
+ */
+public class ParallelSongParser {
+	
+	/* Static Constants */
+	
+	/**
+	 * The default size of a chunk, in bytes.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+	
+	/**
+	 * How far past the end of a chunk to look for a line terminator before settling for a comma,
+	 * so that chunks usually hold whole lines.
+	 */
+	private static final int LINE_SEARCH_LIMIT = 64 * 1024;
+	
+	/* END Static Constants */
+	
+	
+	/* Fields */
+	
+	private final ForkJoinPool pool;
+	private final int chunkSize;
+	private final AtomicLong tokens = new AtomicLong();
+	
+	/* END Fields */
+	
+	
+	/* Constructors */
+	
+	/**
+	 * Constructs a <code>ParallelSongParser</code> which uses the common fork/join pool and <code>DEFAULT_CHUNK_SIZE</code>.
+	 */
+	public ParallelSongParser () {
+		this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+	}
+	
+	/**
+	 * Constructs a <code>ParallelSongParser</code>.
+	 * @param pool the fork/join pool to parse chunks on
+	 * @param chunkSize the size of a chunk, in bytes
+	 * @throws IllegalArgumentException if chunkSize is not positive
+	 */
+	public ParallelSongParser (ForkJoinPool pool, int chunkSize) throws IllegalArgumentException {
+		if (chunkSize <= 0)
+			throw new IllegalArgumentException("The chunk size must be positive.");
+		
+		this.pool = pool;
+		this.chunkSize = chunkSize;
+	}
+	
+	/* END Constructors */
+	
+	
+	/* Accessors */
+	
+	/**
+	 * Returns the number of tokens parsed by this parser, including those which were ignored, in every file it has parsed.
+	 * @return the number of tokens
+	 */
+	public long getTokenCount () {
+		return tokens.get();
+	}
+	
+	/* END Accessors */
+	
+	
+	/* Methods */
+	
+	/**
+	 * Parses every event in a song file.
+	 * @param file the song file to parse
+	 * @param diagnostics the <code>ParseDiagnostics</code> to report ignored note strings to, in file order
+	 * @return the events of the song, in file order
+	 * @throws IOException if the file does not exist or cannot be read
+	 */
+	public EventBuffer parse (File file, ParseDiagnostics diagnostics) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			long [] bounds = split(channel);
+			
+			Vector<ChunkTask> tasks = new Vector<ChunkTask>(bounds.length - 1);
+			for (int i = 0; i < bounds.length - 1; i++)
+				tasks.add(new ChunkTask(channel, bounds[i], bounds[i + 1], diagnostics.getLimit()));
+			for (int i = 0; i < tasks.size(); i++)
+				pool.execute(tasks.get(i));
+			
+			int total = 0;
+			for (int i = 0; i < tasks.size(); i++)
+				total += join(tasks.get(i)).events.size();
+			
+			EventBuffer.Builder events = new EventBuffer.Builder(total);
+			int line = 1, column = 1;
+			for (int i = 0; i < tasks.size(); i++) {
+				Chunk chunk = join(tasks.get(i));
+				events.addAll(chunk.events);
+				chunk.events = null;
+				tokens.addAndGet(chunk.tokens);
+				
+				diagnostics.merge(chunk.diagnostics, line, column);
+				
+				if (chunk.endLine == 1)
+					column += chunk.endColumn - 1;
+				else
+					column = chunk.endColumn;
+				line += chunk.endLine - 1;
+			}
+			return events.build();
+		} finally {
+			raf.close();
+		}
+	}
+	
+	/* END Methods */
+	
+	
+	/* Local Methods */
+	
+	/**
+	 * Returns the offsets at which chunks start, followed by the size of the file.
+	 */
+	private long [] split (FileChannel channel) throws IOException {
+		long size = channel.size();
+		Vector<Long> bounds = new Vector<Long>();
+		bounds.add(Long.valueOf(0));
+		
+		ByteBuffer window = ByteBuffer.allocate(LINE_SEARCH_LIMIT + 1);
+		long start = 0;
+		while (size - start > chunkSize) {
+			long position = start + chunkSize;
+			window.clear();
+			channel.read(window, position);
+			window.flip();
+			
+			int comma = -1, end = -1;
+			for (int i = 0; i < window.limit() - 1 && end == -1; i++) {
+				byte b = window.get(i);
+				if (b == '\n')
+					end = i + 1;
+				else if (b == '\r')
+					//never split a CR LF pair, or the line would be counted twice
+					end = (window.get(i + 1) == '\n') ? i + 2 : i + 1;
+				else if (b == ',' && comma == -1)
+					comma = i + 1;
+			}
+			if (end == -1)
+				end = comma;
+			if (end == -1)
+				//no separator nearby: leave the rest of the file to one chunk
+				break;
+			
+			start = position + end;
+			bounds.add(Long.valueOf(start));
+		}
+		bounds.add(Long.valueOf(size));
+		
+		long [] result = new long[bounds.size()];
+		for (int i = 0; i < result.length; i++)
+			result[i] = bounds.get(i).longValue();
+		return result;
+	}
+	
+	private static Chunk join (ChunkTask task) throws IOException {
+		try {
+			return task.join();
+		} catch (RuntimeException e) {
+			for (Throwable t = e.getCause(); t != null; t = t.getCause())
+				if (t instanceof IOException)
+					throw (IOException)t;
+			throw e;
+		}
+	}
+	
+	/* END Local Methods */
+	
+	
+	/* Inner Classes */
+	
+	/**
+	 * The events, diagnostics and number of tokens of one chunk, and the position in the chunk at which it ends.
+	 */
+	private static class Chunk {
+		EventBuffer events;
+		ParseDiagnostics diagnostics;
+		long tokens;
+		int endLine;
+		int endColumn;
+	}
+	
+	/**
+	 * Maps one chunk of the file into memory and parses it.
+	 */
+	private static class ChunkTask extends RecursiveTask<Chunk> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final FileChannel channel;
+		private final long start;
+		private final long end;
+		private final int limit;
+		
+		ChunkTask (FileChannel channel, long start, long end, int limit) {
+			this.channel = channel;
+			this.start = start;
+			this.end = end;
+			this.limit = limit;
+		}
+		
+		@Override
+		protected Chunk compute () {
+			try {
+				CharBuffer chars = Charset.defaultCharset().decode(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+				SongReader reader = new SongReader(new CharArrayReader(chars.array(), chars.arrayOffset(), chars.limit()),
+						SongReader.DEFAULT_BUFFER_SIZE, new ParseDiagnostics(limit));
+				
+				Chunk chunk = new Chunk();
+				EventBuffer.Builder events = new EventBuffer.Builder();
+				for (MusicEvent e = reader.read(); e != null; e = reader.read())
+					events.add(e);
+				chunk.events = events.build();
+				chunk.diagnostics = reader.getDiagnostics();
+				chunk.tokens = reader.getTokenCount();
+				chunk.endLine = reader.getLine();
+				chunk.endColumn = reader.getColumn();
+				return chunk;
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	
+	}
+	
+	/* END Inner Classes */
+
+}
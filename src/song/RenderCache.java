@@ -0,0 +1,266 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package song;
+
+import midi.EventBuffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Keeps the results of rendering songs, so that a song which has been rendered before is not parsed or synthesised again.
+ * Results are stored by a key which is a SHA-256 digest of what they were made from: for the events of a
+ * song text, the text itself, and for a MIDI file or audio, the packed events, the patch and the format.
+ * As events are keyed after parsing, songs which are written differently but have the same events share results.
+ * Every key also includes <code>FORMAT_VERSION</code>, so that results stored in an older layout are never read.
+ * The most recently used results are kept in memory, up to a number of bytes, and every result can also be
+ * kept in a directory, from which it is read back into memory when it is next used.  A file is written under
+ * another name and then moved into place, so that a file in the directory is always complete.
+ * A <code>RenderCache</code> may be used by several threads at once.
+ */
+public class RenderCache {
+	
+	/* Static Constants */
+	
+	/**
+	 * The version of the layout of stored results: the packed events of <code>PackedEvent</code>, and the parsed
+	 * songs stored by <code>RenderServer</code>.  It must be increased whenever either changes, so that results
+	 * left in a cache directory by an older version are missed rather than read wrongly.
+	 */
+	public static final int FORMAT_VERSION = 1;
+	
+	private static final char [] HEX = "0123456789abcdef".toCharArray();
+	
+	/* END Static Constants */
+	
+	
+	/* Fields */
+	
+	private final LinkedHashMap<String, byte []> memory = new LinkedHashMap<String, byte []>(16, 0.75f, true);
+	private final long capacity;
+	private final Path directory;
+	private long size;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong diskHits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	
+	/* END Fields */
+	
+	
+	/* Constructors */
+	
+	/**
+	 * Constructs a <code>RenderCache</code> which only keeps results in memory.
+	 * @param capacity the most bytes of results to keep in memory
+	 * @throws IllegalArgumentException if capacity is negative
+	 */
+	public RenderCache (long capacity) throws IllegalArgumentException {
+		if (capacity < 0)
+			throw new IllegalArgumentException("The capacity cannot be negative.");
+		
+		this.capacity = capacity;
+		this.directory = null;
+	}
+	
+	/**
+	 * Constructs a <code>RenderCache</code> which keeps results in memory and in a directory.
+	 * @param capacity the most bytes of results to keep in memory
+	 * @param directory the directory to keep every result in, which is created if it does not exist,
+	 * or <code>null</code> to keep results only in memory
+	 * @throws IllegalArgumentException if capacity is negative
+	 * @throws IOException if the directory cannot be created
+	 */
+	public RenderCache (long capacity, File directory) throws IllegalArgumentException, IOException {
+		if (capacity < 0)
+			throw new IllegalArgumentException("The capacity cannot be negative.");
+		
+		this.capacity = capacity;
+		this.directory = (directory == null) ? null : Files.createDirectories(directory.toPath());
+	}
+	
+	/* END Constructors */
+	
+	
+	/* Accessors */
+	
+	/**
+	 * Returns a summary of how the cache has been used, such as <code>"120 hits (4 from disk), 31 misses, 8650000 bytes in memory"</code>.
+	 * @return the summary
+	 */
+	public String getStats () {
+		long inMemory;
+		synchronized (this) {
+			inMemory = size;
+		}
+		return hits.get() + " hits (" + diskHits.get() + " from disk), " + misses.get() + " misses, " + inMemory + " bytes in memory";
+	}
+	
+	/* END Accessors */
+	
+	
+	/* Methods */
+	
+	/**
+	 * Returns a result, reading it from the directory if it is not in memory.
+	 * @param key the key of the result
+	 * @return the result, or <code>null</code> if it is not in the cache
+	 */
+	public byte [] get (String key) {
+		synchronized (this) {
+			byte [] value = memory.get(key);
+			if (value != null) {
+				hits.incrementAndGet();
+				return value;
+			}
+		}
+		
+		if (directory != null) {
+			try {
+				byte [] value = Files.readAllBytes(directory.resolve(key));
+				hits.incrementAndGet();
+				diskHits.incrementAndGet();
+				putInMemory(key, value);
+				return value;
+			} catch (IOException e) {
+				//not in the directory, or unreadable; treated as a miss
+			}
+		}
+		misses.incrementAndGet();
+		return null;
+	}
+	
+	/**
+	 * Stores a result in memory and, if the cache has a directory, in the directory.
+	 * The result must not be changed afterwards.
+	 * @param key the key of the result
+	 * @param value the result
+	 * @return <code>false</code> if the result could not be written to the directory, and is only kept in memory
+	 */
+	public boolean put (String key, byte [] value) {
+		putInMemory(key, value);
+		if (directory == null)
+			return true;
+		
+		try {
+			Path temp = Files.createTempFile(directory, key, ".tmp");
+			try {
+				Files.write(temp, value);
+				Files.move(temp, directory.resolve(key), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+	
+	/* END Methods */
+	
+	
+	/* Local Methods */
+	
+	private synchronized void putInMemory (String key, byte [] value) {
+		if (value.length > capacity)
+			return;
+		
+		byte [] old = memory.put(key, value);
+		size += value.length - ((old == null) ? 0 : old.length);
+		
+		//evicts the least recently used results
+		Iterator<Map.Entry<String, byte []>> i = memory.entrySet().iterator();
+		while (size > capacity && i.hasNext()) {
+			Map.Entry<String, byte []> eldest = i.next();
+			size -= eldest.getValue().length;
+			i.remove();
+		}
+	}
+	
+	/* END Local Methods */
+	
+	
+	/* Static Methods */
+	
+	/**
+	 * Returns the key for the events parsed from a song text.
+	 * @param text the song text
+	 * @return the key
+	 */
+	public static String key (byte [] text) {
+		MessageDigest digest = newDigest();
+		digest.update((byte)'T');
+		digest.update((byte)FORMAT_VERSION);
+		digest.update(text);
+		return toHex(digest.digest());
+	}
+	
+	/**
+	 * Returns the key for events rendered with a patch in a format.
+	 * The key depends only on the packed events, so songs which parse to the same events have the same key.
+	 * @param events the events
+	 * @param patch the patch the events are played with
+	 * @param format the name of the format, such as <code>"mid"</code> or <code>"wav"</code>
+	 * @return the key
+	 */
+	public static String key (EventBuffer events, int patch, String format) {
+		MessageDigest digest = newDigest();
+		digest.update((byte)'E');
+		digest.update((byte)FORMAT_VERSION);
+		digest.update(format.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte)0);
+		
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		buffer.putInt(patch);
+		for (int i = 0, n = events.size(); i < n; i++) {
+			if (!buffer.hasRemaining()) {
+				digest.update(buffer.array(), 0, buffer.position());
+				buffer.clear();
+			}
+			buffer.putInt(events.get(i));
+		}
+		digest.update(buffer.array(), 0, buffer.position());
+		return toHex(digest.digest());
+	}
+	
+	private static MessageDigest newDigest () {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			//every Java platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	private static String toHex (byte [] bytes) {
+		char [] hex = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			hex[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+			hex[i * 2 + 1] = HEX[bytes[i] & 0xF];
+		}
+		return new String(hex);
+	}
+	
+	/* END Static Methods */
+
+}
@@ -0,0 +1,447 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package song;
+
+import midi.EventBuffer;
+import midi.Instrument;
+import midi.LatenessHistogram;
+import midi.MusicEvent;
+import midi.SongRenderer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sound.midi.MidiUnavailableException;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+
+/**
+ * A long-running HTTP service which renders songs, so that other programs need not start a JVM for each song.
+ * A song is rendered by posting its text, in the format read by <code>SongReader</code>, to
+ * <code>/render?format=mid|wav&amp;instrument=name-or-patch</code>; the response is a Standard MIDI File
+ * (the default) or a WAV file.  Requests are queued for a fixed number of worker threads, each of which
+ * renders one request at a time, so no more songs are synthesised at once than there are workers.
+ * A WAV file is synthesised by <code>SongRenderer</code>, which uses a new software synthesizer for each song.
+ * When the queue is full a request is refused at once with <code>503 Service Unavailable</code>, rather than
+ * waiting without limit.  A request which fails while it is rendered is answered with <code>500 Internal Server Error</code>,
+ * and the worker goes on to the next request.
+ * Each response reports how long the request waited and took to render in the <code>X-Queue-Millis</code>
+ * and <code>X-Render-Millis</code> headers, and <code>/stats</code> summarises every request so far.
+ * The events parsed from each song text and every file rendered are kept in a <code>RenderCache</code>, so a
+ * song which is requested again is neither parsed nor synthesised; the <code>X-Cache</code> header is
+ * <code>hit</code> for a response from the cache.
+ * The first argument optionally specifies the port, which is <code>DEFAULT_PORT</code> otherwise, and the second
+ * optionally specifies a directory to keep the cache in as well as memory.
+ * The service only accepts connections from the local machine.
+ */
+public class RenderServer {
+	
+	/* Static Constants */
+	
+	/**
+	 * The port the service listens on when none is given.
+	 */
+	public static final int DEFAULT_PORT = 8311;
+	
+	/**
+	 * The longest song text accepted (in bytes).
+	 */
+	public static final int MAX_SONG_SIZE = 1 << 20;
+	
+	private static final int DEFAULT_QUEUE_SIZE = 64;
+	private static final long DEFAULT_CACHE_SIZE = 64L << 20;
+	private static final int DEFAULT_PATCH = 1;
+	private static final long NANOS_PER_MILLI = 1000000;
+	
+	/* END Static Constants */
+	
+	
+	/* Fields */
+	
+	private final HttpServer server;
+	private final ExecutorService handlers;
+	private final BlockingQueue<Job> queue;
+	private final RenderCache cache;
+	private final Thread [] workers;
+	private final LatenessHistogram waiting = new LatenessHistogram();
+	private final LatenessHistogram rendering = new LatenessHistogram();
+	private final AtomicLong rejected = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	
+	/* END Fields */
+	
+	
+	/* Constructors */
+	
+	/**
+	 * Constructs a <code>RenderServer</code> which listens on a port of the loopback address, and caches in memory.
+	 * The service does not accept requests until it is started.
+	 * @param port the port to listen on, or 0 for any free port
+	 * @param workers the number of worker threads
+	 * @param queueSize the most requests which can wait for a worker
+	 * @throws IllegalArgumentException if workers or queueSize is less than 1
+	 * @throws IOException if the port cannot be bound
+	 */
+	public RenderServer (int port, int workers, int queueSize) throws IllegalArgumentException, IOException {
+		this(port, workers, queueSize, new RenderCache(DEFAULT_CACHE_SIZE));
+	}
+	
+	/**
+	 * Constructs a <code>RenderServer</code> which listens on a port of the loopback address, and caches in a <code>RenderCache</code>.
+	 * The service does not accept requests until it is started.
+	 * @param port the port to listen on, or 0 for any free port
+	 * @param workers the number of worker threads
+	 * @param queueSize the most requests which can wait for a worker
+	 * @param cache the cache to keep parsed songs and rendered files in
+	 * @throws IllegalArgumentException if workers or queueSize is less than 1
+	 * @throws IOException if the port cannot be bound
+	 */
+	public RenderServer (int port, int workers, int queueSize, RenderCache cache) throws IllegalArgumentException, IOException {
+		if (workers < 1 || queueSize < 1)
+			throw new IllegalArgumentException("There must be at least one worker and room for at least one request.");
+		
+		this.queue = new ArrayBlockingQueue<Job>(queueSize);
+		this.cache = cache;
+		this.workers = new Thread[workers];
+		for (int i = 0; i < workers; i++) {
+			this.workers[i] = new Thread(new Worker(), "render-worker-" + (i + 1));
+			this.workers[i].setDaemon(true);
+		}
+		
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext("/render", new HttpHandler() {
+			public void handle (HttpExchange exchange) throws IOException {
+				accept(exchange);
+			}
+		});
+		server.createContext("/stats", new HttpHandler() {
+			public void handle (HttpExchange exchange) throws IOException {
+				respond(exchange, 200, "text/plain", getStats().getBytes("UTF-8"));
+			}
+		});
+		//requests are only read and queued on the server's threads; rendering happens on the workers
+		this.handlers = Executors.newFixedThreadPool(2);
+		server.setExecutor(handlers);
+	}
+	
+	/* END Constructors */
+	
+	
+	/* Main Method */
+	
+	/**
+	 * The <code>main</code> method for <code>RenderServer</code>.
+	 * @see RenderServer
+	 * @param args the list of arguments
+	 */
+	public static void main (String [] args) {
+		int port = DEFAULT_PORT;
+		if (args.length > 2) {
+			System.out.println("Usage: RenderServer [port [cachedirectory]]");
+			System.exit(0);
+		}
+		if (args.length >= 1) {
+			try {
+				port = Integer.parseInt(args[0]);
+			} catch (NumberFormatException e) {
+				System.out.println("Usage: RenderServer [port [cachedirectory]]");
+				System.exit(0);
+			}
+		}
+		
+		try {
+			RenderCache cache = new RenderCache(DEFAULT_CACHE_SIZE, (args.length == 2) ? new File(args[1]) : null);
+			RenderServer server = new RenderServer(port, Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE_SIZE, cache);
+			server.start();
+			System.out.println("Rendering songs at http://localhost:" + server.getPort() + "/render");
+		} catch (IOException e) {
+			System.out.println("Could not start the service: " + e.getMessage());
+			System.exit(0);
+		}
+	}
+	
+	/* END Main Method */
+	
+	
+	/* Accessors */
+	
+	/**
+	 * Returns the port the service listens on.
+	 * @return the port
+	 */
+	public int getPort () {
+		return server.getAddress().getPort();
+	}
+	
+	/**
+	 * Returns a summary of the requests handled so far: how long they waited for a worker, how long they took
+	 * to render, how many were refused, how many failed while they were rendered, and how the cache was used.
+	 * @return the summary, one item per line
+	 */
+	public String getStats () {
+		return "queued: " + waiting + "\n"
+			+ "rendered: " + rendering + "\n"
+			+ "rejected: " + rejected.get() + "\n"
+			+ "failed: " + failed.get() + "\n"
+			+ "cache: " + cache.getStats() + "\n";
+	}
+	
+	/* END Accessors */
+	
+	
+	/* Methods */
+	
+	/**
+	 * Starts the workers and begins accepting requests.
+	 */
+	public void start () {
+		for (int i = 0; i < workers.length; i++)
+			workers[i].start();
+		server.start();
+	}
+	
+	/**
+	 * Stops accepting requests and stops the workers.  Requests which are waiting are not answered.
+	 */
+	public void stop () {
+		server.stop(0);
+		for (int i = 0; i < workers.length; i++)
+			workers[i].interrupt();
+		handlers.shutdown();
+	}
+	
+	/* END Methods */
+	
+	
+	/* Local Methods */
+	
+	/**
+	 * Reads a request and queues it for a worker, or refuses it.
+	 */
+	private void accept (HttpExchange exchange) throws IOException {
+		if (!exchange.getRequestMethod().equals("POST")) {
+			exchange.getResponseHeaders().set("Allow", "POST");
+			respond(exchange, 405, "text/plain", "Songs must be posted.\n".getBytes("UTF-8"));
+			return;
+		}
+		
+		Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+		String format = query.containsKey("format") ? query.get("format") : "mid";
+		if (!format.equals("mid") && !format.equals("wav")) {
+			respond(exchange, 400, "text/plain", ("Unknown format " + format + "\n").getBytes("UTF-8"));
+			return;
+		}
+		int patch = DEFAULT_PATCH;
+		if (query.containsKey("instrument")) {
+			try {
+				patch = Instrument.parsePatch(query.get("instrument"));
+			} catch (IllegalArgumentException e) {
+				respond(exchange, 400, "text/plain", (e.getMessage() + "\n").getBytes("UTF-8"));
+				return;
+			}
+		}
+		
+		byte [] song = readBody(exchange.getRequestBody());
+		if (song == null) {
+			respond(exchange, 413, "text/plain", ("Songs must be no longer than " + MAX_SONG_SIZE + " bytes.\n").getBytes("UTF-8"));
+			return;
+		}
+		
+		if (!queue.offer(new Job(exchange, song, format.equals("wav"), patch))) {
+			rejected.incrementAndGet();
+			exchange.getResponseHeaders().set("Retry-After", "1");
+			respond(exchange, 503, "text/plain", "Too many songs are waiting to be rendered.\n".getBytes("UTF-8"));
+		}
+	}
+	
+	/**
+	 * Renders a song, or finds it in the cache, and sends the response.
+	 * Any failure is answered rather than thrown, so that the worker survives it.
+	 */
+	private void render (Job job) {
+		long start = System.nanoTime();
+		waiting.record(start - job.queued);
+		try {
+			try {
+				//the parsed song is cached as the number of note strings ignored, followed by the packed events
+				String textKey = RenderCache.key(job.song);
+				byte [] parsed = cache.get(textKey);
+				if (parsed == null) {
+					parsed = parse(job.song);
+					cache.put(textKey, parsed);
+				}
+				ByteBuffer buffer = ByteBuffer.wrap(parsed);
+				long ignored = buffer.getLong();
+				EventBuffer events = EventBuffer.wrap(buffer.slice().asIntBuffer());
+				
+				String format = job.wave ? "wav" : "mid";
+				String key = RenderCache.key(events, job.patch, format);
+				byte [] file = cache.get(key);
+				boolean hit = (file != null);
+				if (!hit) {
+					ByteArrayOutputStream out = new ByteArrayOutputStream();
+					if (job.wave)
+						SongRenderer.render(events, job.patch, out);
+					else
+						MidiSong.write(events, job.patch, out);
+					file = out.toByteArray();
+					cache.put(key, file);
+				}
+				
+				long end = System.nanoTime();
+				rendering.record(end - start);
+				job.exchange.getResponseHeaders().set("X-Queue-Millis", Long.toString((start - job.queued) / NANOS_PER_MILLI));
+				job.exchange.getResponseHeaders().set("X-Render-Millis", Long.toString((end - start) / NANOS_PER_MILLI));
+				job.exchange.getResponseHeaders().set("X-Ignored-Notes", Long.toString(ignored));
+				job.exchange.getResponseHeaders().set("X-Cache", hit ? "hit" : "miss");
+				respond(job.exchange, 200, job.wave ? "audio/wav" : "audio/midi", file);
+			} catch (IllegalArgumentException e) {
+				respond(job.exchange, 400, "text/plain", (e.getMessage() + "\n").getBytes("UTF-8"));
+			} catch (MidiUnavailableException e) {
+				respond(job.exchange, 500, "text/plain", (e.getMessage() + "\n").getBytes("UTF-8"));
+			} catch (RuntimeException e) {
+				failed.incrementAndGet();
+				respond(job.exchange, 500, "text/plain", "The song could not be rendered.\n".getBytes("UTF-8"));
+			}
+		} catch (IOException e) {
+			//the client has gone
+			job.exchange.close();
+		}
+	}
+	
+	/* END Local Methods */
+	
+	
+	/* Static Methods */
+	
+	/**
+	 * Parses a song text into the number of note strings ignored, followed by the packed events.
+	 * A change to this layout must be matched by a new <code>RenderCache.FORMAT_VERSION</code>.
+	 */
+	private static byte [] parse (byte [] song) throws IOException {
+		EventBuffer.Builder builder = new EventBuffer.Builder();
+		SongReader reader = new SongReader(new InputStreamReader(new ByteArrayInputStream(song), "UTF-8"), SongReader.DEFAULT_BUFFER_SIZE);
+		for (MusicEvent e = reader.read(); e != null; e = reader.read())
+			builder.add(e);
+		
+		EventBuffer events = builder.build();
+		ByteBuffer parsed = ByteBuffer.allocate(8 + events.size() * 4);
+		parsed.putLong(reader.getDiagnostics().getCount());
+		parsed.asIntBuffer().put(events.asIntBuffer());
+		return parsed.array();
+	}
+	
+	private static void respond (HttpExchange exchange, int status, String type, byte [] body) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", type);
+		exchange.sendResponseHeaders(status, (body.length == 0) ? -1 : body.length);
+		OutputStream out = exchange.getResponseBody();
+		try {
+			out.write(body);
+		} finally {
+			out.close();
+		}
+	}
+	
+	/**
+	 * Reads a request body, or returns <code>null</code> if it is longer than <code>MAX_SONG_SIZE</code>.
+	 */
+	private static byte [] readBody (InputStream in) throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		byte [] buffer = new byte[8192];
+		try {
+			for (int n = in.read(buffer); n != -1; n = in.read(buffer)) {
+				if (body.size() + n > MAX_SONG_SIZE)
+					return null;
+				body.write(buffer, 0, n);
+			}
+		} finally {
+			in.close();
+		}
+		return body.toByteArray();
+	}
+	
+	private static Map<String, String> parseQuery (String query) throws IOException {
+		Map<String, String> map = new HashMap<String, String>();
+		if (query == null)
+			return map;
+		
+		String [] pairs = query.split("&");
+		for (int i = 0; i < pairs.length; i++) {
+			int eq = pairs[i].indexOf('=');
+			if (eq > 0)
+				map.put(URLDecoder.decode(pairs[i].substring(0, eq), "UTF-8"), URLDecoder.decode(pairs[i].substring(eq + 1), "UTF-8"));
+		}
+		return map;
+	}
+	
+	/* END Static Methods */
+	
+	
+	/* Inner Classes */
+	
+	/**
+	 * A request waiting to be rendered.
+	 */
+	private static final class Job {
+		
+		private final HttpExchange exchange;
+		private final byte [] song;
+		private final boolean wave;
+		private final int patch;
+		private final long queued = System.nanoTime();
+		
+		private Job (HttpExchange exchange, byte [] song, boolean wave, int patch) {
+			this.exchange = exchange;
+			this.song = song;
+			this.wave = wave;
+			this.patch = patch;
+		}
+	
+	}
+	
+	/**
+	 * Takes requests from the queue one at a time and renders them until it is interrupted.
+	 */
+	private final class Worker implements Runnable {
+		
+		public void run () {
+			try {
+				while (!Thread.currentThread().isInterrupted())
+					render(queue.take());
+			} catch (InterruptedException e) {
+			}
+		}
+	
+	}
+	
+	/* END Inner Classes */
+
+}
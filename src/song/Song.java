@@ -12,9 +12,12 @@
 package song;
 
 import midi.*;
+import timing.TempoMap;
+import timing.TimeContext;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.*;
 
 import javax.sound.midi.MidiUnavailableException;
@@ -22,11 +25,35 @@ import javax.sound.midi.MidiUnavailableException;
 
 /**
  * Plays a song from note strings in a file which is specified by the first argument.
+ * The file can also be a compiled song file written by <code>SongCompiler</code>, or a Standard MIDI File.
  * The second argument optionally specifies the instrument to use, either as a patch number or
  * one of the named instruments available within <code>Instrument</code>.
+ * With the <code>-parallel</code> option, a song file is parsed on all processors with
+ * <code>ParallelSongParser</code> before it is played, rather than being played as it is read.
+ * With the <code>-sequencer</code> option, the whole song is read and then played by the system
+ * <code>Sequencer</code>, which keeps time rather than the playing thread.
+ * With the <code>-timing</code> option, a summary of how late the events were played is printed afterwards.
+ * With the <code>-tempo</code> option, the song is played at the given number of quarter notes per minute
+ * rather than 150, at which a long note lasts 400 milliseconds.
+ * With the <code>-bar</code> option, the whole song is read and then played from the start of the given bar,
+ * which is found by a <code>SeekIndex</code> without playing the bars before it.
+ * With the <code>-render</code> option, the song is not played but rendered to the WAV file named after it,
+ * by <code>SongRenderer</code>, as fast as it can be synthesised.
+ * While a song plays, how it was read and played is published over JMX by <code>ParseMetrics</code> and <code>PlaybackMetrics</code>.
+ * Reading a song is also recorded as a <code>SongLoadEvent</code> for Java Flight Recorder, which is disabled by default.
  */
 public class Song {
 	
+	/* Static Constants */
+	
+	/**
+	 * The number of events read ahead while a song file is played as it is read.
+	 */
+	private static final int STREAM_BATCH_SIZE = 256;
+	
+	/* END Static Constants */
+	
+	
 	/* Main Method */
 	
 	/**
@@ -35,13 +62,36 @@ public class Song {
 	 * @param args the list of arguments
 	 */
 	public static void main (String [] args) {
-		if (args.length < 1 || args.length > 2) {
-			System.out.println("Usage: Song filename [instrument]\n");
-			System.out.println("Available instruments:");
-			Iterator<String> i = Instrument.getNamedInstruments().iterator();
-			while (i.hasNext())
-				System.out.println('\t' + i.next());
-			System.exit(0);
+		//options come before the file name
+		boolean parallel = false, sequenced = false, timing = false;
+		File wave = null;
+		TempoMap tempo = TempoMap.DEFAULT;
+		int bar = 1;
+		int first = 0;
+		for (; first < args.length && args[first].startsWith("-"); first++) {
+			if (args[first].equals("-parallel"))
+				parallel = true;
+			else if (args[first].equals("-render") && first + 1 < args.length)
+				wave = new File(args[++first]);
+			else if (args[first].equals("-tempo") && first + 1 < args.length)
+				tempo = parseTempo(args[++first]);
+			else if (args[first].equals("-bar") && first + 1 < args.length)
+				bar = parseBar(args[++first]);
+			else if (args[first].equals("-sequencer"))
+				sequenced = true;
+			else if (args[first].equals("-timing"))
+				timing = true;
+			else
+				printUsage();
+		}
+		args = Arrays.copyOfRange(args, first, args.length);
+		
+		if (args.length < 1 || args.length > 2)
+			printUsage();
+		
+		if (wave != null) {
+			render(new File(args[0]), (args.length == 2) ? args[1] : "1", wave, parallel, tempo);
+			return;
 		}
 		
 		//get instrument
@@ -66,11 +116,36 @@ public class Song {
 		}
 		
 		try {
-			playNotes(readFile(args[0]), instr);
+			File file = new File(args[0]);
+			if (sequenced) {
+				playSequenced(readEvents(file, parallel), instr, tempo);
+			} else if (bar > 1) {
+				playNotes(readEvents(file, parallel), instr, tempo, bar);
+			} else if (parallel || MidiSong.isMidi(file) || CompiledSong.isCompiled(file)) {
+				playNotes(readEvents(file, parallel), instr, tempo);
+			} else {
+				SongReader reader = new SongReader(file);
+				try {
+					playNotes(reader, file, instr, tempo);
+				} finally {
+					reader.close();
+				}
+				printDiagnostics(reader.getDiagnostics());
+			}
 		} catch (FileNotFoundException e) {
 			System.out.println("File not found");
 			System.exit(0);
+		} catch (IOException e) {
+			System.out.println("Could not read file");
+			System.exit(0);
+		} catch (MidiUnavailableException e) {
+			System.out.println("MIDI playback is unavailable");
+			System.exit(0);
 		}
+		
+		if (timing && !sequenced)
+			System.out.println("Lateness: " + instr.getLateness());
+		instr.close();
 	}
 	
 	/* END Main Method */
@@ -79,41 +154,249 @@ public class Song {
 	/* Local Methods */
 	
 	/**
-	 * Reads notes and rests from a file and returns the
-	 * @param filename the file to read
-	 * @return a <code>Vector&lt;Event&gt;</code> listing all of the events read from the file
-	 * @throws FileNotFoundException if the file does not exist or is not accessible
+	 * Plays notes and rests as they are read from a <code>SongReader</code>.
+	 * Events are read and played a few at a time, so playback begins before the whole file has been read.
+	 * The batches share one <code>DeadlineScheduler</code>, so the time spent reading does not delay the song.
+	 * The time spent reading each batch is recorded by <code>ParseMetrics</code>, and as a <code>SongLoadEvent</code>.
+	 * @param reader the <code>SongReader</code> to read events from
+	 * @param file the file the reader reads
+	 * @param instr the <code>Instrument</code> to play
+	 * @param tempo the tempo map to play the events at
+	 * @throws IOException if the file cannot be read
 	 */
-	private static Vector<MusicEvent> readFile (String filename) throws FileNotFoundException {
-		Scanner s = new Scanner(new File(filename));
-		StringBuffer sb = new StringBuffer();
-		while (s.hasNext())
-			sb.append(s.nextLine() + ",");
-		
-		StringTokenizer st = new StringTokenizer(sb.toString(), ",");
-		Vector<MusicEvent> notes = new Vector<MusicEvent>(st.countTokens());
-		for (int i = 0; st.hasMoreTokens(); i++) {
-			String str = st.nextToken().trim();
-			try {
-				notes.add(new MusicEvent(str));
-			} catch (IllegalArgumentException e) {
-				System.out.println("Note string \"" + str + "\" was ignored");
+	private static void playNotes (SongReader reader, File file, Instrument instr, TempoMap tempo) throws IOException {
+		DeadlineScheduler scheduler = new DeadlineScheduler(instr.getLateness(), instr.getClock(), tempo);
+		EventBuffer.Builder batch = new EventBuffer.Builder(STREAM_BATCH_SIZE);
+		ParseMetrics metrics = ParseMetrics.getDefault();
+		SongLoadEvent event = new SongLoadEvent();
+		event.begin();
+		long start = System.nanoTime();
+		long tokens = 0;
+		MusicEvent e = reader.read();
+		while (e != null) {
+			batch.clear();
+			for (; e != null && batch.size() < STREAM_BATCH_SIZE; e = reader.read())
+				batch.add(e);
+			metrics.recordParse(System.nanoTime() - start);
+			if (event.shouldCommit()) {
+				event.file = file.getPath();
+				event.bytes = file.length();
+				event.tokens = reader.getTokenCount() - tokens;
+				event.events = batch.size();
+				event.commit();
 			}
+			tokens = reader.getTokenCount();
+			
+			instr.play(batch.build(), scheduler);
+			event = new SongLoadEvent();
+			event.begin();
+			start = System.nanoTime();
 		}
-		return notes;
+		metrics.recordSong();
+		instr.rest(1500);
+	}
+	
+	/**
+	 * Plays notes and rests stored in an <code>EventBuffer</code>.
+	 * @param notes the notes to play
+	 * @param instr the <code>Instrument</code> to play
+	 * @param tempo the tempo map to play the events at
+	 */
+	private static void playNotes (EventBuffer notes, Instrument instr, TempoMap tempo) {
+		instr.play(notes, tempo);
+		instr.rest(1500);
 	}
 	
 	/**
-	 * Plays notes and rests stored in a <code>Vector&lt;Event&gt;</code>.
+	 * Plays notes and rests stored in an <code>EventBuffer</code> from the start of a bar.
 	 * @param notes the notes to play
-	 * @throws MidiUnavailableException if MIDI playback is unavailable
+	 * @param instr the <code>Instrument</code> to play
+	 * @param tempo the tempo map to play the events at
+	 * @param bar the number of the bar to start from, counting from 1
 	 */
-	private static void playNotes (Vector<MusicEvent> notes, Instrument instr) {
-		for (int i = 0; i < notes.size(); i++)
-			notes.get(i).play(instr);
+	private static void playNotes (EventBuffer notes, Instrument instr, TempoMap tempo, int bar) {
+		SeekIndex index = new SeekIndex(notes, tempo);
+		if (bar > index.getBarCount()) {
+			System.out.println("The song has only " + index.getBarCount() + " bars");
+			return;
+		}
+		instr.play(index.seekBar(bar));
 		instr.rest(1500);
 	}
 	
+	/**
+	 * Plays notes and rests stored in an <code>EventBuffer</code> on the system <code>Sequencer</code>, and waits for them to finish.
+	 * @param notes the notes to play
+	 * @param instr the <code>Instrument</code> to play
+	 * @param tempo the tempo map to play the events at
+	 * @throws MidiUnavailableException if there is no sequencer
+	 */
+	private static void playSequenced (EventBuffer notes, Instrument instr, TempoMap tempo) throws MidiUnavailableException {
+		SequencedPlayback playback = instr.playSequenced(notes, tempo);
+		try {
+			playback.await();
+		} catch (InterruptedException e) {
+			playback.stop();
+		}
+		instr.rest(1500);
+	}
+	
+	/**
+	 * Renders a song file or compiled song file to a WAV file, and prints how long it took.
+	 * @param file the song to render
+	 * @param instrument the patch number or named instrument to render with
+	 * @param wave the WAV file to write
+	 * @param parallel <code>true</code> to parse a song file with <code>ParallelSongParser</code>
+	 * @param tempo the tempo map to render the events at
+	 */
+	private static void render (File file, String instrument, File wave, boolean parallel, TempoMap tempo) {
+		int patch;
+		try {
+			patch = Instrument.parsePatch(instrument);
+		} catch (IllegalArgumentException e) {
+			System.out.println(e.getMessage());
+			System.out.println("Using piano (patch 001) as default instrument");
+			patch = 1;
+		}
+		
+		try {
+			EventBuffer notes = readEvents(file, parallel);
+			long start = System.nanoTime();
+			SongRenderer.render(notes, patch, tempo, wave);
+			long elapsed = (System.nanoTime() - start) / 1000000;
+			System.out.println("Rendered " + tempo.toNanos(notes.getTotalDuration()) / 1000000000.0 + "s of music to " + wave + " in " + elapsed / 1000.0 + "s");
+		} catch (FileNotFoundException e) {
+			System.out.println("File not found");
+		} catch (IllegalArgumentException e) {
+			System.out.println(e.getMessage());
+		} catch (IOException e) {
+			System.out.println("Could not read or write file");
+		} catch (MidiUnavailableException e) {
+			System.out.println(e.getMessage());
+		}
+	}
+	
+	/**
+	 * Reads every event of a song file, compiled song file or MIDI file, and prints any note strings which were ignored.
+	 * How long reading took is recorded by <code>ParseMetrics</code>, and as a <code>SongLoadEvent</code>.
+	 * @param file the file to read
+	 * @param parallel <code>true</code> to parse a song file with <code>ParallelSongParser</code>
+	 * @return the events of the song
+	 * @throws IOException if the file does not exist or cannot be read
+	 */
+	private static EventBuffer readEvents (File file, boolean parallel) throws IOException {
+		SongLoadEvent event = new SongLoadEvent();
+		event.begin();
+		long start = System.nanoTime();
+		EventBuffer notes = loadEvents(file, parallel, event);
+		ParseMetrics.getDefault().recordParse(System.nanoTime() - start);
+		ParseMetrics.getDefault().recordSong();
+		if (event.shouldCommit()) {
+			event.file = file.getPath();
+			event.bytes = file.length();
+			event.events = notes.size();
+			event.complete = true;
+			event.commit();
+		}
+		return notes;
+	}
+	
+	/**
+	 * Reads every event of a song file, compiled song file or MIDI file, for <code>readEvents(File, boolean)</code>,
+	 * and sets the number of tokens of the event for a song file.
+	 */
+	private static EventBuffer loadEvents (File file, boolean parallel, SongLoadEvent event) throws IOException {
+		if (CompiledSong.isCompiled(file))
+			return CompiledSong.open(file).getEvents();
+		if (MidiSong.isMidi(file))
+			return MidiSong.read(file);
+		
+		if (parallel) {
+			ParseDiagnostics diagnostics = new ParseDiagnostics();
+			ParallelSongParser parser = new ParallelSongParser();
+			EventBuffer notes = parser.parse(file, diagnostics);
+			event.tokens = parser.getTokenCount();
+			printDiagnostics(diagnostics);
+			return notes;
+		}
+		
+		EventBuffer.Builder notes = new EventBuffer.Builder();
+		SongReader reader = new SongReader(file);
+		try {
+			for (MusicEvent e = reader.read(); e != null; e = reader.read())
+				notes.add(e);
+		} finally {
+			reader.close();
+		}
+		event.tokens = reader.getTokenCount();
+		printDiagnostics(reader.getDiagnostics());
+		return notes.build();
+	}
+	
+	/**
+	 * Parses a tempo into a <code>TempoMap</code> for songs read from note strings, or prints the usage message if it is not a tempo.
+	 * @param bpm the tempo (in quarter notes per minute)
+	 * @return the <code>TempoMap</code>
+	 */
+	private static TempoMap parseTempo (String bpm) {
+		try {
+			return new TempoMap.Builder(TempoMap.DEFAULT_RESOLUTION, new TimeContext(TempoMap.DEFAULT_CONTEXT.getTimeSignature(), Integer.parseInt(bpm))).build();
+		} catch (IllegalArgumentException e) {
+			printUsage();
+			return null;
+		}
+	}
+	
+	/**
+	 * Parses the number of the bar to start playing from, or prints the usage message if it is not a bar number.
+	 * @param bar the number of the bar, counting from 1
+	 * @return the number of the bar
+	 */
+	private static int parseBar (String bar) {
+		try {
+			int number = Integer.parseInt(bar);
+			if (number >= 1)
+				return number;
+		} catch (NumberFormatException e) {
+		}
+		printUsage();
+		return 1;
+	}
+	
+	/**
+	 * Prints the usage message and the available instruments, then exits.
+	 */
+	private static void printUsage () {
+		System.out.println("Usage: Song [-parallel] [-sequencer] [-timing] [-tempo bpm] [-bar n] [-render out.wav] filename [instrument]\n");
+		System.out.println("  -parallel   parse the whole file on all processors before playing");
+		System.out.println("  -sequencer  play the whole song on the system sequencer");
+		System.out.println("  -timing     print how late the events were played");
+		System.out.println("  -tempo      play at this many quarter notes per minute (150 by default)");
+		System.out.println("  -bar        start playing from this bar (1 by default)");
+		System.out.println("  -render     write the song to a WAV file instead of playing it\n");
+		System.out.println("Available instruments:");
+		Iterator<String> i = Instrument.getNamedInstruments().iterator();
+		while (i.hasNext())
+			System.out.println('\t' + i.next());
+		System.exit(0);
+	}
+	
+	/**
+	 * Prints the note strings which were ignored while reading the file.
+	 * @param diagnostics the diagnostics to print
+	 */
+	private static void printDiagnostics (ParseDiagnostics diagnostics) {
+		if (diagnostics.isEmpty())
+			return;
+		
+		System.out.println(diagnostics.getCount() + " note string(s) were ignored:");
+		List<ParseDiagnostic> list = diagnostics.getDiagnostics();
+		for (int i = 0; i < list.size(); i++)
+			System.out.println('\t' + list.get(i).toString());
+		if (diagnostics.getCount() > list.size())
+			System.out.println("\t...");
+	}
+	
 	/* END Local Methods */
 	
 }
@@ -0,0 +1,213 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package song;
+
+import midi.EventBuffer;
+import midi.Instrument;
+import midi.MusicEvent;
+import midi.PackedEvent;
+import midi.ParseDiagnostic;
+import midi.ParseDiagnostics;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+
+/**
+ * Compiles the song file specified by the first argument into the compiled song file specified by the second argument.
+ * A compiled song file can be played by <code>Song</code> without being parsed.
+ * If the name of the second file ends in <code>.mid</code>, the song is written as a Standard MIDI File instead,
+ * played with the instrument given by the optional third argument, either as a patch number or one of the
+ * named instruments available within <code>Instrument</code>.
+ * @see CompiledSong
+ */
+public class SongCompiler {
+	
+	/* Static Constants */
+	
+	private static final int BUFFER_SIZE = 8192;
+	
+	/* END Static Constants */
+	
+	
+	/* Main Method */
+	
+	/**
+	 * The <code>main</code> method for <code>SongCompiler</code>.
+	 * @see SongCompiler
+	 * @param args the list of arguments
+	 */
+	public static void main (String [] args) {
+		if (args.length != 2 && args.length != 3) {
+			System.out.println("Usage: SongCompiler songfile compiledfile|midifile.mid [instrument]");
+			System.exit(0);
+		}
+		
+		try {
+			File output = new File(args[1]);
+			ParseDiagnostics diagnostics;
+			if (output.getName().toLowerCase().endsWith(".mid"))
+				diagnostics = export(new File(args[0]), output, parsePatch((args.length == 3) ? args[2] : "1"));
+			else
+				diagnostics = compile(new File(args[0]), output);
+			List<ParseDiagnostic> list = diagnostics.getDiagnostics();
+			for (int i = 0; i < list.size(); i++)
+				System.out.println("Note string ignored at " + list.get(i));
+		} catch (FileNotFoundException e) {
+			System.out.println("File not found");
+			System.exit(0);
+		} catch (IllegalArgumentException e) {
+			System.out.println(e.getMessage());
+			System.exit(0);
+		} catch (IOException e) {
+			System.out.println("Could not compile file: " + e.getMessage());
+			System.exit(0);
+		}
+	}
+	
+	/* END Main Method */
+	
+	
+	/* Static Methods */
+	
+	/**
+	 * Compiles a song file into a compiled song file.
+	 * The song file is read with a <code>SongReader</code>, so it is never held in memory as a whole.
+	 * @param songFile the song file to read
+	 * @param compiledFile the compiled song file to write
+	 * @return the diagnostics for any note strings which were ignored
+	 * @throws IOException if either file cannot be accessed, or the song has too many events
+	 */
+	public static ParseDiagnostics compile (File songFile, File compiledFile) throws IOException {
+		SongReader reader = new SongReader(songFile);
+		try {
+			RandomAccessFile raf = new RandomAccessFile(compiledFile, "rw");
+			try {
+				raf.setLength(0);
+				FileChannel channel = raf.getChannel();
+				ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+				
+				int count = 0;
+				long totalDuration = 0;
+				int lowest = -1, highest = -1;
+				int [] packed = new int[1];
+				
+				channel.position(CompiledSong.HEADER_SIZE);
+				for (MusicEvent e = reader.read(); e != null; e = reader.read()) {
+					//a chord is packed as one event per note
+					int n = PackedEvent.size(e);
+					if (n > (Integer.MAX_VALUE - CompiledSong.HEADER_SIZE) / CompiledSong.RECORD_SIZE - count)
+						throw new IOException("The song has too many events to compile.");
+					if (n > packed.length)
+						packed = new int[n];
+					PackedEvent.pack(e, packed, 0);
+					
+					for (int i = 0; i < n; i++) {
+						int event = packed[i];
+						if (PackedEvent.getType(event) != PackedEvent.TYPE_REST) {
+							int midi = PackedEvent.getMIDI(event);
+							if (lowest == -1 || midi < lowest)
+								lowest = midi;
+							if (midi > highest)
+								highest = midi;
+						}
+						totalDuration += PackedEvent.getAdvance(event);
+						count++;
+						
+						if (!buffer.hasRemaining())
+							flush(buffer, channel);
+						buffer.putInt(event);
+					}
+				}
+				flush(buffer, channel);
+				
+				ByteBuffer header = ByteBuffer.allocate(CompiledSong.HEADER_SIZE);
+				CompiledSong.putHeader(header, count, totalDuration, lowest, highest);
+				channel.write(header, 0);
+			} finally {
+				raf.close();
+			}
+		} finally {
+			reader.close();
+		}
+		return reader.getDiagnostics();
+	}
+	
+	/**
+	 * Converts a song file into a Standard MIDI File, played with the piano.
+	 * This method is a convenience method for <code>export(songFile, midiFile, 1)</code>.
+	 * @param songFile the song file to read
+	 * @param midiFile the MIDI file to write
+	 * @return the diagnostics for any note strings which were ignored
+	 * @throws IOException if either file cannot be accessed
+	 * @see MidiSong
+	 */
+	public static ParseDiagnostics export (File songFile, File midiFile) throws IOException {
+		return export(songFile, midiFile, 1);
+	}
+	
+	/**
+	 * Converts a song file into a Standard MIDI File, played with a patch.
+	 * @param songFile the song file to read
+	 * @param midiFile the MIDI file to write
+	 * @param patch the patch to play the song with
+	 * @return the diagnostics for any note strings which were ignored
+	 * @throws IllegalArgumentException if the patch is out of range
+	 * @throws IOException if either file cannot be accessed
+	 * @see MidiSong
+	 */
+	public static ParseDiagnostics export (File songFile, File midiFile, int patch) throws IllegalArgumentException, IOException {
+		EventBuffer.Builder events = new EventBuffer.Builder();
+		SongReader reader = new SongReader(songFile);
+		try {
+			for (MusicEvent e = reader.read(); e != null; e = reader.read())
+				events.add(e);
+		} finally {
+			reader.close();
+		}
+		MidiSong.write(events.build(), patch, midiFile);
+		return reader.getDiagnostics();
+	}
+	
+	/* END Static Methods */
+	
+	
+	/* Local Methods */
+	
+	/**
+	 * Parses a patch number or named instrument as <code>Song</code> does, using the piano if it is neither.
+	 */
+	private static int parsePatch (String instrument) {
+		try {
+			return Instrument.parsePatch(instrument);
+		} catch (IllegalArgumentException e) {
+			System.out.println(e.getMessage());
+			System.out.println("Using piano (patch 001) as default instrument");
+			return 1;
+		}
+	}
+	
+	private static void flush (ByteBuffer buffer, FileChannel channel) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+	
+	/* END Local Methods */
+
+}
@@ -0,0 +1,62 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package song;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+
+/**
+ * A Java Flight Recorder event for reading a song with <code>Song</code>, which lasts as long as reading took.
+ * A song file which is played as it is read gives an event for each batch of events read, between the notes played.
+ * The event is disabled by default, so that reading pays nothing for it; it is enabled for a recording with
+ * <code>-XX:StartFlightRecording:+midi.SongLoad#enabled=true</code>.
+ */
+@Name("midi.SongLoad")
+@Label("Song Load")
+@Category({ "MIDI", "Parsing" })
+@Description("A song, or a batch of a song which is played as it is read, was read")
+@Enabled(false)
+@StackTrace(false)
+final class SongLoadEvent extends Event {
+	
+	/* Fields */
+	
+	@Label("File")
+	String file;
+	
+	@Label("Bytes")
+	@Description("The size of the file")
+	@DataAmount
+	long bytes;
+	
+	@Label("Tokens")
+	@Description("The number of note strings read, including those ignored, or 0 for a compiled or MIDI file")
+	long tokens;
+	
+	@Label("Events")
+	@Description("The number of events read")
+	int events;
+	
+	@Label("Complete")
+	@Description("False for a batch of a song which is played as it is read")
+	boolean complete;
+	
+	/* END Fields */
+
+}
@@ -0,0 +1,268 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package song;
+
+import midi.MusicEvent;
+import midi.ParseDiagnostics;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+
+
+/**
+ * Reads <code>MusicEvent</code>s from a song file one at a time.
+ * Tokens are separated by commas or line terminators, and are parsed with
+ * {@link MusicEvent#parseEvent(CharSequence, int, int, ParseDiagnostics, int, int)} only when they
+ * are requested, so playback can begin as soon as the first token has been read.
+ * Tokens which cannot be parsed are skipped and reported to this reader's <code>ParseDiagnostics</code>.
+ * At most one buffer of characters is read ahead of the current token, so memory
+ * use does not depend on the size of the file.
+ */
+public class SongReader implements Closeable {
+	
+	/* Static Constants */
+	
+	/**
+	 * The default number of characters to read ahead.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 8192;
+	
+	/* END Static Constants */
+	
+	
+	/* Fields */
+	
+	private final Reader in;
+	private final char [] buffer;
+	private int position;
+	private int limit;
+	private boolean eof;
+	private final StringBuilder token;
+	private final ParseDiagnostics diagnostics;
+	
+	private int line = 1;
+	private int column = 1;
+	private boolean afterCarriageReturn;
+	private int tokenLine;
+	private int tokenColumn;
+	private long tokens;
+	
+	/* END Fields */
+	
+	
+	/* Constructors */
+	
+	/**
+	 * Constructs a <code>SongReader</code> which reads from a file in the platform's default encoding.
+	 * @param file the file to read
+	 * @throws FileNotFoundException if the file does not exist or is not accessible
+	 */
+	public SongReader (File file) throws FileNotFoundException {
+		this(Channels.newReader(new FileInputStream(file).getChannel(), Charset.defaultCharset().name()), DEFAULT_BUFFER_SIZE);
+	}
+	
+	/**
+	 * Constructs a <code>SongReader</code> which reads from a <code>Reader</code>.
+	 * @param in the <code>Reader</code> to read from
+	 * @param bufferSize the number of characters to read ahead
+	 * @throws IllegalArgumentException if bufferSize is not positive
+	 */
+	public SongReader (Reader in, int bufferSize) throws IllegalArgumentException {
+		this(in, bufferSize, new ParseDiagnostics());
+	}
+	
+	/**
+	 * Constructs a <code>SongReader</code> which reads from a <code>Reader</code> and reports to a <code>ParseDiagnostics</code>.
+	 * @param in the <code>Reader</code> to read from
+	 * @param bufferSize the number of characters to read ahead
+	 * @param diagnostics the <code>ParseDiagnostics</code> to report ignored note strings to
+	 * @throws IllegalArgumentException if bufferSize is not positive
+	 */
+	public SongReader (Reader in, int bufferSize, ParseDiagnostics diagnostics) throws IllegalArgumentException {
+		if (bufferSize <= 0)
+			throw new IllegalArgumentException("The buffer size must be positive.");
+		
+		this.in = in;
+		this.buffer = new char[bufferSize];
+		this.token = new StringBuilder(16);
+		this.diagnostics = diagnostics;
+	}
+	
+	/* END Constructors */
+	
+	
+	/* Accessors */
+	
+	/**
+	 * Returns the diagnostics for the tokens which have been skipped so far.
+	 * @return the <code>ParseDiagnostics</code> for this reader
+	 */
+	public ParseDiagnostics getDiagnostics () {
+		return diagnostics;
+	}
+	
+	/**
+	 * Returns the number of tokens read so far, including those which were skipped.
+	 * @return the number of tokens
+	 */
+	public long getTokenCount () {
+		return tokens;
+	}
+	
+	/**
+	 * Returns the line the reader has reached.
+	 * @return the line (starting at 1)
+	 */
+	int getLine () {
+		return line;
+	}
+	
+	/**
+	 * Returns the column the reader has reached.
+	 * @return the column (starting at 1)
+	 */
+	int getColumn () {
+		return column;
+	}
+	
+	/* END Accessors */
+	
+	
+	/* Methods */
+	
+	/**
+	 * Reads the next <code>MusicEvent</code> from the file.
+	 * Note strings which cannot be parsed are reported to {@link #getDiagnostics()} and skipped.
+	 * @return the next <code>MusicEvent</code>, or <code>null</code> if the end of the file has been reached
+	 * @throws IOException if the file cannot be read
+	 */
+	public MusicEvent read () throws IOException {
+		while (nextToken()) {
+			tokens++;
+			MusicEvent e = MusicEvent.parseEvent(token, 0, token.length(), diagnostics, tokenLine, tokenColumn);
+			if (e != null)
+				return e;
+		}
+		return null;
+	}
+	
+	/**
+	 * Closes the underlying file.
+	 * @throws IOException if the file cannot be closed
+	 */
+	public void close () throws IOException {
+		in.close();
+	}
+	
+	/* END Methods */
+	
+	
+	/* Local Methods */
+	
+	/**
+	 * Reads the next non-empty token into <code>token</code>, without leading or trailing whitespace.
+	 * Returns <code>false</code> at the end of the input.
+	 */
+	private boolean nextToken () throws IOException {
+		token.setLength(0);
+		while (true) {
+			if (position == limit && !fill())
+				return trimToken();
+			
+			char c = buffer[position++];
+			if (isSeparator(c)) {
+				advance(c);
+				if (trimToken())
+					return true;
+			} else {
+				afterCarriageReturn = false;
+				if (token.length() == 0) {
+					if (c <= ' ') {
+						column++;
+						continue;
+					}
+					tokenLine = line;
+					tokenColumn = column;
+				}
+				token.append(c);
+				column++;
+			}
+		}
+	}
+	
+	/**
+	 * Moves the line and column past a separator.
+	 */
+	private void advance (char c) {
+		if (c == ',') {
+			column++;
+		} else if (!(c == '\n' && afterCarriageReturn)) {
+			line++;
+			column = 1;
+		}
+		afterCarriageReturn = c == '\r';
+	}
+	
+	private boolean fill () throws IOException {
+		if (eof)
+			return false;
+		
+		int n;
+		do {
+			n = in.read(buffer, 0, buffer.length);
+		} while (n == 0);
+		
+		if (n < 0) {
+			eof = true;
+			return false;
+		}
+		position = 0;
+		limit = n;
+		return true;
+	}
+	
+	/**
+	 * Removes trailing whitespace from <code>token</code> (leading whitespace is never appended)
+	 * and returns <code>true</code> if anything is left.
+	 */
+	private boolean trimToken () {
+		int end = token.length();
+		while (end > 0 && token.charAt(end - 1) <= ' ')
+			end--;
+		token.setLength(end);
+		return end > 0;
+	}
+	
+	/* END Local Methods */
+	
+	
+	/* Static Methods */
+	
+	/**
+	 * Determines whether a character separates tokens.
+	 * Tokens are separated by commas and by any of the line terminators recognised by <code>Scanner</code>.
+	 * @param c the character to test
+	 * @return <code>true</code> if c separates tokens
+	 */
+	static boolean isSeparator (char c) {
+		return c == ',' || c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+	}
+	
+	/* END Static Methods */
+
+}
@@ -0,0 +1,348 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package timing;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+
+/**
+ * Converts between ticks, a position in a song measured in fractions of a quarter note, and the time from the start of the song.
+ * A song has <code>getResolution()</code> ticks per quarter note and a tempo which can change at any tick.
+ * The time at which each tempo starts is worked out when the map is built, so converting a tick is a binary
+ * search for its tempo followed by one exact integer calculation from the start of that tempo: there is no
+ * floating point, and no error builds up over a long song.  A <code>TempoMap</code> cannot be changed once it
+ * is built, so a different tempo is a different map, and events measured in ticks need not be read again.
+ */
+public final class TempoMap {
+	
+	/* Static */
+		
+		/* Static Constants */
+		
+		/**
+		 * The resolution of songs read from note strings, in ticks per quarter note.
+		 * A long note is one quarter note and a short note is half of one.
+		 */
+		public static final int DEFAULT_RESOLUTION = 400;
+		
+		/**
+		 * The time signature and tempo of songs read from note strings: 150 quarter notes per minute,
+		 * at which a tick of <code>DEFAULT_RESOLUTION</code> is exactly one millisecond.
+		 */
+		public static final TimeContext DEFAULT_CONTEXT = new TimeContext(new TimeSignature(4, 4), 150);
+		
+		/**
+		 * The map of songs read from note strings, with <code>DEFAULT_RESOLUTION</code> and a constant <code>DEFAULT_CONTEXT</code>.
+		 * Durations in milliseconds can be used as ticks of this map unchanged.
+		 */
+		public static final TempoMap DEFAULT = new Builder(DEFAULT_RESOLUTION, DEFAULT_CONTEXT).build();
+		
+		private static final long NANOS_PER_MINUTE = 60000000000L;
+		private static final long NANOS_PER_MICRO = 1000;
+		private static final long MIDI_DEFAULT_MICROS = 500000;
+		
+		/* END Static Constants */
+	
+	/* END Static */
+	
+	
+	/* Fields */
+	
+	private final int resolution;
+	
+	//for each tempo, in order: the tick and time it starts at, the nanoseconds per tick as a fraction, and its context if it has one
+	private final long [] ticks;
+	private final long [] nanos;
+	private final long [] numerators;
+	private final long [] denominators;
+	private final TimeContext [] contexts;
+	
+	/* END Fields */
+	
+	
+	/* Constructors */
+	
+	private TempoMap (int resolution, TreeMap<Long, Tempo> tempos) {
+		int n = tempos.size();
+		this.resolution = resolution;
+		this.ticks = new long[n];
+		this.nanos = new long[n];
+		this.numerators = new long[n];
+		this.denominators = new long[n];
+		this.contexts = new TimeContext[n];
+		
+		int i = 0;
+		for (Map.Entry<Long, Tempo> entry : tempos.entrySet()) {
+			ticks[i] = entry.getKey();
+			numerators[i] = entry.getValue().numerator;
+			denominators[i] = entry.getValue().denominator;
+			contexts[i] = entry.getValue().context;
+			if (i > 0)
+				nanos[i] = nanos[i - 1] + scale(ticks[i] - ticks[i - 1], numerators[i - 1], denominators[i - 1]);
+			i++;
+		}
+	}
+	
+	/* END Constructors */
+	
+	
+	/* Accessors */
+	
+	/**
+	 * Returns the number of ticks per quarter note.
+	 * @return the resolution
+	 */
+	public int getResolution () {
+		return resolution;
+	}
+	
+	/**
+	 * Returns the number of tempos in the map, including the one it starts with.
+	 * @return the number of tempos
+	 */
+	public int getTempoCount () {
+		return ticks.length;
+	}
+	
+	/**
+	 * Returns the tick at which a tempo starts.
+	 * @param index the index of the tempo, in order
+	 * @return the tick (0 for the first tempo)
+	 * @throws IndexOutOfBoundsException if index is out of range
+	 */
+	public long getTempoTick (int index) throws IndexOutOfBoundsException {
+		return ticks[index];
+	}
+	
+	/**
+	 * Returns the length of a quarter note in a tempo, rounded to the nearest microsecond as in a MIDI tempo message.
+	 * @param index the index of the tempo, in order
+	 * @return the length of a quarter note (in microseconds)
+	 * @throws IndexOutOfBoundsException if index is out of range
+	 */
+	public long getMicrosecondsPerQuarter (int index) throws IndexOutOfBoundsException {
+		return (scale(resolution, numerators[index], denominators[index]) + NANOS_PER_MICRO / 2) / NANOS_PER_MICRO;
+	}
+	
+	/**
+	 * Returns the time signature and tempo a tempo was given as.
+	 * @param index the index of the tempo, in order
+	 * @return the <code>TimeContext</code>, or <code>null</code> if the tempo was given as the length of a quarter note
+	 * @throws IndexOutOfBoundsException if index is out of range
+	 */
+	public TimeContext getContext (int index) throws IndexOutOfBoundsException {
+		return contexts[index];
+	}
+	
+	/**
+	 * Returns the index of the tempo which is in effect at a tick.
+	 * @param tick the tick (not negative)
+	 * @return the index of the last tempo which starts at or before tick
+	 */
+	public int indexOfTick (long tick) {
+		int i = Arrays.binarySearch(ticks, tick);
+		return (i >= 0) ? i : Math.max(0, -i - 2);
+	}
+	
+	/* END Accessors */
+	
+	
+	/* Methods */
+	
+	/**
+	 * Converts a tick into the time from the start of the song.
+	 * @param tick the tick (not negative)
+	 * @return the time (in nanoseconds), rounded down
+	 * @throws IllegalArgumentException if tick is negative
+	 */
+	public long toNanos (long tick) throws IllegalArgumentException {
+		if (tick < 0)
+			throw new IllegalArgumentException("A tick cannot be negative.");
+		
+		int i = indexOfTick(tick);
+		return nanos[i] + scale(tick - ticks[i], numerators[i], denominators[i]);
+	}
+	
+	/**
+	 * Converts a time from the start of the song into the tick which has been reached at that time.
+	 * @param time the time (in nanoseconds, not negative)
+	 * @return the last tick which starts at or before time
+	 * @throws IllegalArgumentException if time is negative
+	 */
+	public long toTick (long time) throws IllegalArgumentException {
+		if (time < 0)
+			throw new IllegalArgumentException("A time cannot be negative.");
+		
+		int i = Arrays.binarySearch(nanos, time);
+		if (i < 0)
+			i = Math.max(0, -i - 2);
+		//several tempos start at the same time if their ticks are shorter than a nanosecond, and the last of them applies
+		while (i + 1 < nanos.length && nanos[i + 1] == time)
+			i++;
+		
+		//the last tick k for which k * numerator / denominator, rounded down, is no later than time:
+		//the greatest k with k * numerator < (elapsed + 1) * denominator, where numerator and denominator have no common factor
+		long elapsed = time - nanos[i];
+		if (elapsed == Long.MAX_VALUE)
+			return ticks[i] + scale(elapsed, denominators[i], numerators[i]);
+		long tick = scale(elapsed + 1, denominators[i], numerators[i]);
+		if ((elapsed + 1) % numerators[i] == 0)
+			tick--;
+		return ticks[i] + tick;
+	}
+	
+	/* END Methods */
+	
+	
+	/* Static Methods */
+	
+	/**
+	 * Returns <code>value * numerator / denominator</code> rounded down, without overflowing for any result which fits in a <code>long</code>.
+	 */
+	private static long scale (long value, long numerator, long denominator) {
+		long whole = value / denominator, part = value % denominator;
+		long high = Math.multiplyHigh(part, numerator);
+		if (high == 0 && part * numerator >= 0)
+			return whole * numerator + part * numerator / denominator;
+		return whole * numerator + BigInteger.valueOf(part).multiply(BigInteger.valueOf(numerator)).divide(BigInteger.valueOf(denominator)).longValue();
+	}
+	
+	private static long gcd (long a, long b) {
+		while (b != 0) {
+			long t = a % b;
+			a = b;
+			b = t;
+		}
+		return a;
+	}
+	
+	/* END Static Methods */
+	
+	
+	/* Inner Classes */
+	
+	/**
+	 * A tempo: the length of a tick, in nanoseconds, as a fraction in lowest terms.
+	 */
+	private static final class Tempo {
+		
+		private final long numerator;
+		private final long denominator;
+		private final TimeContext context;
+		
+		private Tempo (long numerator, long denominator, TimeContext context) {
+			long d = gcd(numerator, denominator);
+			this.numerator = numerator / d;
+			this.denominator = denominator / d;
+			this.context = context;
+		}
+	
+	}
+	
+	/**
+	 * Builds a <code>TempoMap</code> from the tempo it starts with and the ticks at which the tempo changes.
+	 */
+	public static final class Builder {
+		
+		private final int resolution;
+		private final TreeMap<Long, Tempo> tempos = new TreeMap<Long, Tempo>();
+		
+		/**
+		 * Constructs a <code>Builder</code> for a map which starts with the default tempo of a MIDI file,
+		 * 500000 microseconds per quarter note (120 quarter notes per minute).
+		 * @param resolution the number of ticks per quarter note
+		 * @throws IllegalArgumentException if resolution is less than 1
+		 */
+		public Builder (int resolution) throws IllegalArgumentException {
+			if (resolution < 1)
+				throw new IllegalArgumentException("There must be at least one tick per quarter note.");
+			
+			this.resolution = resolution;
+			setMicrosecondsPerQuarter(0, MIDI_DEFAULT_MICROS);
+		}
+		
+		/**
+		 * Constructs a <code>Builder</code> for a map which starts with a time signature and tempo.
+		 * @param resolution the number of ticks per quarter note
+		 * @param context the time signature and tempo at the start of the song
+		 * @throws IllegalArgumentException if resolution is less than 1
+		 */
+		public Builder (int resolution, TimeContext context) throws IllegalArgumentException {
+			if (resolution < 1)
+				throw new IllegalArgumentException("There must be at least one tick per quarter note.");
+			
+			this.resolution = resolution;
+			setTempo(0, context);
+		}
+		
+		/**
+		 * Constructs a <code>Builder</code> for a map which starts with the tempos of another, so that they can be changed.
+		 * @param map the map to copy
+		 */
+		public Builder (TempoMap map) {
+			this.resolution = map.resolution;
+			for (int i = 0; i < map.ticks.length; i++)
+				tempos.put(map.ticks[i], new Tempo(map.numerators[i], map.denominators[i], map.contexts[i]));
+		}
+		
+		/**
+		 * Changes the time signature and tempo from a tick onward, replacing any change at the same tick.
+		 * A quarter note lasts <code>60 / bpm * value / 4</code> seconds, where the time signature has beats of <code>value</code>.
+		 * @param tick the tick at which the change takes place
+		 * @param context the time signature and tempo
+		 * @return this <code>Builder</code>
+		 * @throws IllegalArgumentException if tick is negative
+		 */
+		public Builder setTempo (long tick, TimeContext context) throws IllegalArgumentException {
+			if (tick < 0)
+				throw new IllegalArgumentException("A tick cannot be negative.");
+			
+			long numerator = NANOS_PER_MINUTE * context.getTimeSignature().getValue();
+			long denominator = 4L * context.getBpm() * resolution;
+			tempos.put(tick, new Tempo(numerator, denominator, context));
+			return this;
+		}
+		
+		/**
+		 * Changes the tempo from a tick onward, as the length of a quarter note, which is how a MIDI file gives it.
+		 * Any change at the same tick is replaced.
+		 * @param tick the tick at which the change takes place
+		 * @param micros the length of a quarter note (in microseconds)
+		 * @return this <code>Builder</code>
+		 * @throws IllegalArgumentException if tick is negative or micros is less than 1
+		 */
+		public Builder setMicrosecondsPerQuarter (long tick, long micros) throws IllegalArgumentException {
+			if (tick < 0)
+				throw new IllegalArgumentException("A tick cannot be negative.");
+			if (micros < 1)
+				throw new IllegalArgumentException("A quarter note must last at least one microsecond.");
+			
+			tempos.put(tick, new Tempo(micros * NANOS_PER_MICRO, resolution, null));
+			return this;
+		}
+		
+		/**
+		 * Builds the <code>TempoMap</code>, working out the time at which each tempo starts.
+		 * @return the <code>TempoMap</code>
+		 */
+		public TempoMap build () {
+			return new TempoMap(resolution, tempos);
+		}
+	
+	}
+	
+	/* END Inner Classes */
+
+}
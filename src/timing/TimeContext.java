@@ -11,12 +11,25 @@
 
 package timing;
 
+
+/**
+ * A time signature and a tempo, in beats per minute, where a beat is the note value of the time signature.
+ */
 public class TimeContext {
 	
 	private TimeSignature timeSignature;
 	private int bpm;
 	
-	public TimeContext (TimeSignature timeSignature, int bpm) {
+	/**
+	 * Constructs a <code>TimeContext</code>.
+	 * @param timeSignature the time signature
+	 * @param bpm the tempo (in beats per minute)
+	 * @throws IllegalArgumentException if bpm is less than 1
+	 */
+	public TimeContext (TimeSignature timeSignature, int bpm) throws IllegalArgumentException {
+		if (bpm < 1)
+			throw new IllegalArgumentException("The tempo must be at least one beat per minute.");
+		
 		this.timeSignature = timeSignature;
 		this.bpm = bpm;
 	}
@@ -0,0 +1,50 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC02
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package timing;
+
+
+/**
+ * A time signature: the number of beats in a bar, and the note value of each beat (4 for a quarter note).
+ */
+public class TimeSignature {
+	
+	private final int beats;
+	private final int value;
+	
+	/**
+	 * Constructs a <code>TimeSignature</code>.
+	 * @param beats the number of beats in a bar
+	 * @param value the note value of a beat, which is a power of two from 1 (a whole note) to 64
+	 * @throws IllegalArgumentException if beats is less than 1 or value is not a power of two from 1 to 64
+	 */
+	public TimeSignature (int beats, int value) throws IllegalArgumentException {
+		if (beats < 1)
+			throw new IllegalArgumentException("There must be at least one beat in a bar.");
+		if (value < 1 || value > 64 || Integer.bitCount(value) != 1)
+			throw new IllegalArgumentException("The beat value must be a power of two from 1 to 64.");
+		
+		this.beats = beats;
+		this.value = value;
+	}
+
+	
+	public int getBeats () {
+		return this.beats;
+	}
+
+	
+	public int getValue () {
+		return this.value;
+	}
+	
+	
+}
@@ -0,0 +1,187 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package junit;
+
+import midi.*;
+
+import javax.sound.midi.ShortMessage;
+
+import junit.framework.TestCase;
+import org.junit.*;
+
+
+/**
+ * JUnit 4 test case for playing an <code>Instrument</code> into a <code>RecordingOutput</code> with a <code>VirtualClock</code>,
+ * which checks the time of every message to the nanosecond without a synthesizer.
+ */
+public class TestInstrument extends TestCase {
+	
+	/* Static Constants */
+	
+	private static final long MS = 1000000L;
+	
+	/* END Static Constants */
+	
+	
+	/* Fields */
+	
+	private VirtualClock clock;
+	private RecordingOutput output;
+	private midi.Instrument instrument;
+	
+	/* END Fields */
+	
+	
+	/* Set Up */
+	
+	@Before
+	@Override
+	public void setUp () {
+		clock = new VirtualClock();
+		output = new RecordingOutput(clock);
+		instrument = new midi.Instrument(1, output, clock);
+	}
+	
+	/* END Set Up */
+	
+	
+	/* Tear Down */
+	
+	@After
+	@Override
+	public void tearDown () {
+		instrument.close();
+		instrument = null;
+		output = null;
+		clock = null;
+	}
+	
+	/* END Tear Down */
+	
+	
+	/* Test play(EventBuffer) */
+	
+	/**
+	 * Tests the <code>play(EventBuffer)</code> method with chords, rests and notes.
+	 * The notes of a chord start together and stop when the event which completes it ends,
+	 * and a rest moves the following notes later without sending anything.
+	 */
+	@Test
+	public void testPlayEventBuffer () {
+		EventBuffer.Builder events = new EventBuffer.Builder();
+		events.add(PackedEvent.TYPE_CHORD, 60, 200);
+		events.add(PackedEvent.TYPE_NOTE, 64, 200);
+		events.add(PackedEvent.TYPE_REST, 0, 100);
+		events.add(PackedEvent.TYPE_NOTE, 67, 300);
+		events.add(PackedEvent.TYPE_CHORD, 62, 50);
+		events.add(PackedEvent.TYPE_NOTE, 65, 50);
+		instrument.play(events.build());
+		
+		assertEquals("Number of messages not expected", 10, output.size());
+		assertMessage(0, 0, ShortMessage.NOTE_ON, 60);
+		assertMessage(1, 0, ShortMessage.NOTE_ON, 64);
+		assertMessage(2, 200 * MS, ShortMessage.NOTE_OFF, 60);
+		assertMessage(3, 200 * MS, ShortMessage.NOTE_OFF, 64);
+		assertMessage(4, 300 * MS, ShortMessage.NOTE_ON, 67);
+		assertMessage(5, 600 * MS, ShortMessage.NOTE_OFF, 67);
+		assertMessage(6, 600 * MS, ShortMessage.NOTE_ON, 62);
+		assertMessage(7, 600 * MS, ShortMessage.NOTE_ON, 65);
+		assertMessage(8, 650 * MS, ShortMessage.NOTE_OFF, 62);
+		assertMessage(9, 650 * MS, ShortMessage.NOTE_OFF, 65);
+		
+		assertEquals("Velocity not expected", 127, output.getVelocity(0));
+		assertEquals("Velocity not expected", 0, output.getVelocity(2));
+		assertEquals("Clock not expected", 650 * MS, clock.nanoTime());
+		assertEquals("Lateness not expected", 0, instrument.getLateness().getMax());
+	}
+	
+	/**
+	 * Tests that a song played in two parts with one <code>DeadlineScheduler</code> keeps the times of a song played whole,
+	 * even if the clock moves on between the parts.
+	 */
+	@Test
+	public void testPlayEventBufferInParts () {
+		EventBuffer.Builder first = new EventBuffer.Builder();
+		first.add(PackedEvent.TYPE_NOTE, 60, 100);
+		EventBuffer.Builder second = new EventBuffer.Builder();
+		second.add(PackedEvent.TYPE_NOTE, 62, 100);
+		
+		DeadlineScheduler scheduler = new DeadlineScheduler(instrument.getLateness(), clock);
+		instrument.play(first.build(), scheduler);
+		clock.advance(30 * MS);
+		instrument.play(second.build(), scheduler);
+		
+		assertEquals("Number of messages not expected", 4, output.size());
+		assertMessage(0, 0, ShortMessage.NOTE_ON, 60);
+		assertMessage(1, 100 * MS, ShortMessage.NOTE_OFF, 60);
+		assertMessage(2, 130 * MS, ShortMessage.NOTE_ON, 62);
+		assertMessage(3, 200 * MS, ShortMessage.NOTE_OFF, 62);
+	}
+	
+	/* END Test play(EventBuffer) */
+	
+	
+	/* Test playNote(int, int, int) */
+	
+	/**
+	 * Tests the <code>playNote(int, int, int)</code>, <code>playChord(int[], int, int)</code> and <code>rest(int)</code> methods.
+	 */
+	@Test
+	public void testPlayNote () {
+		instrument.playNote(69, 250, 90);
+		instrument.rest(50);
+		instrument.playChord(new int [] { 48, 55 }, 100, 64);
+		
+		assertEquals("Number of messages not expected", 6, output.size());
+		assertMessage(0, 0, ShortMessage.NOTE_ON, 69);
+		assertEquals("Velocity not expected", 90, output.getVelocity(0));
+		assertMessage(1, 250 * MS, ShortMessage.NOTE_OFF, 69);
+		assertMessage(2, 300 * MS, ShortMessage.NOTE_ON, 48);
+		assertMessage(3, 300 * MS, ShortMessage.NOTE_ON, 55);
+		assertEquals("Velocity not expected", 64, output.getVelocity(3));
+		assertMessage(4, 400 * MS, ShortMessage.NOTE_OFF, 48);
+		assertMessage(5, 400 * MS, ShortMessage.NOTE_OFF, 55);
+	}
+	
+	/* END Test playNote(int, int, int) */
+	
+	
+	/* Test close() */
+	
+	/**
+	 * Tests that a closed instrument cannot be played, and can be closed again.
+	 */
+	@Test
+	public void testClose () {
+		instrument.close();
+		instrument.close();
+		try {
+			instrument.playNote(60, 100, 127);
+			fail("Should raise an IllegalStateException");
+		} catch (IllegalStateException e) {}
+		assertEquals("Number of messages not expected", 0, output.size());
+	}
+	
+	/* END Test close() */
+	
+	
+	/* Local Methods */
+	
+	private void assertMessage (int index, long time, int command, int midi) {
+		assertEquals("Time of message " + index + " not expected", time, output.getTime(index));
+		assertEquals("Command of message " + index + " not expected", command, output.getCommand(index));
+		assertEquals("Note of message " + index + " not expected", midi, output.getMIDI(index));
+	}
+	
+	/* END Local Methods */
+
+}
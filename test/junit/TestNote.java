@@ -293,6 +293,42 @@ public class TestNote extends TestCase {
 	/* END Test getMIDIAbsoluteNumber() */
 	
 	
+	/* Test Note(String strNote) */
+	
+	/**
+	 * Tests the <code>Note(String strNote)</code> constructor.
+	 * Tests accidentals and octaves in either order, and the default octave.
+	 */
+	@Test
+	public void testNoteString () {
+		assertEquals("Absolute MIDI number not expected", 67, new Note("G").getMIDIAbsoluteNumber());
+		assertEquals("Absolute MIDI number not expected", 61, new Note("C#").getMIDIAbsoluteNumber());
+		assertEquals("Absolute MIDI number not expected", 72, new Note("B#4").getMIDIAbsoluteNumber());
+		assertEquals("Absolute MIDI number not expected", 36, new Note("D2bb").getMIDIAbsoluteNumber());
+		assertEquals("Absolute MIDI number not expected", 36, new Note("Dbb2").getMIDIAbsoluteNumber());
+		assertEquals("Absolute MIDI number not expected", 2, new Note("C-1x").getMIDIAbsoluteNumber());
+		assertEquals("Absolute MIDI number not expected", 39, new Note("eb2").getMIDIAbsoluteNumber());
+		assertEquals("Absolute MIDI number not expected", 127, new Note("G9").getMIDIAbsoluteNumber());
+	}
+	
+	/**
+	 * Exception tests the <code>Note(String strNote)</code> constructor.
+	 * Tests for an <code>IllegalArgumentException</code>.
+	 */
+	@Test
+	public void testExceptionNoteString () {
+		String [] invalid = { "", "H4", "#4", "C10", "C4-", "C-0", "C1-", "C-5", "Cb-1", "G#9" };
+		for (int i = 0; i < invalid.length; i++) {
+			try {
+				new Note(invalid[i]);
+				fail("Should raise an IllegalArgumentException for \"" + invalid[i] + "\"");
+			} catch (IllegalArgumentException e) {}
+		}
+	}
+	
+	/* END Test Note(String strNote) */
+	
+	
 	/* Test modifyNoteBySemitones(int numberOfSemitones) */
 	
 	/**
@@ -564,6 +600,19 @@ public class TestNote extends TestCase {
 	    assertEquals("Equals (null test) not expected", false, seven.equals(null));
 	}
 	
+	/**
+	 * Tests the <code>hashCode()</code> method.
+	 * Tests that equal notes have equal hash codes, and that a note shares its <code>Pitch</code>.
+	 */
+	@Test
+	public void testHashCode () { 
+	    assertEquals("Hash code not expected", five.hashCode(), six.hashCode());
+	    assertEquals("Hash code not expected", six.hashCode(), seven.hashCode());
+	    assertEquals("Hash code not expected", five.getMIDIAbsoluteNumber(), five.hashCode());
+	    assertEquals("Pitch not expected", true, five.toPitch() == seven.toPitch());
+	    assertEquals("Pitch not expected", true, five.toPitch().transpose(12) == Pitch.of(63));
+	}
+	
 	/* END Test equals(Object o) */
 	
 	
@@ -627,6 +676,37 @@ public class TestNote extends TestCase {
 	/* END Test compareTo(Object o) */
 	
 	
+	/* Test Note.nearestMIDI(double frequency) */
+	
+	/**
+	 * Tests the <code>Note(double frequency)</code> constructor with rounded frequencies.
+	 * Tests that a frequency is accepted if it rounds to the frequency of a semitone.
+	 */
+	@Test
+	public void testRoundedFrequency () {
+	    assertEquals("MIDI not expected", 60, new Note(261.63).getMIDIAbsoluteNumber());
+	    assertEquals("MIDI not expected", 51, new Note(155.56).getMIDIAbsoluteNumber());
+	    assertEquals("MIDI not expected", 127, new Note(12543.85).getMIDIAbsoluteNumber());
+	}
+	
+	/**
+	 * Tests the <code>Note.nearestMIDI(double frequency)</code> and <code>Note.centsFromNearest(double frequency)</code> methods.
+	 * Tests that imperfect frequencies are tuned to the nearest half pitch.
+	 */
+	@Test
+	public void testNearestMIDI () {
+	    assertEquals("MIDI not expected", 69, Note.nearestMIDI(450.0));
+	    assertEquals("MIDI not expected", 70, Note.nearestMIDI(460.0));
+	    assertEquals("MIDI not expected", 0, Note.nearestMIDI(8.0));
+	    assertEquals("MIDI not expected", -1, Note.nearestMIDI(15000.0));
+	    assertEquals("MIDI not expected", -1, Note.nearestMIDI(-1.1));
+	    assertEquals("Cents not expected", 0.0, Note.centsFromNearest(440.0), 0.000001);
+	    assertEquals("Cents not expected", 38.91, Note.roundFrequency(Note.centsFromNearest(450.0)));
+	}
+	
+	/* END Test Note.nearestMIDI(double frequency) */
+	
+	
 	/* Exception Test Constructor Note(Note n) */
 	
 	/**
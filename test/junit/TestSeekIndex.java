@@ -0,0 +1,279 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package junit;
+
+import midi.*;
+import timing.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import org.junit.*;
+
+
+/**
+ * JUnit 4 test case for <code>SeekIndex</code>.
+ */
+public class TestSeekIndex extends TestCase {
+	
+	/* Test seekTick(long) */
+	
+	/**
+	 * Tests the <code>seekTick(long)</code> method at every tick of random songs against a scan of the events from the start.
+	 * The songs have chords, rests, events with no duration, and sometimes a chord which is never completed.
+	 */
+	@Test
+	public void testSeekTickAgainstScan () {
+		Random random = new Random(311);
+		for (int song = 0; song < 50; song++) {
+			EventBuffer.Builder builder = new EventBuffer.Builder();
+			for (int i = 0; i < 100; i++) {
+				int kind = random.nextInt(6);
+				int duration = (random.nextInt(8) == 0) ? 0 : 1 + random.nextInt(40);
+				if (kind == 0)
+					builder.add(PackedEvent.TYPE_REST, 0, duration);
+				else if (kind == 1)
+					builder.add(PackedEvent.TYPE_CHORD, 40 + random.nextInt(40), duration);
+				else
+					builder.add(PackedEvent.TYPE_NOTE, 40 + random.nextInt(40), duration);
+			}
+			EventBuffer events = builder.build();
+			SeekIndex index = new SeekIndex(events);
+			
+			for (long tick = 0; tick <= index.getLength() + 5; tick++) {
+				SeekIndex.Position position = index.seekTick(tick);
+				Position expected = scan(events, tick);
+				assertEquals("Tick not expected", expected.tick, position.getTick());
+				assertEquals("Index at tick " + tick + " not expected", expected.index, position.getIndex());
+				assertTrue("Notes at tick " + tick + " not expected", Arrays.equals(expected.sounding, position.getSounding()));
+				assertEquals("Remaining at tick " + tick + " not expected", expected.remaining, position.getRemaining());
+			}
+		}
+	}
+	
+	/**
+	 * Tests that steps with no duration which start at the same tick are passed over for the step which sounds there.
+	 */
+	@Test
+	public void testSeekTickZeroLengthSteps () {
+		EventBuffer.Builder events = new EventBuffer.Builder();
+		events.add(PackedEvent.TYPE_NOTE, 60, 100);
+		events.add(PackedEvent.TYPE_NOTE, 62, 0);
+		events.add(PackedEvent.TYPE_REST, 0, 0);
+		events.add(PackedEvent.TYPE_CHORD, 64, 0);
+		events.add(PackedEvent.TYPE_NOTE, 67, 0);
+		events.add(PackedEvent.TYPE_NOTE, 69, 50);
+		SeekIndex index = new SeekIndex(events.build());
+		
+		SeekIndex.Position before = index.seekTick(99);
+		assertTrue("Notes not expected", Arrays.equals(new int [] { 60 }, before.getSounding()));
+		assertEquals("Index not expected", 1, before.getIndex());
+		assertEquals("Remaining not expected", 1, before.getRemaining());
+		
+		SeekIndex.Position at = index.seekTick(100);
+		assertTrue("Notes not expected", Arrays.equals(new int [] { 69 }, at.getSounding()));
+		assertEquals("Index not expected", 6, at.getIndex());
+		assertEquals("Remaining not expected", 50, at.getRemaining());
+	}
+	
+	/**
+	 * Tests a song which ends with a chord which is never completed, which lasts as long as its last note.
+	 */
+	@Test
+	public void testSeekTickUnfinishedChord () {
+		EventBuffer.Builder events = new EventBuffer.Builder();
+		events.add(PackedEvent.TYPE_NOTE, 60, 100);
+		events.add(PackedEvent.TYPE_CHORD, 62, 40);
+		events.add(PackedEvent.TYPE_CHORD, 65, 40);
+		SeekIndex index = new SeekIndex(events.build());
+		assertEquals("Length not expected", 140, index.getLength());
+		
+		SeekIndex.Position position = index.seekTick(120);
+		assertTrue("Notes not expected", Arrays.equals(new int [] { 62, 65 }, position.getSounding()));
+		assertEquals("Index not expected", 3, position.getIndex());
+		assertEquals("Remaining not expected", 20, position.getRemaining());
+		
+		EventBuffer head = position.getHead();
+		assertEquals("Head not expected", 2, head.size());
+		assertEvent(head.get(0), PackedEvent.TYPE_CHORD, 62, 20);
+		assertEvent(head.get(1), PackedEvent.TYPE_NOTE, 65, 20);
+		assertEquals("Tail not expected", 0, position.getTail().size());
+	}
+	
+	/**
+	 * Tests that a tick or time past the end of the song is the end of the song.
+	 */
+	@Test
+	public void testSeekPastEnd () {
+		EventBuffer.Builder events = new EventBuffer.Builder();
+		events.add(PackedEvent.TYPE_NOTE, 60, 100);
+		events.add(PackedEvent.TYPE_REST, 0, 50);
+		SeekIndex index = new SeekIndex(events.build());
+		
+		SeekIndex.Position [] ends = { index.seekTick(150), index.seekTick(1000000000L), index.seekTime(1000000000000L) };
+		for (int i = 0; i < ends.length; i++) {
+			assertEquals("Tick not expected", 150, ends[i].getTick());
+			assertEquals("Index not expected", 2, ends[i].getIndex());
+			assertEquals("Notes not expected", 0, ends[i].getSounding().length);
+			assertEquals("Remaining not expected", 0, ends[i].getRemaining());
+			assertEquals("Head not expected", 0, ends[i].getHead().size());
+			assertEquals("Tail not expected", 0, ends[i].getTail().size());
+		}
+		
+		try {
+			index.seekTick(-1);
+			fail("Should raise an IllegalArgumentException");
+		} catch (IllegalArgumentException e) {}
+	}
+	
+	/* END Test seekTick(long) */
+	
+	
+	/* Test getHead() and getTail() */
+	
+	/**
+	 * Tests the <code>getHead()</code> and <code>getTail()</code> methods during a chord and during a rest.
+	 */
+	@Test
+	public void testHeadAndTail () {
+		EventBuffer.Builder builder = new EventBuffer.Builder();
+		builder.add(PackedEvent.TYPE_NOTE, 60, 100);
+		builder.add(PackedEvent.TYPE_CHORD, 64, 200);
+		builder.add(PackedEvent.TYPE_CHORD, 67, 200);
+		builder.add(PackedEvent.TYPE_NOTE, 72, 200);
+		builder.add(PackedEvent.TYPE_REST, 0, 50);
+		builder.add(PackedEvent.TYPE_NOTE, 62, 10);
+		EventBuffer events = builder.build();
+		SeekIndex index = new SeekIndex(events);
+		
+		SeekIndex.Position chord = index.seekTick(150);
+		EventBuffer head = chord.getHead();
+		assertEquals("Head not expected", 3, head.size());
+		assertEvent(head.get(0), PackedEvent.TYPE_CHORD, 64, 150);
+		assertEvent(head.get(1), PackedEvent.TYPE_CHORD, 67, 150);
+		assertEvent(head.get(2), PackedEvent.TYPE_NOTE, 72, 150);
+		EventBuffer tail = chord.getTail();
+		assertEquals("Tail not expected", 2, tail.size());
+		assertEquals("Tail not expected", events.get(4), tail.get(0));
+		assertEquals("Tail not expected", events.get(5), tail.get(1));
+		
+		SeekIndex.Position rest = index.seekTick(320);
+		head = rest.getHead();
+		assertEquals("Head not expected", 1, head.size());
+		assertEvent(head.get(0), PackedEvent.TYPE_REST, 0, 30);
+		tail = rest.getTail();
+		assertEquals("Tail not expected", 1, tail.size());
+		assertEquals("Tail not expected", events.get(5), tail.get(0));
+	}
+	
+	/* END Test getHead() and getTail() */
+	
+	
+	/* Test getBar(long) */
+	
+	/**
+	 * Tests the bars of a song whose time signature changes in the middle of a bar, and whose tempo then changes
+	 * without changing the time signature, which does not start a bar.
+	 */
+	@Test
+	public void testBarsWithTimeSignatureChange () {
+		//a 4/4 bar is 1600 ticks and a 3/4 bar is 1200
+		TempoMap tempo = new TempoMap.Builder(400, new TimeContext(new TimeSignature(4, 4), 150))
+			.setTempo(4000, new TimeContext(new TimeSignature(3, 4), 150))
+			.setTempo(5000, new TimeContext(new TimeSignature(3, 4), 100))
+			.build();
+		EventBuffer.Builder events = new EventBuffer.Builder();
+		events.add(PackedEvent.TYPE_REST, 0, 8000);
+		SeekIndex index = new SeekIndex(events.build(), tempo);
+		
+		long [] bars = { 0, 1600, 3200, 4000, 5200, 6400, 7600 };
+		assertEquals("Number of bars not expected", bars.length, index.getBarCount());
+		for (int i = 0; i < bars.length; i++) {
+			assertEquals("Start of bar " + (i + 1) + " not expected", bars[i], index.getBarTick(i + 1));
+			assertEquals("Bar not expected", i + 1, index.getBar(bars[i]));
+			assertEquals("Tick of bar " + (i + 1) + " not expected", bars[i], index.seekBar(i + 1).getTick());
+		}
+		assertEquals("Bar not expected", 3, index.getBar(3999));
+		assertEquals("Bar not expected", 7, index.getBar(7999));
+		
+		try {
+			index.seekBar(bars.length + 1);
+			fail("Should raise an IllegalArgumentException");
+		} catch (IllegalArgumentException e) {}
+	}
+	
+	/* END Test getBar(long) */
+	
+	
+	/* Local Methods */
+	
+	private static void assertEvent (int event, int type, int midi, int duration) {
+		assertEquals("Type not expected", type, PackedEvent.getType(event));
+		if (type != PackedEvent.TYPE_REST)
+			assertEquals("Note not expected", midi, PackedEvent.getMIDI(event));
+		assertEquals("Duration not expected", duration, PackedEvent.getDuration(event));
+	}
+	
+	/**
+	 * Finds where a song is at a tick by playing through its steps from the start.
+	 */
+	private static Position scan (EventBuffer events, long tick) {
+		int n = events.size();
+		long start = 0;
+		for (int first = 0; first < n;) {
+			int next = first;
+			while (next < n - 1 && PackedEvent.getType(events.get(next)) == PackedEvent.TYPE_CHORD)
+				next++;
+			next++;
+			long end = start + PackedEvent.getDuration(events.get(next - 1));
+			if (start <= tick && tick < end) {
+				int [] sounding = new int[next - first];
+				int count = 0;
+				for (int i = first; i < next; i++)
+					if (PackedEvent.getType(events.get(i)) != PackedEvent.TYPE_REST)
+						sounding[count++] = PackedEvent.getMIDI(events.get(i));
+				return new Position(tick, next, Arrays.copyOf(sounding, count), end - tick);
+			}
+			start = end;
+			first = next;
+		}
+		return new Position(Math.min(tick, start), n, new int[0], 0);
+	}
+	
+	/* END Local Methods */
+	
+	
+	/* Inner Classes */
+	
+	/**
+	 * Where a song is at a tick, as found by <code>scan(EventBuffer, long)</code>.
+	 */
+	private static final class Position {
+		
+		private final long tick;
+		private final int index;
+		private final int [] sounding;
+		private final long remaining;
+		
+		private Position (long tick, int index, int [] sounding, long remaining) {
+			this.tick = tick;
+			this.index = index;
+			this.sounding = sounding;
+			this.remaining = remaining;
+		}
+	
+	}
+	
+	/* END Inner Classes */
+
+}
@@ -0,0 +1,261 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package junit;
+
+import timing.*;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import org.junit.*;
+
+
+/**
+ * JUnit 4 test case for <code>TempoMap</code>.
+ * Every conversion is checked against the same conversion done with <code>BigInteger</code> arithmetic,
+ * which cannot overflow, and <code>toTick(long)</code> against a search of <code>toNanos(long)</code>.
+ */
+public class TestTempoMap extends TestCase {
+	
+	/* Static Constants */
+	
+	private static final int RESOLUTION = 480;
+	private static final int TEMPOS = 2001;
+	
+	/* END Static Constants */
+	
+	
+	/* Fields */
+	
+	private TempoMap map;
+	
+	//the map as it was built: the tick each tempo starts at, the nanoseconds per tick as a fraction, and the time it starts at
+	private long [] ticks;
+	private BigInteger [] numerators;
+	private BigInteger [] denominators;
+	private BigInteger [] starts;
+	
+	/* END Fields */
+	
+	
+	/* Set Up */
+	
+	@Before
+	@Override
+	public void setUp () {
+		Random random = new Random(311);
+		TempoMap.Builder builder = new TempoMap.Builder(RESOLUTION);
+		ticks = new long[TEMPOS];
+		numerators = new BigInteger[TEMPOS];
+		denominators = new BigInteger[TEMPOS];
+		starts = new BigInteger[TEMPOS];
+		
+		long tick = 0;
+		for (int i = 0; i < TEMPOS; i++) {
+			if (random.nextBoolean()) {
+				long micros = 1 + random.nextInt(0xFFFFFF);
+				builder.setMicrosecondsPerQuarter(tick, micros);
+				numerators[i] = BigInteger.valueOf(micros * 1000);
+				denominators[i] = BigInteger.valueOf(RESOLUTION);
+			} else {
+				int value = 1 << random.nextInt(7);
+				int bpm = 1 + random.nextInt(400);
+				builder.setTempo(tick, new TimeContext(new TimeSignature(4, value), bpm));
+				numerators[i] = BigInteger.valueOf(60000000000L * value);
+				denominators[i] = BigInteger.valueOf(4L * bpm * RESOLUTION);
+			}
+			ticks[i] = tick;
+			starts[i] = (i == 0) ? BigInteger.ZERO : starts[i - 1].add(scale(tick - ticks[i - 1], i - 1));
+			tick += 1 + random.nextInt(5000);
+		}
+		map = builder.build();
+	}
+	
+	/* END Set Up */
+	
+	
+	/* Tear Down */
+	
+	@After
+	@Override
+	public void tearDown () {
+		map = null;
+		ticks = null;
+		numerators = null;
+		denominators = null;
+		starts = null;
+	}
+	
+	/* END Tear Down */
+	
+	
+	/* Test toNanos(long) */
+	
+	/**
+	 * Tests the <code>toNanos(long)</code> method at random ticks, and at the start of every tempo and the tick before it.
+	 */
+	@Test
+	public void testToNanos () {
+		assertEquals("Number of tempos not expected", TEMPOS, map.getTempoCount());
+		for (int i = 0; i < TEMPOS; i++) {
+			assertEquals("Tick of tempo " + i + " not expected", ticks[i], map.getTempoTick(i));
+			assertEquals("Time of tempo " + i + " not expected", expectedNanos(ticks[i]), map.toNanos(ticks[i]));
+			if (i > 0)
+				assertEquals("Time before tempo " + i + " not expected", expectedNanos(ticks[i] - 1), map.toNanos(ticks[i] - 1));
+		}
+		
+		Random random = new Random(2008);
+		long end = ticks[TEMPOS - 1] + 100000;
+		for (int i = 0; i < 100000; i++) {
+			long tick = (long)(random.nextDouble() * end);
+			assertEquals("Time of tick " + tick + " not expected", expectedNanos(tick), map.toNanos(tick));
+		}
+	}
+	
+	/**
+	 * Tests the <code>toNanos(long)</code> and <code>toTick(long)</code> methods where the part of a tick count
+	 * which does not divide evenly, multiplied by the length of a tick, does not fit in a <code>long</code>.
+	 */
+	@Test
+	public void testLargeValues () {
+		//4001 and 1000003 are prime, so a tick is 960000000000 / 4001012003 nanoseconds, which cannot be reduced
+		int resolution = 1000003;
+		TempoMap slow = new TempoMap.Builder(resolution, new TimeContext(new TimeSignature(4, 64), 4001)).build();
+		BigInteger numerator = BigInteger.valueOf(960000000000L);
+		BigInteger denominator = BigInteger.valueOf(4001012003L);
+		
+		long [] values = { 4001012002L, 3 * 4001012003L + 4001012002L, 123456789012345L, Long.MAX_VALUE / 241 };
+		for (int i = 0; i < values.length; i++) {
+			long expected = BigInteger.valueOf(values[i]).multiply(numerator).divide(denominator).longValueExact();
+			assertEquals("Time of tick " + values[i] + " not expected", expected, slow.toNanos(values[i]));
+			assertEquals("Tick at time " + expected + " not expected", values[i], slow.toTick(expected));
+		}
+	}
+	
+	/* END Test toNanos(long) */
+	
+	
+	/* Test toTick(long) */
+	
+	/**
+	 * Tests that the <code>toTick(long)</code> method returns the last tick which starts at or before a time,
+	 * at random times and at the start of every tempo.
+	 */
+	@Test
+	public void testToTick () {
+		for (int i = 0; i < TEMPOS; i++)
+			assertToTick(map.toNanos(ticks[i]));
+		
+		Random random = new Random(2008);
+		long end = map.toNanos(ticks[TEMPOS - 1] + 100000);
+		for (int i = 0; i < 100000; i++)
+			assertToTick((long)(random.nextDouble() * end));
+	}
+	
+	/**
+	 * Tests that converting a tick into a time and back returns the tick, where every tick lasts at least a nanosecond.
+	 */
+	@Test
+	public void testRoundTrip () {
+		Random random = new Random(2008);
+		long end = ticks[TEMPOS - 1] + 100000;
+		for (int i = 0; i < 100000; i++) {
+			long tick = (long)(random.nextDouble() * end);
+			assertEquals("Round trip of tick " + tick + " not expected", tick, map.toTick(map.toNanos(tick)));
+		}
+		for (int i = 0; i < TEMPOS; i++)
+			assertEquals("Round trip of tempo " + i + " not expected", ticks[i], map.toTick(map.toNanos(ticks[i])));
+	}
+	
+	/**
+	 * Tests the <code>toTick(long)</code> method where ticks are shorter than a nanosecond,
+	 * so that several ticks, and several tempos, start at the same nanosecond.
+	 */
+	@Test
+	public void testToTickShortTicks () {
+		//ticks of 0.1, 0.3 and 0.1 nanoseconds, so that the tempos at ticks 5 and 8 both start at 0
+		TempoMap fast = new TempoMap.Builder(10000).setMicrosecondsPerQuarter(0, 1).setMicrosecondsPerQuarter(5, 3).setMicrosecondsPerQuarter(8, 1).build();
+		assertEquals("Time of tempo not expected", 0, fast.toNanos(5));
+		assertEquals("Time of tempo not expected", 0, fast.toNanos(8));
+		assertEquals("Tick not expected", 17, fast.toTick(0));
+		assertEquals("Tick not expected", 27, fast.toTick(1));
+		for (long time = 0; time < 1000; time++) {
+			long tick = fast.toTick(time);
+			assertTrue("Tick " + tick + " starts after " + time, fast.toNanos(tick) <= time);
+			assertTrue("Tick " + (tick + 1) + " starts at or before " + time, fast.toNanos(tick + 1) > time);
+		}
+	}
+	
+	/* END Test toTick(long) */
+	
+	
+	/* Exception Test */
+	
+	/**
+	 * Tests that negative ticks and times are refused.
+	 */
+	@Test
+	public void testNegative () {
+		try {
+			map.toNanos(-1);
+			fail("Should raise an IllegalArgumentException");
+		} catch (IllegalArgumentException e) {}
+		
+		try {
+			map.toTick(-1);
+			fail("Should raise an IllegalArgumentException");
+		} catch (IllegalArgumentException e) {}
+	}
+	
+	/* END Exception Test */
+	
+	
+	/* Local Methods */
+	
+	/**
+	 * Returns the time of a tick: the time each tempo starts, rounded down, plus the ticks since then multiplied by its length, rounded down.
+	 */
+	private long expectedNanos (long tick) {
+		int i = TEMPOS - 1;
+		while (ticks[i] > tick)
+			i--;
+		return starts[i].add(scale(tick - ticks[i], i)).longValueExact();
+	}
+	
+	/**
+	 * Returns a number of ticks of a tempo multiplied by its length, rounded down.
+	 */
+	private BigInteger scale (long ticks, int tempo) {
+		return BigInteger.valueOf(ticks).multiply(numerators[tempo]).divide(denominators[tempo]);
+	}
+	
+	/**
+	 * Checks <code>toTick(long)</code> against a binary search for the last tick whose time is no later than time.
+	 */
+	private void assertToTick (long time) {
+		long low = 0, high = 1;
+		while (map.toNanos(high) <= time)
+			high *= 2;
+		while (high - low > 1) {
+			long mid = (low + high) >>> 1;
+			if (map.toNanos(mid) <= time)
+				low = mid;
+			else
+				high = mid;
+		}
+		assertEquals("Tick at time " + time + " not expected", low, map.toTick(time));
+	}
+	
+	/* END Local Methods */
+
+}
@@ -0,0 +1,208 @@
+/**
+ * @author Alex Peterson
+ * @version 2008OC17
+ * 
+ * This code is available under the terms of the GNU General Public License v3.0
+ * (http://www.gnu.org/licenses/gpl-3.0.txt)
+ * 
+ * The content is licenced under the Creative Commons Attribution + ShareAlike 2.5 [BY-SA] (Canada)
+ * (http://creativecommons.org/licenses/by-sa/2.5/ca)
+ */
+
+package junit;
+
+import midi.*;
+
+import junit.framework.TestCase;
+import org.junit.*;
+
+
+/**
+ * JUnit 4 test case for <code>EventBuffer.transpose(int, Transposition.Policy)</code>.
+ */
+public class TestTransposition extends TestCase {
+	
+	/* Fields */
+	
+	private EventBuffer middle;
+	private EventBuffer edges;
+	
+	/* END Fields */
+	
+	
+	/* Set Up */
+	
+	@Before
+	@Override
+	public void setUp () {
+		middle = new EventBuffer.Builder()
+			.add(PackedEvent.TYPE_NOTE, 60, 100)
+			.add(PackedEvent.TYPE_REST, 0, 50)
+			.add(PackedEvent.TYPE_CHORD, 64, 200)
+			.add(PackedEvent.TYPE_NOTE, 67, 200)
+			.add(PackedEvent.TYPE_REST, 0, 25)
+			.build();
+		edges = new EventBuffer.Builder()
+			.add(PackedEvent.TYPE_NOTE, 0, 100)
+			.add(PackedEvent.TYPE_REST, 0, 50)
+			.add(PackedEvent.TYPE_CHORD, 60, 200)
+			.add(PackedEvent.TYPE_NOTE, 127, 200)
+			.build();
+	}
+	
+	/* END Set Up */
+	
+	
+	/* Tear Down */
+	
+	@After
+	@Override
+	public void tearDown () {
+		middle = null;
+		edges = null;
+	}
+	
+	/* END Tear Down */
+	
+	
+	/* Test transpose(int, Transposition.Policy) */
+	
+	/**
+	 * Tests transpositions which keep every note in range, which move every note and leave rests as they were.
+	 */
+	@Test
+	public void testTransposeInRange () {
+		int [] intervals = { 5, -5, 60, -60 };
+		for (int i = 0; i < intervals.length; i++) {
+			Transposition t = middle.transpose(intervals[i], Transposition.Policy.CLAMP);
+			assertEquals("Status not expected", Transposition.Status.EXACT, t.getStatus());
+			assertEquals("Adjusted count not expected", 0, t.getAdjustedCount());
+			
+			EventBuffer moved = t.getEvents();
+			assertEquals("Size not expected", middle.size(), moved.size());
+			for (int j = 0; j < middle.size(); j++) {
+				int before = middle.get(j);
+				int after = moved.get(j);
+				assertEquals("Type not expected", PackedEvent.getType(before), PackedEvent.getType(after));
+				assertEquals("Duration not expected", PackedEvent.getDuration(before), PackedEvent.getDuration(after));
+				if (PackedEvent.getType(before) == PackedEvent.TYPE_REST)
+					assertEquals("Rest not expected", before, after);
+				else
+					assertEquals("Note not expected", PackedEvent.getMIDI(before) + intervals[i], PackedEvent.getMIDI(after));
+			}
+			assertEquals("Lowest note not expected", 60 + intervals[i], moved.getLowestNote());
+			assertEquals("Highest note not expected", 67 + intervals[i], moved.getHighestNote());
+			assertEquals("Total duration not expected", middle.getTotalDuration(), moved.getTotalDuration());
+		}
+	}
+	
+	/**
+	 * Tests that no interval, or a buffer of only rests, gives back the same buffer.
+	 */
+	@Test
+	public void testTransposeNothing () {
+		Transposition t = middle.transpose(0, Transposition.Policy.REJECT);
+		assertSame("Events not expected", middle, t.getEvents());
+		assertEquals("Status not expected", Transposition.Status.EXACT, t.getStatus());
+		
+		EventBuffer rests = new EventBuffer.Builder().add(PackedEvent.TYPE_REST, 0, 10).build();
+		t = rests.transpose(1000, Transposition.Policy.REJECT);
+		assertSame("Events not expected", rests, t.getEvents());
+		assertEquals("Status not expected", Transposition.Status.EXACT, t.getStatus());
+	}
+	
+	/**
+	 * Tests <code>Policy.CLAMP</code> past both ends of the MIDI range.
+	 */
+	@Test
+	public void testTransposeClamp () {
+		assertAdjusted(edges.transpose(10, Transposition.Policy.CLAMP), new int [] { 10, 70, 127 }, 1);
+		assertAdjusted(edges.transpose(-10, Transposition.Policy.CLAMP), new int [] { 0, 50, 117 }, 1);
+		assertAdjusted(edges.transpose(1000, Transposition.Policy.CLAMP), new int [] { 127, 127, 127 }, 3);
+		assertAdjusted(edges.transpose(-1000, Transposition.Policy.CLAMP), new int [] { 0, 0, 0 }, 3);
+		
+		EventBuffer moved = edges.transpose(1000, Transposition.Policy.CLAMP).getEvents();
+		assertEquals("Lowest note not expected", 127, moved.getLowestNote());
+		assertEquals("Highest note not expected", 127, moved.getHighestNote());
+	}
+	
+	/**
+	 * Tests <code>Policy.FOLD_OCTAVE</code> past both ends of the MIDI range.
+	 * A folded note keeps its pitch class and lands in the top or bottom octave of the range.
+	 */
+	@Test
+	public void testTransposeFoldOctave () {
+		assertAdjusted(edges.transpose(10, Transposition.Policy.FOLD_OCTAVE), new int [] { 10, 70, 125 }, 1);
+		assertAdjusted(edges.transpose(-10, Transposition.Policy.FOLD_OCTAVE), new int [] { 2, 50, 117 }, 1);
+		
+		int [] intervals = { 1000, -1000 };
+		for (int i = 0; i < intervals.length; i++) {
+			Transposition t = edges.transpose(intervals[i], Transposition.Policy.FOLD_OCTAVE);
+			assertEquals("Status not expected", Transposition.Status.ADJUSTED, t.getStatus());
+			assertEquals("Adjusted count not expected", 3, t.getAdjustedCount());
+			
+			EventBuffer moved = t.getEvents();
+			for (int j = 0; j < edges.size(); j++) {
+				if (PackedEvent.getType(edges.get(j)) == PackedEvent.TYPE_REST) {
+					assertEquals("Rest not expected", edges.get(j), moved.get(j));
+					continue;
+				}
+				int midi = PackedEvent.getMIDI(moved.get(j));
+				assertEquals("Pitch class not expected", Math.floorMod(PackedEvent.getMIDI(edges.get(j)) + intervals[i], 12), midi % 12);
+				if (intervals[i] > 0)
+					assertTrue("Note not expected", midi > 127 - 12 && midi <= 127);
+				else
+					assertTrue("Note not expected", midi >= 0 && midi < 12);
+			}
+		}
+	}
+	
+	/**
+	 * Tests that <code>Policy.REJECT</code> leaves the whole buffer as it is when any note would leave the range.
+	 */
+	@Test
+	public void testTransposeReject () {
+		int [] intervals = { 1, -1, 1000, -1000 };
+		for (int i = 0; i < intervals.length; i++) {
+			Transposition t = edges.transpose(intervals[i], Transposition.Policy.REJECT);
+			assertSame("Events not expected", edges, t.getEvents());
+			assertEquals("Status not expected", Transposition.Status.REJECTED, t.getStatus());
+			assertEquals("Adjusted count not expected", 0, t.getAdjustedCount());
+		}
+		
+		Transposition t = middle.transpose(60, Transposition.Policy.REJECT);
+		assertEquals("Status not expected", Transposition.Status.EXACT, t.getStatus());
+		assertEquals("Highest note not expected", 127, t.getEvents().getHighestNote());
+	}
+	
+	/* END Test transpose(int, Transposition.Policy) */
+	
+	
+	/* Local Methods */
+	
+	/**
+	 * Checks an adjusted transposition of <code>edges</code>, whose rest must be left as it was.
+	 */
+	private void assertAdjusted (Transposition t, int [] notes, int adjusted) {
+		assertEquals("Status not expected", Transposition.Status.ADJUSTED, t.getStatus());
+		assertEquals("Adjusted count not expected", adjusted, t.getAdjustedCount());
+		
+		EventBuffer moved = t.getEvents();
+		assertEquals("Size not expected", edges.size(), moved.size());
+		int note = 0;
+		for (int i = 0; i < edges.size(); i++) {
+			int before = edges.get(i);
+			int after = moved.get(i);
+			if (PackedEvent.getType(before) == PackedEvent.TYPE_REST) {
+				assertEquals("Rest not expected", before, after);
+				continue;
+			}
+			assertEquals("Type not expected", PackedEvent.getType(before), PackedEvent.getType(after));
+			assertEquals("Duration not expected", PackedEvent.getDuration(before), PackedEvent.getDuration(after));
+			assertEquals("Note not expected", notes[note++], PackedEvent.getMIDI(after));
+		}
+	}
+	
+	/* END Local Methods */
+
+}